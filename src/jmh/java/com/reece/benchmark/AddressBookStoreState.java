@@ -0,0 +1,73 @@
+package com.reece.benchmark;
+
+import com.reece.model.Contact;
+import com.reece.service.UserAddressBookService;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * A populated {@link UserAddressBookService} shared by all benchmark threads.
+ * <p>
+ * The store holds {@code users} ordinary users with {@code booksPerUser} books of
+ * {@code contactsPerBook} contacts each, plus one "hot" user with {@code hotUserBooks} books of
+ * {@code hotBookContacts} contacts to model the heaviest tenants. The defaults keep the whole
+ * store at roughly two million contacts; override them with {@code -p name=value}.
+ */
+@State(Scope.Benchmark)
+public class AddressBookStoreState {
+
+    public static final String HOT_USER = "hot-user";
+
+    @Param("10000")
+    public int users;
+
+    @Param("10")
+    public int booksPerUser;
+
+    @Param("10")
+    public int contactsPerBook;
+
+    @Param("100")
+    public int hotUserBooks;
+
+    @Param("10000")
+    public int hotBookContacts;
+
+    public UserAddressBookService service;
+
+    @Setup(Level.Trial)
+    public void populate() {
+        service = new UserAddressBookService();
+        for (int user = 0; user < users; user++) {
+            populateUser(userId(user), booksPerUser, contactsPerBook);
+        }
+        populateUser(HOT_USER, hotUserBooks, hotBookContacts);
+    }
+
+    private void populateUser(String userId, int books, int contacts) {
+        for (int book = 0; book < books; book++) {
+            service.createAddressBookForUser(userId, bookName(book));
+            for (int i = 0; i < contacts; i++) {
+                service.addContactToAddressBook(userId, bookName(book), contact(book, i));
+            }
+        }
+    }
+
+    public static String userId(int user) {
+        return "user" + user;
+    }
+
+    public static String bookName(int book) {
+        return "book" + book;
+    }
+
+    /**
+     * Contacts overlap between neighbouring books so the unique-contacts query has duplicates to fold.
+     */
+    public static Contact contact(int book, int i) {
+        return new Contact("Contact " + (book / 2) + "-" + i, String.format("%010d", (long) (book / 2) * 1_000_000 + i));
+    }
+}
@@ -0,0 +1,94 @@
+package com.reece.benchmark;
+
+import com.reece.model.Contact;
+import com.reece.model.ContactCounts;
+import com.reece.model.ContactStorage;
+import com.reece.model.DuplicateContact;
+import com.reece.service.AggregationEngine;
+import com.reece.service.UserAddressBookService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cross-book aggregations for one user with thousands of books, by {@link AggregationEngine} parallelism;
+ * {@code parallelism=1} is the sequential baseline, so the speedup by core count reads straight off the table.
+ * Unique contacts only go through the engine for {@code compact} users, as skip-list users keep an index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class AggregationBenchmark {
+
+    private static final String USER = "enterprise-user";
+    private static final int BOOKS = 2000;
+    private static final int CONTACTS_PER_BOOK = 250;
+    // Every book shares this many contacts with the others, so duplicates are found in every range.
+    private static final int SHARED_CONTACTS = 50;
+
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    @Param({"skip-list", "compact"})
+    public String storage;
+
+    private AggregationEngine engine;
+    private UserAddressBookService service;
+
+    @Setup(Level.Trial)
+    public void populate() {
+        engine = new AggregationEngine(parallelism, 0);
+        service = new UserAddressBookService();
+        service.setContactStorage(ContactStorage.valueOf(storage.toUpperCase().replace('-', '_')));
+        service.setAggregationEngine(engine);
+        for (int book = 0; book < BOOKS; book++) {
+            String name = "book-" + book;
+            service.createAddressBookForUser(USER, name);
+            List<Contact> contacts = new ArrayList<>(CONTACTS_PER_BOOK);
+            for (int i = 0; i < CONTACTS_PER_BOOK; i++) {
+                long id = i < SHARED_CONTACTS ? i : (long) book * CONTACTS_PER_BOOK + i;
+                contacts.add(new Contact("Contact " + id, String.format("%010d", id)));
+            }
+            service.addContactsToAddressBook(USER, name, contacts);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void shutDown() {
+        engine.close();
+    }
+
+    @Benchmark
+    public int uniqueContacts() {
+        Set<Contact> unique = service.getUniqueContactsAcrossAllBooks(USER);
+        return unique.size();
+    }
+
+    @Benchmark
+    public ContactCounts contactCounts() {
+        return service.getContactCounts(USER);
+    }
+
+    @Benchmark
+    public List<DuplicateContact> duplicateContacts() {
+        return service.findDuplicateContacts(USER);
+    }
+}
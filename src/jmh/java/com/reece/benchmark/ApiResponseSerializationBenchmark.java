@@ -0,0 +1,107 @@
+package com.reece.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reece.controller.JsonEnvelope;
+import com.reece.model.AddressBook;
+import com.reece.model.ApiResponse;
+import com.reece.model.Contact;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Jackson serialization of the contact-listing payload, configured the way Spring Boot configures
+ * the application's {@link ObjectMapper}, against writing a fresh envelope around the book's encoded contacts;
+ * and the same two ways gzipped.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ApiResponseSerializationBenchmark {
+
+    @Param({"100", "10000"})
+    public int contacts;
+
+    private ObjectMapper objectMapper;
+    private Set<Contact> contactSet;
+    private AddressBook book;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        contactSet = ConcurrentHashMap.newKeySet();
+        for (int i = 0; i < contacts; i++) {
+            contactSet.add(AddressBookStoreState.contact(0, i));
+        }
+        book = new AddressBook("Friends");
+        contactSet.forEach(book::addContact);
+    }
+
+    @Benchmark
+    public byte[] serializeContacts() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(new ApiResponse<>(true,
+                "All contacts retrieved under addressbook: Friends", contactSet));
+    }
+
+    @Benchmark
+    public long writePreEncodedContacts() throws IOException {
+        byte[] encoded = encodedContacts().bytes();
+        JsonEnvelope envelope = new JsonEnvelope(objectMapper, true,
+                "All contacts retrieved under addressbook: Friends");
+        envelope.writeTo(OutputStream.nullOutputStream(), encoded);
+        return envelope.length(encoded);
+    }
+
+    @Benchmark
+    public long gzipContacts() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            objectMapper.writeValue(gzip, new ApiResponse<>(true,
+                    "All contacts retrieved under addressbook: Friends", contactSet));
+        }
+        return out.size();
+    }
+
+    @Benchmark
+    public long writePreCompressedContacts() throws IOException {
+        AddressBook.EncodedContacts encoded = encodedContacts();
+        byte[] deflated = encoded.compressed(JsonEnvelope::deflate);
+        JsonEnvelope envelope = new JsonEnvelope(objectMapper, true,
+                "All contacts retrieved under addressbook: Friends");
+        envelope.writeGzipTo(OutputStream.nullOutputStream(), encoded.bytes(), deflated);
+        return envelope.gzipLength(deflated);
+    }
+
+    private AddressBook.EncodedContacts encodedContacts() {
+        return book.encodedContacts(contacts -> {
+            try {
+                return objectMapper.writeValueAsBytes(contacts);
+            } catch (JsonProcessingException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+}
@@ -0,0 +1,162 @@
+package com.reece.benchmark;
+
+import com.reece.AddressBookApplication;
+import com.reece.model.Contact;
+import com.reece.service.UserAddressBookService;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load test comparing Tomcat on its platform-thread pool against virtual-thread request execution.
+ * <p>
+ * Boots the application on a random port with one populated address book, then for each concurrency
+ * level opens that many simultaneous connections streaming the book as NDJSON. Each client reads its
+ * response in 8 KB chunks with a pause between them, so slow clients hold the server thread writing
+ * to them. Prints p50/p99/p999/max latency and failures per level, and the highest level served
+ * without failures.
+ * <p>
+ * Not a JMH benchmark; run through the benchmark profile with {@code -Dbenchmark.main}:
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Dbenchmark.main=com.reece.benchmark.ConnectionLoadTest \
+ *     -Djmh.args="platform 100,500,1000,2000 2000 5"
+ * mvn -Pbenchmark,java21 test-compile exec:exec -Dbenchmark.main=com.reece.benchmark.ConnectionLoadTest \
+ *     -Djmh.args="virtual 100,500,1000,2000 2000 5"
+ * </pre>
+ * Arguments: mode ({@code platform} or {@code virtual}), comma-separated concurrency levels, contacts in
+ * the streamed book, and the client's pause in milliseconds between 8 KB reads.
+ */
+public final class ConnectionLoadTest {
+
+    private static final String USER_ID = "load-user";
+    private static final String BOOK_NAME = "book";
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(60);
+
+    private ConnectionLoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String mode = args.length > 0 ? args[0] : "platform";
+        int[] levels = Arrays.stream((args.length > 1 ? args[1] : "100,500,1000,2000").split(","))
+                .mapToInt(Integer::parseInt)
+                .toArray();
+        int contacts = args.length > 2 ? Integer.parseInt(args[2]) : 2000;
+        long readDelayMillis = args.length > 3 ? Long.parseLong(args[3]) : 5;
+
+        boolean virtual = "virtual".equals(mode);
+        if (virtual && Runtime.version().feature() < 21) {
+            throw new IllegalStateException("virtual mode needs a Java 21 runtime and the java21 profile");
+        }
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(AddressBookApplication.class)
+                .run("--server.port=0",
+                        "--addressbook.virtual-threads.enabled=" + virtual,
+                        "--spring.main.banner-mode=off",
+                        "--logging.level.root=WARN")) {
+            populate(context.getBean(UserAddressBookService.class), contacts);
+
+            int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+            URI uri = URI.create("http://localhost:" + port + "/api/v1/users/" + USER_ID
+                    + "/addressbooks/" + BOOK_NAME + "/contacts?format=ndjson");
+
+            System.out.printf("mode=%s contacts=%d readDelay=%dms%n", mode, contacts, readDelayMillis);
+            System.out.printf("%8s %8s %10s %10s %10s %10s%n", "clients", "failed", "p50 ms", "p99 ms", "p999 ms", "max ms");
+
+            int maxServed = 0;
+            for (int clients : levels) {
+                if (!runLevel(uri, clients, readDelayMillis)) break;
+                maxServed = clients;
+            }
+            System.out.printf("max concurrent clients served without failures: %d%n", maxServed);
+        }
+    }
+
+    private static void populate(UserAddressBookService service, int contacts) {
+        service.createAddressBookForUser(USER_ID, BOOK_NAME);
+        List<Contact> batch = new ArrayList<>(contacts);
+        for (int i = 0; i < contacts; i++) {
+            batch.add(AddressBookStoreState.contact(0, i));
+        }
+        service.addContactsToAddressBook(USER_ID, BOOK_NAME, batch);
+    }
+
+    /**
+     * @return true if every client got a complete 200 response
+     */
+    private static boolean runLevel(URI uri, int clients, long readDelayMillis) throws InterruptedException {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(REQUEST_TIMEOUT)
+                .build();
+        HttpRequest request = HttpRequest.newBuilder(uri).timeout(REQUEST_TIMEOUT).GET().build();
+
+        long[] latencies = new long[clients];
+        AtomicInteger failed = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(clients);
+        ExecutorService readers = Executors.newFixedThreadPool(clients);
+        try {
+            for (int i = 0; i < clients; i++) {
+                int client = i;
+                readers.execute(() -> {
+                    try {
+                        start.await();
+                        long begin = System.nanoTime();
+                        HttpResponse<InputStream> response =
+                                httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+                        try (InputStream body = response.body()) {
+                            drainSlowly(body, readDelayMillis);
+                        }
+                        if (response.statusCode() != 200) failed.incrementAndGet();
+                        latencies[client] = System.nanoTime() - begin;
+                    } catch (IOException e) {
+                        failed.incrementAndGet();
+                        latencies[client] = Long.MAX_VALUE;
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            start.countDown();
+            done.await();
+        } finally {
+            readers.shutdownNow();
+        }
+
+        Arrays.sort(latencies);
+        System.out.printf("%8d %8d %10.1f %10.1f %10.1f %10.1f%n", clients, failed.get(),
+                percentileMillis(latencies, 0.5), percentileMillis(latencies, 0.99),
+                percentileMillis(latencies, 0.999), percentileMillis(latencies, 1.0));
+        return failed.get() == 0;
+    }
+
+    private static void drainSlowly(InputStream body, long readDelayMillis) throws IOException, InterruptedException {
+        byte[] buffer = new byte[8192];
+        while (body.read(buffer) != -1) {
+            if (readDelayMillis > 0) Thread.sleep(readDelayMillis);
+        }
+    }
+
+    // Failed requests sort last as Long.MAX_VALUE and are reported as infinite.
+    private static double percentileMillis(long[] sortedNanos, double percentile) {
+        int index = Math.min(sortedNanos.length - 1, (int) Math.ceil(percentile * sortedNanos.length) - 1);
+        long nanos = sortedNanos[Math.max(0, index)];
+        return nanos == Long.MAX_VALUE ? Double.POSITIVE_INFINITY : nanos / 1_000_000.0;
+    }
+}
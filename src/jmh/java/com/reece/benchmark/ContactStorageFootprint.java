@@ -0,0 +1,74 @@
+package com.reece.benchmark;
+
+import com.reece.model.Contact;
+import com.reece.model.ContactStorage;
+import com.reece.service.UserAddressBookService;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Retained heap per contact for each {@link ContactStorage} mode, measured through the service so that the
+ * per-user index is included. Loads one book with {@code contacts} contacts, with every name distinct
+ * ({@code unique}) or drawn from 10,000 names ({@code shared}), and compares used heap after a full GC.
+ * <p>
+ * Not a JMH benchmark; run through the benchmark profile with {@code -Dbenchmark.main}:
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Dbenchmark.main=com.reece.benchmark.ContactStorageFootprint \
+ *     -Djmh.args="1000000"
+ * </pre>
+ */
+public final class ContactStorageFootprint {
+
+    private static final int BATCH_SIZE = 1000;
+    private static final int SHARED_NAMES = 10_000;
+
+    private ContactStorageFootprint() {
+    }
+
+    public static void main(String[] args) {
+        int contacts = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+        System.out.printf("%-10s %-8s %12s %16s%n", "storage", "names", "contacts", "bytes/contact");
+        for (ContactStorage storage : ContactStorage.values()) {
+            for (boolean sharedNames : new boolean[]{false, true}) {
+                long bytes = retainedBytes(storage, contacts, sharedNames);
+                System.out.printf("%-10s %-8s %12d %16.1f%n", storage, sharedNames ? "shared" : "unique",
+                        contacts, (double) bytes / contacts);
+            }
+        }
+    }
+
+    private static long retainedBytes(ContactStorage storage, int contacts, boolean sharedNames) {
+        long before = usedHeapAfterGc();
+
+        UserAddressBookService service = new UserAddressBookService();
+        service.setContactStorage(storage);
+        service.createAddressBookForUser("user", "book");
+        List<Contact> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < contacts; i++) {
+            int name = sharedNames ? i % SHARED_NAMES : i;
+            batch.add(new Contact("Contact " + name, String.format("%010d", 400_000_000L + i * 7L)));
+            if (batch.size() == BATCH_SIZE || i == contacts - 1) {
+                service.addContactsToAddressBook("user", "book", batch);
+                batch = new ArrayList<>(BATCH_SIZE);
+            }
+        }
+
+        long after = usedHeapAfterGc();
+        if (service.getContactCount() != contacts) {
+            throw new IllegalStateException("Loaded " + service.getContactCount() + " contacts");
+        }
+        return after - before;
+    }
+
+    private static long usedHeapAfterGc() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,98 @@
+package com.reece.benchmark;
+
+import com.reece.AddressBookApplication;
+import com.reece.model.Contact;
+import com.reece.service.UserAddressBookService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write cost of each storage engine behind the same service, booted as the application would be
+ * (without the web layer). Reads are served from memory by every engine and are covered by
+ * {@link UserAddressBookServiceBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StorageEngineBenchmark {
+
+    private static final int BATCH_SIZE = 1000;
+
+    @Param({"memory", "jpa", "mmap"})
+    public String storage;
+
+    private final AtomicLong phones = new AtomicLong();
+
+    private Path mmapDirectory;
+    private ConfigurableApplicationContext context;
+    private UserAddressBookService service;
+
+    @Setup(Level.Trial)
+    public void startApplication() throws IOException {
+        mmapDirectory = Files.createTempDirectory("benchmark-mmap");
+        context = new SpringApplicationBuilder(AddressBookApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--addressbook.storage=" + storage,
+                        "--spring.datasource.url=jdbc:h2:mem:benchmark-" + storage,
+                        "--addressbook.mmap.directory=" + mmapDirectory,
+                        "--logging.level.root=WARN");
+        service = context.getBean(UserAddressBookService.class);
+        service.createAddressBookForUser("bench-user", "book");
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+
+    @Benchmark
+    public boolean addContactToAddressBook() {
+        return service.addContactToAddressBook("bench-user", "book", nextContact());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public boolean[] addContactsToAddressBookBatch() {
+        List<Contact> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch.add(nextContact());
+        }
+        return service.addContactsToAddressBook("bench-user", "book", batch);
+    }
+
+    @Benchmark
+    public boolean createAndRemoveAddressBook() {
+        String bookName = "book-" + phones.incrementAndGet();
+        service.createAddressBookForUser("bench-user", bookName);
+        return service.removeAddressBookForUser("bench-user", bookName);
+    }
+
+    private Contact nextContact() {
+        return new Contact("Bench", String.format("%010d", phones.incrementAndGet()));
+    }
+}
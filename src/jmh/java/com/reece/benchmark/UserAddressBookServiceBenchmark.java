@@ -0,0 +1,94 @@
+package com.reece.benchmark;
+
+import com.reece.model.Contact;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Service hot paths. Run through the {@link SingleThreaded} and {@link MultiThreaded} variants so
+ * that contention on the store shows up as a throughput gap between the two.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public abstract class UserAddressBookServiceBenchmark {
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        private static final AtomicInteger THREAD_IDS = new AtomicInteger();
+
+        Contact current;
+        Contact next;
+        String userId;
+
+        @Setup
+        public void setUp(AddressBookStoreState store) {
+            int threadId = THREAD_IDS.getAndIncrement();
+            // Each thread flips its own contact in a book of a user nobody else updates.
+            userId = "update-user" + threadId;
+            current = new Contact("Update " + threadId, "9000000000");
+            next = new Contact("Update " + threadId, "9000000001");
+            store.service.createAddressBookForUser(userId, "updates");
+            store.service.addContactToAddressBook(userId, "updates", current);
+        }
+    }
+
+    @Benchmark
+    public boolean addContactToAddressBook(AddressBookStoreState store) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int book = random.nextInt(store.booksPerUser);
+        return store.service.addContactToAddressBook(AddressBookStoreState.userId(random.nextInt(store.users)),
+                AddressBookStoreState.bookName(book), AddressBookStoreState.contact(book, random.nextInt(10_000)));
+    }
+
+    @Benchmark
+    public Set<Contact> getContacts(AddressBookStoreState store) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return store.service.getContacts(AddressBookStoreState.userId(random.nextInt(store.users)),
+                AddressBookStoreState.bookName(random.nextInt(store.booksPerUser)));
+    }
+
+    @Benchmark
+    public Set<Contact> getUniqueContactsAcrossAllBooks(AddressBookStoreState store) {
+        return store.service.getUniqueContactsAcrossAllBooks(
+                AddressBookStoreState.userId(ThreadLocalRandom.current().nextInt(store.users)));
+    }
+
+    @Benchmark
+    public Set<Contact> getUniqueContactsAcrossAllBooksHotUser(AddressBookStoreState store) {
+        return store.service.getUniqueContactsAcrossAllBooks(AddressBookStoreState.HOT_USER);
+    }
+
+    @Benchmark
+    public boolean updateContactForUser(AddressBookStoreState store, ThreadState thread) {
+        boolean updated = store.service.updateContactForUser(thread.userId, "updates", thread.current, thread.next);
+        Contact previous = thread.current;
+        thread.current = thread.next;
+        thread.next = previous;
+        return updated;
+    }
+
+    @Threads(1)
+    public static class SingleThreaded extends UserAddressBookServiceBenchmark {
+    }
+
+    @Threads(Threads.MAX)
+    public static class MultiThreaded extends UserAddressBookServiceBenchmark {
+    }
+}
@@ -0,0 +1,120 @@
+package com.reece.benchmark;
+
+import com.reece.AddressBookApplication;
+import com.reece.model.Contact;
+import com.reece.service.UserAddressBookService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fan-out reads over HTTP against the Spring MVC stack and the WebFlux variant, on identical data: each
+ * operation fetches {@code fanOut} users' address books in parallel as NDJSON, as our aggregating callers
+ * do. Sample mode reports the latency distribution of a whole fan-out.
+ * <p>
+ * The {@code reactive} stack needs the reactive profile on the classpath:
+ * {@code mvn -Pbenchmark,reactive test-compile exec:exec -Djmh.args="WebStackBenchmark"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(8)
+public class WebStackBenchmark {
+
+    @Param({"servlet", "reactive"})
+    public String stack;
+
+    @Param({"1000"})
+    public int users;
+
+    @Param({"100"})
+    public int contactsPerBook;
+
+    @Param({"20"})
+    public int fanOut;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient httpClient;
+    private String baseUri;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        context = new SpringApplicationBuilder(AddressBookApplication.class)
+                .run("--spring.main.web-application-type=" + stack,
+                        "--server.port=0",
+                        "--spring.main.banner-mode=off",
+                        "--logging.level.root=WARN");
+
+        UserAddressBookService service = context.getBean(UserAddressBookService.class);
+        String bookName = AddressBookStoreState.bookName(0);
+        for (int user = 0; user < users; user++) {
+            String userId = AddressBookStoreState.userId(user);
+            service.createAddressBookForUser(userId, bookName);
+            List<Contact> contacts = new ArrayList<>(contactsPerBook);
+            for (int i = 0; i < contactsPerBook; i++) {
+                contacts.add(AddressBookStoreState.contact(user, i));
+            }
+            service.addContactsToAddressBook(userId, bookName, contacts);
+        }
+
+        int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+        baseUri = "http://localhost:" + port + "/api/v1/users/";
+        httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+
+    @Benchmark
+    public long fanOutRead() {
+        int first = ThreadLocalRandom.current().nextInt(users);
+        List<CompletableFuture<HttpResponse<byte[]>>> responses = new ArrayList<>(fanOut);
+        for (int i = 0; i < fanOut; i++) {
+            String userId = AddressBookStoreState.userId((first + i) % users);
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUri + userId + "/addressbooks/"
+                            + AddressBookStoreState.bookName(0) + "/contacts"))
+                    .header("Accept", "application/x-ndjson")
+                    .GET()
+                    .build();
+            responses.add(httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray()));
+        }
+
+        long bytes = 0;
+        for (CompletableFuture<HttpResponse<byte[]>> response : responses) {
+            HttpResponse<byte[]> result = response.join();
+            if (result.statusCode() != 200) {
+                throw new IllegalStateException("Unexpected status " + result.statusCode());
+            }
+            bytes += result.body().length;
+        }
+        return bytes;
+    }
+}
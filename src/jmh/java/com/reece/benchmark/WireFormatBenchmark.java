@@ -0,0 +1,77 @@
+package com.reece.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reece.controller.WireFormat;
+import com.reece.model.ApiResponse;
+import com.reece.model.Contact;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding and decoding a contact listing in each {@link WireFormat}, with mappers configured the way the
+ * application configures its message converters. The payload size of each format is printed at setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WireFormatBenchmark {
+
+    private static final TypeReference<ApiResponse<List<Contact>>> LISTING = new TypeReference<>() {
+    };
+
+    @Param({"10000"})
+    public int contacts;
+
+    @Param({"JSON", "CBOR", "SMILE"})
+    public WireFormat format;
+
+    private ObjectMapper objectMapper;
+    private ApiResponse<List<Contact>> response;
+    private byte[] encoded;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        objectMapper = switch (format) {
+            case JSON -> Jackson2ObjectMapperBuilder.json().build();
+            case CBOR -> Jackson2ObjectMapperBuilder.cbor().build();
+            case SMILE -> Jackson2ObjectMapperBuilder.smile().build();
+        };
+        List<Contact> contactList = new ArrayList<>(contacts);
+        for (int i = 0; i < contacts; i++) {
+            contactList.add(AddressBookStoreState.contact(0, i));
+        }
+        response = new ApiResponse<>(true, "All contacts retrieved under addressbook: Friends", contactList);
+        encoded = objectMapper.writeValueAsBytes(response);
+        System.out.printf("%n%s payload for %d contacts: %d bytes%n", format, contacts, encoded.length);
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public ApiResponse<List<Contact>> decode() throws IOException {
+        return objectMapper.readValue(encoded, LISTING);
+    }
+}
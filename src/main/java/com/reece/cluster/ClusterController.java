@@ -0,0 +1,50 @@
+package com.reece.cluster;
+
+import com.reece.model.ApiResponse;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * This node's view of the cluster. {@code PUT /api/v1/cluster/nodes} on a node switches it to a new node
+ * list and moves away the users it no longer owns; see {@link ShardRouter#rebalance}. It sends users and the
+ * cluster secret to the nodes it is given, so it requires the secret itself and answers 403 without it.
+ */
+@RestController
+@RequestMapping("/api/v1/cluster")
+@ConditionalOnProperty("addressbook.cluster.nodes")
+public class ClusterController {
+
+    private final ShardRouter router;
+
+    public ClusterController(ShardRouter router) {
+        this.router = router;
+    }
+
+    @GetMapping("/nodes")
+    public ResponseEntity<ApiResponse<List<String>>> getNodes() {
+        return ResponseEntity.ok(new ApiResponse<>(true, "Cluster nodes as seen by " + router.self(), router.nodes()));
+    }
+
+    @PutMapping("/nodes")
+    public ResponseEntity<ApiResponse<Integer>> setNodes(
+            @RequestHeader(value = ShardRouter.SECRET_HEADER, required = false) String secret,
+            @RequestBody List<String> nodes) throws IOException {
+        if (!router.isClusterSecret(secret)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(new ApiResponse<>(false,
+                    "Changing the node list requires the cluster secret", null));
+        }
+        int moved = router.rebalance(nodes);
+        return ResponseEntity.ok(new ApiResponse<>(true, moved + " users moved away from " + router.self(), moved));
+    }
+}
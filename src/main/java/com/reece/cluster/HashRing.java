@@ -0,0 +1,57 @@
+package com.reece.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Consistent-hash ring mapping user ids to nodes. Each node is placed at {@link #VIRTUAL_NODES} points so
+ * users spread evenly, and adding a node only moves the users that now hash to one of its points.
+ * <p>
+ * Immutable; the hash depends only on the bytes of the key and node names, so every instance given the
+ * same node list computes the same owners.
+ */
+public final class HashRing {
+
+    static final int VIRTUAL_NODES = 256;
+
+    private final List<String> nodes;
+    private final NavigableMap<Long, String> points = new TreeMap<>();
+
+    public HashRing(List<String> nodes) {
+        if (nodes.isEmpty()) throw new IllegalArgumentException("A hash ring needs at least one node");
+
+        this.nodes = List.copyOf(nodes);
+        for (String node : this.nodes) {
+            for (int i = 0; i < VIRTUAL_NODES; i++) {
+                points.put(hash(node + '#' + i), node);
+            }
+        }
+    }
+
+    public List<String> nodes() {
+        return nodes;
+    }
+
+    public String nodeFor(String key) {
+        Map.Entry<Long, String> point = points.ceilingEntry(hash(key));
+        return point != null ? point.getValue() : points.firstEntry().getValue();
+    }
+
+    // 64-bit FNV-1a over the UTF-8 bytes, finished with MurmurHash3's fmix64 to spread similar keys apart.
+    static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
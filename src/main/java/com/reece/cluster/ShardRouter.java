@@ -0,0 +1,313 @@
+package com.reece.cluster;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reece.controller.WireFormat;
+import com.reece.model.AddressBook;
+import com.reece.model.BatchOperation;
+import com.reece.model.BatchRequest;
+import com.reece.model.Contact;
+import com.reece.model.User;
+import com.reece.service.UserAddressBookService;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.UriUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Partitions users across the nodes listed in {@code addressbook.cluster.nodes} by consistent hashing on
+ * the user id. This node is {@code addressbook.cluster.self}, which must be one of them.
+ * <p>
+ * {@link ShardRoutingFilter} proxies requests for users owned elsewhere to their owner. A request that was
+ * already forwarded is never forwarded again, so nodes with briefly different node lists never bounce a
+ * request between them; a node that does not hold the user answers {@code 421} instead. Only requests
+ * carrying {@code addressbook.cluster.secret}, shared by every node, count as forwarded; anyone else
+ * claiming to be a node is routed like any client.
+ * <p>
+ * {@link #rebalance} switches to a new node list but keeps serving each user this node no longer owns until
+ * that user has been copied to its new owner through the batch endpoint; only then does the user's traffic
+ * follow it and the copy here is dropped. The new owner must already have the new list, or it refuses the
+ * copy. Only users held in memory are moved, so it suits the
+ * {@code memory}, {@code wal} and {@code jpa} engines.
+ */
+@Component
+@ConditionalOnProperty("addressbook.cluster.nodes")
+public class ShardRouter {
+
+    static final String FORWARDED_HEADER = "X-AddressBook-Forwarded-By";
+    static final String SECRET_HEADER = "X-AddressBook-Cluster-Secret";
+
+    private static final Logger log = LoggerFactory.getLogger(ShardRouter.class);
+
+    private static final int LOCK_STRIPES = 1024;
+
+    // Restricted by HttpClient, or meaningful only for one hop.
+    private static final Set<String> HOP_BY_HOP = Set.of("connection", "content-length", "expect", "host",
+            "keep-alive", "proxy-authorization", "proxy-connection", "te", "trailer", "transfer-encoding", "upgrade");
+
+    private final String self;
+    private final String secret;
+    private final Duration timeout;
+    private final UserAddressBookService userAddressBookService;
+    // Users are moved between nodes as Smile batches, smaller and cheaper to parse than JSON.
+    private final ObjectMapper smileMapper;
+    private final HttpClient client;
+    // Requests served here hold their user's stripe for reading; copying a user away holds it for writing.
+    private final ReentrantReadWriteLock[] userLocks = new ReentrantReadWriteLock[LOCK_STRIPES];
+    // Users the current ring places elsewhere that are still held, and served, here until they are copied.
+    private final Set<String> leaving = ConcurrentHashMap.newKeySet();
+    private volatile HashRing ring;
+
+    public ShardRouter(@Value("${addressbook.cluster.nodes}") List<String> nodes,
+                       @Value("${addressbook.cluster.self:http://localhost:${server.port:8080}}") String self,
+                       @Value("${addressbook.cluster.secret:}") String secret,
+                       @Value("${addressbook.cluster.forward-timeout:10s}") Duration timeout,
+                       UserAddressBookService userAddressBookService,
+                       MappingJackson2SmileHttpMessageConverter smileConverter) {
+        if (secret.isBlank()) {
+            throw new IllegalArgumentException("addressbook.cluster.secret must be set, to the same value on every node");
+        }
+        this.self = normalize(self);
+        this.secret = secret;
+        this.timeout = timeout;
+        this.userAddressBookService = userAddressBookService;
+        this.smileMapper = smileConverter.getObjectMapper();
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .build();
+        this.ring = ringOf(nodes);
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            userLocks[i] = new ReentrantReadWriteLock();
+        }
+    }
+
+    public String self() {
+        return self;
+    }
+
+    public List<String> nodes() {
+        return ring.nodes();
+    }
+
+    public String ownerOf(String userId) {
+        return leaving.contains(userId) ? self : ring.nodeFor(userId);
+    }
+
+    /**
+     * Held while a request for {@code userId} is routed and served here, so the user cannot move away
+     * part way through; a request arriving while the user is being copied waits for the copy to finish.
+     */
+    Lock servingLock(String userId) {
+        return userLocks[stripe(userId)].readLock();
+    }
+
+    public boolean isLocal(String userId) {
+        return self.equals(ownerOf(userId));
+    }
+
+    /**
+     * @return true if {@code request} was forwarded by a node of this cluster, proven by the shared secret
+     */
+    boolean isForwarded(HttpServletRequest request) {
+        return request.getHeader(FORWARDED_HEADER) != null && isClusterSecret(request.getHeader(SECRET_HEADER));
+    }
+
+    /**
+     * @return true if {@code presented} is the shared cluster secret, compared in constant time
+     */
+    boolean isClusterSecret(String presented) {
+        return presented != null
+                && MessageDigest.isEqual(presented.getBytes(StandardCharsets.UTF_8), secret.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Sends {@code request} to {@code node} and copies its answer, body streamed, into {@code response}.
+     * Nothing is written to {@code response} if the node cannot be reached.
+     */
+    void forward(String node, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String query = request.getQueryString();
+        HttpRequest.Builder forwarded = HttpRequest.newBuilder(URI.create(node + request.getRequestURI()
+                        + (query == null ? "" : "?" + query)))
+                .timeout(timeout);
+        for (String name : Collections.list(request.getHeaderNames())) {
+            if (HOP_BY_HOP.contains(name.toLowerCase(Locale.ROOT)) || isClusterHeader(name)) continue;
+            for (String value : Collections.list(request.getHeaders(name))) {
+                forwarded.header(name, value);
+            }
+        }
+        forwarded.header(FORWARDED_HEADER, self).header(SECRET_HEADER, secret);
+        boolean hasBody = request.getContentLengthLong() > 0 || request.getHeader("Transfer-Encoding") != null;
+        forwarded.method(request.getMethod(), hasBody
+                ? HttpRequest.BodyPublishers.ofInputStream(() -> requestBody(request))
+                : HttpRequest.BodyPublishers.noBody());
+
+        HttpResponse<InputStream> answer = send(forwarded.build());
+        response.setStatus(answer.statusCode());
+        answer.headers().map().forEach((name, values) -> {
+            if (!HOP_BY_HOP.contains(name.toLowerCase(Locale.ROOT))) {
+                values.forEach(value -> response.addHeader(name, value));
+            }
+        });
+        try (InputStream body = answer.body()) {
+            body.transferTo(response.getOutputStream());
+        }
+    }
+
+    /**
+     * Switches to {@code nodes} and moves every user this node no longer owns to its new owner. The switch
+     * waits for requests in flight, then new users follow the new list at once while users held here stay
+     * served here. Each of those is copied while its requests are held back, and only once it has arrived
+     * are its requests forwarded and its copy here dropped, so changes made here before the copy arrive with it.
+     * If a transfer fails the rest stay here; calling this again with the same nodes resumes, as re-sent
+     * books and contacts are reported as duplicates and skipped. Until then a user copied part way is held
+     * on both nodes: clients of the new owner see the partial copy, and removals made here meanwhile are not
+     * carried over by the resumed copy.
+     *
+     * @return the number of users moved away
+     */
+    public synchronized int rebalance(List<String> nodes) throws IOException {
+        HashRing next = ringOf(nodes);
+        log.info("Rebalancing {} from {} to {}", self, ring.nodes(), next.nodes());
+        for (ReentrantReadWriteLock lock : userLocks) {
+            lock.writeLock().lock();
+        }
+        try {
+            ring = next;
+            leaving.clear();
+            for (User user : userAddressBookService.getAllUsers()) {
+                if (!next.nodeFor(user.getUserId()).equals(self)) {
+                    leaving.add(user.getUserId());
+                }
+            }
+        } finally {
+            for (ReentrantReadWriteLock lock : userLocks) {
+                lock.writeLock().unlock();
+            }
+        }
+
+        int moved = 0;
+        for (String userId : List.copyOf(leaving)) {
+            Lock lock = userLocks[stripe(userId)].writeLock();
+            lock.lock();
+            try {
+                User user = userAddressBookService.getUser(userId);
+                if (user != null) {
+                    transfer(user, next.nodeFor(userId));
+                }
+                leaving.remove(userId);
+                userAddressBookService.removeUser(userId);
+            } finally {
+                lock.unlock();
+            }
+            moved++;
+        }
+        log.info("Rebalanced {}: {} users moved away", self, moved);
+        return moved;
+    }
+
+    // Re-creates the user's books on the owner in batches of at most BatchRequest.MAX_OPERATIONS.
+    private void transfer(User user, String owner) throws IOException {
+        List<BatchOperation> operations = new ArrayList<>(BatchRequest.MAX_OPERATIONS);
+        for (AddressBook book : user.getAllAddressBooks()) {
+            operations.add(BatchOperation.builder().type(BatchOperation.Type.CREATE_BOOK)
+                    .addressBook(book.getName()).build());
+            for (Contact contact : book.getContacts()) {
+                if (operations.size() == BatchRequest.MAX_OPERATIONS) {
+                    sendBatch(user.getUserId(), owner, operations);
+                    operations.clear();
+                }
+                operations.add(BatchOperation.builder().type(BatchOperation.Type.ADD_CONTACT)
+                        .addressBook(book.getName()).contact(contact).build());
+            }
+            if (operations.size() == BatchRequest.MAX_OPERATIONS) {
+                sendBatch(user.getUserId(), owner, operations);
+                operations.clear();
+            }
+        }
+        if (!operations.isEmpty()) {
+            sendBatch(user.getUserId(), owner, operations);
+        }
+    }
+
+    private void sendBatch(String userId, String owner, List<BatchOperation> operations) throws IOException {
+        byte[] body = smileMapper.writeValueAsBytes(new BatchRequest(false, operations));
+        HttpRequest request = HttpRequest.newBuilder(URI.create(owner + "/api/v1/users/"
+                        + UriUtils.encodePathSegment(userId, StandardCharsets.UTF_8) + "/batch"))
+                .timeout(timeout)
+                .header("Content-Type", WireFormat.SMILE_VALUE)
+                .header(FORWARDED_HEADER, self)
+                .header(SECRET_HEADER, secret)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+        HttpResponse<InputStream> response = send(request);
+        response.body().close();
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException("Moving user " + userId + " to " + owner + " failed with status " + response.statusCode());
+        }
+    }
+
+    private HttpResponse<InputStream> send(HttpRequest request) throws IOException {
+        try {
+            return client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while calling " + request.uri(), e);
+        }
+    }
+
+    private HashRing ringOf(List<String> nodes) {
+        List<String> normalized = nodes.stream().map(ShardRouter::normalize).distinct().toList();
+        if (!normalized.contains(self)) {
+            throw new IllegalArgumentException("Node list " + normalized + " does not include this node, " + self);
+        }
+        return new HashRing(normalized);
+    }
+
+    private static int stripe(String userId) {
+        int hash = userId.hashCode();
+        return (hash ^ hash >>> 16) & (LOCK_STRIPES - 1);
+    }
+
+    private static boolean isClusterHeader(String name) {
+        return name.equalsIgnoreCase(FORWARDED_HEADER) || name.equalsIgnoreCase(SECRET_HEADER);
+    }
+
+    private static InputStream requestBody(HttpServletRequest request) {
+        try {
+            return request.getInputStream();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String normalize(String node) {
+        String trimmed = node.trim();
+        return trimmed.endsWith("/") ? trimmed.substring(0, trimmed.length() - 1) : trimmed;
+    }
+}
@@ -0,0 +1,108 @@
+package com.reece.cluster;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reece.model.ApiResponse;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UriUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Forwards every {@code /api/v1/users/{userId}/...} request for a user owned by another node to that node.
+ * A request served here holds {@link ShardRouter#servingLock} until it completes, so a rebalance cannot move
+ * the user away under it. Runs after the metrics filter, so forwarded requests are still timed here. An owner
+ * that cannot be reached is reported as {@code 502 Bad Gateway}. A request another node forwarded here is never
+ * forwarded again: if this node does not hold its user, because the two nodes' lists differ, it is answered
+ * with {@code 421 Misdirected Request} rather than served from a copy that would be dropped or never filled.
+ */
+@Component
+@ConditionalOnProperty("addressbook.cluster.nodes")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class ShardRoutingFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardRoutingFilter.class);
+
+    private static final String USERS_PATH = "/api/v1/users/";
+
+    // Not in this version of HttpStatus.
+    private static final int MISDIRECTED_REQUEST = 421;
+
+    private final ShardRouter router;
+    private final ObjectMapper objectMapper;
+
+    public ShardRoutingFilter(ShardRouter router, ObjectMapper objectMapper) {
+        this.router = router;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String userId = userIdOf(request);
+        if (userId == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        String owner;
+        Lock serving = router.servingLock(userId);
+        serving.lock();
+        try {
+            owner = router.ownerOf(userId);
+            if (owner.equals(router.self())) {
+                chain.doFilter(request, response);
+                return;
+            }
+            if (router.isForwarded(request)) {
+                writeError(response, MISDIRECTED_REQUEST, "User " + userId + " is owned by " + owner + ", not " + router.self());
+                return;
+            }
+        } finally {
+            serving.unlock();
+        }
+
+        try {
+            router.forward(owner, request, response);
+        } catch (IOException e) {
+            if (response.isCommitted()) throw e;
+
+            log.warn("Could not forward {} {} to {}", request.getMethod(), request.getRequestURI(), owner, e);
+            response.reset();
+            writeError(response, HttpStatus.BAD_GATEWAY.value(), "Owner of user " + userId + " is unreachable: " + owner);
+        }
+    }
+
+    private void writeError(HttpServletResponse response, int status, String message) throws IOException {
+        response.setStatus(status);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), new ApiResponse<>(false, message, null));
+    }
+
+    // The decoded {userId} path segment, or null for requests that are not about one user.
+    private static String userIdOf(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (!path.startsWith(USERS_PATH)) return null;
+
+        int end = path.indexOf('/', USERS_PATH.length());
+        String segment = path.substring(USERS_PATH.length(), end < 0 ? path.length() : end);
+        return segment.isEmpty() ? null : UriUtils.decode(segment, StandardCharsets.UTF_8);
+    }
+}
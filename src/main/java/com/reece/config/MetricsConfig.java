@@ -0,0 +1,40 @@
+package com.reece.config;
+
+import com.reece.service.UserAddressBookService;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Service-level metrics on top of the per-endpoint {@code http.server.requests} timers that Spring Boot
+ * records for every controller mapping.
+ */
+@Configuration
+public class MetricsConfig {
+
+    // Enables @Timed on Spring beans, e.g. UserAddressBookService.
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry registry) {
+        return new TimedAspect(registry);
+    }
+
+    @Bean
+    public MeterBinder addressBookStoreMetrics(UserAddressBookService service) {
+        return registry -> {
+            Gauge.builder("addressbook.users", service, UserAddressBookService::getUserCount)
+                    .description("Users in the store")
+                    .register(registry);
+            Gauge.builder("addressbook.books", service, UserAddressBookService::getAddressBookCount)
+                    .description("Address books across all users")
+                    .register(registry);
+            Gauge.builder("addressbook.contacts", service, UserAddressBookService::getContactCount)
+                    .description("Contacts across all address books")
+                    .register(registry);
+        };
+    }
+}
@@ -0,0 +1,82 @@
+package com.reece.config;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Holds back a message converter's output until it reaches the compression threshold. A body that stays below
+ * it goes out with a {@code Content-Length}, which is what lets the server skip compressing small replies; a
+ * larger one is passed through as it is written, so it still streams and is compressed on the fly.
+ */
+final class SizedOutputMessage implements HttpOutputMessage {
+
+    interface Writer {
+        void writeTo(HttpOutputMessage message) throws IOException;
+    }
+
+    private final HttpOutputMessage target;
+    private final int threshold;
+    private final ByteArrayOutputStream buffer;
+    private OutputStream body;
+
+    private SizedOutputMessage(HttpOutputMessage target, int threshold) {
+        this.target = target;
+        this.threshold = threshold;
+        this.buffer = new ByteArrayOutputStream(Math.min(threshold, 8192));
+    }
+
+    static void write(HttpOutputMessage target, int threshold, Writer writer) throws IOException {
+        SizedOutputMessage message = new SizedOutputMessage(target, threshold);
+        writer.writeTo(message);
+        message.finish();
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+        return target.getHeaders();
+    }
+
+    @Override
+    public OutputStream getBody() {
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                if (body == null && buffer.size() + length < threshold) {
+                    buffer.write(bytes, offset, length);
+                    return;
+                }
+                passThrough().write(bytes, offset, length);
+            }
+
+            // While buffering, a flush would commit the response without its length.
+            @Override
+            public void flush() throws IOException {
+                if (body != null) body.flush();
+            }
+        };
+    }
+
+    private OutputStream passThrough() throws IOException {
+        if (body == null) {
+            body = target.getBody();
+            buffer.writeTo(body);
+        }
+        return body;
+    }
+
+    private void finish() throws IOException {
+        if (body != null) return;
+
+        target.getHeaders().setContentLength(buffer.size());
+        buffer.writeTo(target.getBody());
+    }
+}
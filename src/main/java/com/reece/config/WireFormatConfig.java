@@ -0,0 +1,79 @@
+package com.reece.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+/**
+ * CBOR and Smile request and response bodies, negotiated through {@code Content-Type} and {@code Accept} with
+ * JSON as the default. Spring MVC registers both converters on its own once the formats are on the classpath,
+ * but with a plain mapper; these replace them in place with mappers built from Spring Boot's
+ * {@link Jackson2ObjectMapperBuilder}, so {@code spring.jackson.*} settings apply to every format alike.
+ * <p>
+ * With {@code server.compression} on, all three converters hold back bodies below its minimum size and send them
+ * with a {@code Content-Length}. Jackson flushes as it finishes, which would otherwise commit every response
+ * with no length, and the server compresses any response of unknown length, however small.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class WireFormatConfig {
+
+    private final int sizedBelow;
+
+    public WireFormatConfig(@Value("${server.compression.enabled:false}") boolean compression,
+                            @Value("${server.compression.min-response-size:2KB}") DataSize minResponseSize) {
+        this.sizedBelow = compression ? (int) Math.min(minResponseSize.toBytes(), Integer.MAX_VALUE) : 0;
+    }
+
+    @Bean
+    public MappingJackson2HttpMessageConverter jsonHttpMessageConverter(ObjectMapper objectMapper) {
+        return new MappingJackson2HttpMessageConverter(objectMapper) {
+            @Override
+            protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException {
+                writeSized(outputMessage, message -> super.writeInternal(object, type, message));
+            }
+        };
+    }
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build()) {
+            @Override
+            protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException {
+                writeSized(outputMessage, message -> super.writeInternal(object, type, message));
+            }
+        };
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build()) {
+            @Override
+            protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException {
+                writeSized(outputMessage, message -> super.writeInternal(object, type, message));
+            }
+        };
+    }
+
+    private void writeSized(HttpOutputMessage outputMessage, SizedOutputMessage.Writer writer) throws IOException {
+        if (sizedBelow == 0) {
+            writer.writeTo(outputMessage);
+        } else {
+            SizedOutputMessage.write(outputMessage, sizedBelow, writer);
+        }
+    }
+}
@@ -1,31 +1,101 @@
 package com.reece.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 import com.reece.model.AddressBook;
 import com.reece.model.ApiResponse;
+import com.reece.model.BatchRequest;
+import com.reece.model.BatchResult;
+import com.reece.model.BulkImportResult;
+import com.reece.model.ChangeSet;
 import com.reece.model.Contact;
+import com.reece.model.ContactCounts;
+import com.reece.model.DuplicateContact;
+import com.reece.model.Page;
 import com.reece.model.UpdateContact;
+import com.reece.model.UpdateResult;
 import com.reece.service.UserAddressBookService;
 
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
 
 import jakarta.validation.constraints.NotBlank;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 
+// The WebFlux variant (src/reactive, reactive profile) serves the same routes on a reactive server.
 @RestController
 @RequestMapping("/api/v1/")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class AddressBookController {
 
+    // Query parameter that selects NDJSON streaming for clients that cannot set the Accept header.
+    private static final String NDJSON_FORMAT_PARAM = "format=ndjson";
+
+    private static final String TEXT_CSV_VALUE = "text/csv";
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType(TEXT_CSV_VALUE);
+
+    // Presence of this query parameter selects keyset pagination; "cursor" continues from a previous page.
+    private static final String PAGE_LIMIT_PARAM = "limit";
+
+    private static final String DEFAULT_SEARCH_LIMIT = "100";
+
     @Autowired
     private UserAddressBookService userAddressBookService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private ResponseCache responseCache;
+
+    // Their mappers encode the binary formats for the byte-array responses below.
+    @Autowired
+    private MappingJackson2CborHttpMessageConverter cborConverter;
+
+    @Autowired
+    private MappingJackson2SmileHttpMessageConverter smileConverter;
+
+    // Serve book listings from each book's own encoded contacts rather than from the response cache.
+    @Value("${addressbook.cache.encoded-contacts:true}")
+    private boolean encodedContacts;
+
+    // Cached reads are gzipped here, once per version, under the same settings as the server's own compression.
+    @Value("${server.compression.enabled:false}")
+    private boolean compression;
+
+    @Value("${server.compression.min-response-size:2KB}")
+    private DataSize compressionMinSize;
+
+    // Prefixes every ETag, so that versions restarting from zero after a restart never match old tags.
+    private final String etagEpoch = Long.toString(System.currentTimeMillis(), 36);
+
     //AC1
     @PostMapping("users/{userId}/addressbooks/{addressbookName}/contacts")
     public ResponseEntity<ApiResponse<Void>> addContactToUser(@PathVariable String addressbookName,
@@ -42,6 +112,33 @@ public class AddressBookController {
         }
     }
 
+    //AC1: bulk import from a JSON, CBOR or Smile array, NDJSON or CSV (name,phone) body
+    @PostMapping(value = "/users/{userId}/addressbooks/{addressbookName}/contacts/bulk",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, WireFormat.SMILE_VALUE,
+                    MediaType.APPLICATION_NDJSON_VALUE, TEXT_CSV_VALUE})
+    public ResponseEntity<ApiResponse<BulkImportResult>> importContactsToUser(@PathVariable @NotBlank String userId,
+                                                                              @PathVariable String addressbookName,
+                                                                              @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                                                              InputStream body) throws IOException {
+        if (!userAddressBookService.hasAddressBook(userId, addressbookName)) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(
+                    new ApiResponse<>(false, "Address book or contact not found: " + addressbookName, null));
+        }
+
+        BulkContactImporter importer = new BulkContactImporter(userAddressBookService, validator, userId, addressbookName);
+        BulkImportResult result;
+        if (MediaType.APPLICATION_NDJSON.isCompatibleWith(contentType)) {
+            result = importer.importNdjson(objectMapper, body);
+        } else if (TEXT_CSV.isCompatibleWith(contentType)) {
+            result = importer.importCsv(body);
+        } else {
+            WireFormat format = WireFormat.of(contentType);
+            result = importer.importJsonArray(objectMapper(format == null ? WireFormat.JSON : format), body);
+        }
+        return ResponseEntity.ok(new ApiResponse<>(true, result.getAdded() + " of " + result.getReceived()
+                + " contacts imported into addressbook: " + addressbookName, result));
+    }
+
     //AC2
     @DeleteMapping("/users/{userId}/addressbooks/{addressbookName}/contacts")
     public ResponseEntity<ApiResponse<Void>> removeContactForUser(@PathVariable @NotBlank String userId,
@@ -57,41 +154,156 @@ public class AddressBookController {
         }
     }
 
-    //AC3
+    //AC3: as JSON, the book's contacts encoded and compressed once per version and wrapped in a fresh envelope;
+    // otherwise served from the response cache; with an ETag from the book's version, and 304 for a matching
+    // If-None-Match
     @GetMapping("/users/{userId}/addressbooks/{addressbookName}/contacts")
-    public ResponseEntity<ApiResponse<Set<Contact>>> getAllAddressBooksForUser(@PathVariable @NotBlank String userId,
-                                                                               @PathVariable String addressbookName) {
-        Set<Contact> result = userAddressBookService.getContacts(userId, addressbookName);
-        if (result.isEmpty()) {
+    public ResponseEntity<?> getAllAddressBooksForUser(@PathVariable @NotBlank String userId,
+                                                       @PathVariable String addressbookName,
+                                                       @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                                       WebRequest request,
+                                                       HttpServletResponse response) throws IOException {
+        WireFormat format = WireFormat.negotiate(accept);
+        boolean gzip = gzip(request);
+        long version = userAddressBookService.getAddressBookVersion(userId, addressbookName);
+        if (version >= 0 && request.checkNotModified(etag(version, format, gzip))) return null;
+
+        if (encodedContacts && format == WireFormat.JSON) {
+            AddressBook book = userAddressBookService.getAddressBook(userId, addressbookName);
+            if (book == null || book.contactCount() == 0) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(
+                        new ApiResponse<>(false, "Address book or contact not found: " + addressbookName,
+                                null));
+            }
+            AddressBook.EncodedContacts contacts = book.encodedContacts(this::toJson);
+            JsonEnvelope envelope = new JsonEnvelope(objectMapper, true,
+                    "All contacts retrieved under addressbook: " + addressbookName);
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT + ", " + HttpHeaders.ACCEPT_ENCODING);
+            if (gzip && envelope.length(contacts.bytes()) >= compressionMinSize.toBytes()) {
+                byte[] deflated = contacts.compressed(JsonEnvelope::deflate);
+                response.setHeader(HttpHeaders.CONTENT_ENCODING, Gzip.CODING);
+                response.setContentLengthLong(envelope.gzipLength(deflated));
+                envelope.writeGzipTo(response.getOutputStream(), contacts.bytes(), deflated);
+            } else {
+                response.setContentLengthLong(envelope.length(contacts.bytes()));
+                envelope.writeTo(response.getOutputStream(), contacts.bytes());
+            }
+            return null;
+        }
+
+        ResponseCache.Key key = ResponseCache.bookContacts(userId, addressbookName, format);
+        byte[] body = responseCache.get(key, version, () -> {
+            Set<Contact> result = userAddressBookService.getContacts(userId, addressbookName);
+            return result.isEmpty() ? null : encode(format, new ApiResponse<>(true,
+                    "All contacts retrieved under addressbook: " + addressbookName, result));
+        });
+        if (body == null) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(
                     new ApiResponse<>(false, "Address book or contact not found: " + addressbookName,
                             null));
-        } else {
-            return ResponseEntity.ok(new ApiResponse<>(true, "All contacts retrieved under addressbook: "
-                    + addressbookName, result));
         }
+        return body(key, version, body, gzip);
     }
 
-    // AC4:  Users should be able to maintain multiple addressbooks
+    //AC3: paged in phone, name order
+    @GetMapping(value = "/users/{userId}/addressbooks/{addressbookName}/contacts", params = PAGE_LIMIT_PARAM)
+    public ResponseEntity<ApiResponse<Page<Contact>>> getContactsPageForUser(@PathVariable @NotBlank String userId,
+                                                                           @PathVariable String addressbookName,
+                                                                           @RequestParam int limit,
+                                                                           @RequestParam(required = false) String cursor) {
+        Page<Contact> page = userAddressBookService.getContactsPage(userId, addressbookName, cursor, limit);
+        if (page == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(
+                    new ApiResponse<>(false, "Address book or contact not found: " + addressbookName,
+                            null));
+        }
+        return ResponseEntity.ok(new ApiResponse<>(true, "All contacts retrieved under addressbook: "
+                + addressbookName, page));
+    }
+
+    //AC3: streamed as NDJSON, one contact per line
+    @GetMapping(value = "/users/{userId}/addressbooks/{addressbookName}/contacts",
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamContactsForUser(@PathVariable @NotBlank String userId,
+                                                                       @PathVariable String addressbookName) {
+        Set<Contact> contacts = userAddressBookService.getContacts(userId, addressbookName);
+        if (contacts.isEmpty()) {
+            return streamError(HttpStatus.NOT_FOUND, "Address book or contact not found: " + addressbookName);
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(out -> NdjsonWriter.writeContacts(objectMapper.getFactory(), out, contacts));
+    }
+
+    @GetMapping(value = "/users/{userId}/addressbooks/{addressbookName}/contacts", params = NDJSON_FORMAT_PARAM)
+    public ResponseEntity<StreamingResponseBody> streamContactsForUserByFormat(@PathVariable @NotBlank String userId,
+                                                                               @PathVariable String addressbookName) {
+        return streamContactsForUser(userId, addressbookName);
+    }
+
+    // AC4:  Users should be able to maintain multiple addressbooks; cached, with an ETag from the user's version
     @GetMapping("users/{userId}")
-    public ResponseEntity<ApiResponse<Map<String, AddressBook>>> getAllAddressBooks(@PathVariable @NotBlank String userId) {
-        return ResponseEntity.ok(new ApiResponse<>(true, "All Addressbooks retrieved",
-                userAddressBookService.getAllBooks(userId)));
+    public ResponseEntity<byte[]> getAllAddressBooks(@PathVariable @NotBlank String userId,
+                                                     @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                                     WebRequest request) {
+        WireFormat format = WireFormat.negotiate(accept);
+        boolean gzip = gzip(request);
+        long version = userAddressBookService.getUserVersion(userId);
+        if (request.checkNotModified(etag(version, format, gzip))) return null;
+
+        ResponseCache.Key key = ResponseCache.allBooks(userId, format);
+        return body(key, version, responseCache.get(key, version, () -> encode(format,
+                new ApiResponse<>(true, "All Addressbooks retrieved", userAddressBookService.getAllBooks(userId)))),
+                gzip);
+    }
+
+    // AC4: paged in addressbook name order
+    @GetMapping(value = "users/{userId}", params = PAGE_LIMIT_PARAM)
+    public ResponseEntity<ApiResponse<Page<AddressBook>>> getAddressBooksPage(@PathVariable @NotBlank String userId,
+                                                                            @RequestParam int limit,
+                                                                            @RequestParam(required = false) String cursor) {
+        Page<AddressBook> page = userAddressBookService.getAddressBooksPage(userId, cursor, limit);
+        if (page == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(
+                    new ApiResponse<>(false, "user not found: " + userId, null));
+        }
+        return ResponseEntity.ok(new ApiResponse<>(true, "All Addressbooks retrieved", page));
+    }
+
+    // AC4: all books streamed as NDJSON, one contact per line tagged with its addressbook
+    @GetMapping(value = "users/{userId}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllAddressBooks(@PathVariable @NotBlank String userId) {
+        Map<String, AddressBook> addressBooks = userAddressBookService.getAllBooks(userId);
+        if (addressBooks == null) {
+            return streamError(HttpStatus.NOT_FOUND, "user not found: " + userId);
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(out -> NdjsonWriter.writeAddressBooks(objectMapper.getFactory(), out, addressBooks.values()));
+    }
+
+    @GetMapping(value = "users/{userId}", params = NDJSON_FORMAT_PARAM)
+    public ResponseEntity<StreamingResponseBody> streamAllAddressBooksByFormat(@PathVariable @NotBlank String userId) {
+        return streamAllAddressBooks(userId);
     }
 
     //  AC4:   Users should be able to maintain multiple addressbooks : updating the books
     @PutMapping("/users/{userId}/addressbooks/{addressbookName}/contacts")
     public ResponseEntity<ApiResponse<Void>> updateContact(@PathVariable @NotBlank String userId,
                                                            @PathVariable String addressbookName,
-                                                           @RequestBody UpdateContact updateContact) {
-        boolean updated = userAddressBookService.updateContactForUser(userId, addressbookName, updateContact.getOldContact(),
-                updateContact.getNewContact());
-
-        String message = updated
-                ? "Contact updated successfully in addressbook: " + addressbookName
-                : "Old contact not found in the addressbook.";
-        return ResponseEntity.ok(new ApiResponse<>(true, message, null));
+                                                           @Valid @RequestBody UpdateContact updateContact) {
+        UpdateResult result = userAddressBookService.replaceContactForUser(userId, addressbookName,
+                updateContact.getOldContact(), updateContact.getNewContact());
 
+        return switch (result) {
+            case UPDATED -> ResponseEntity.ok(new ApiResponse<>(true,
+                    "Contact updated successfully in addressbook: " + addressbookName, null));
+            case NOT_FOUND -> ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ApiResponse<>(false,
+                    "Old contact not found in the addressbook.", null));
+            case DUPLICATE -> ResponseEntity.status(HttpStatus.CONFLICT).body(new ApiResponse<>(false,
+                    "New contact already exists in the addressbook.", null));
+        };
     }
 
     //  AC4:   Users should be able to maintain multiple addressbooks : delete addbook
@@ -103,6 +315,19 @@ public class AddressBookController {
                 + " removed successfully", null));
     }
 
+    // Several changes to one user's books in a single round trip; see UserAddressBookService#applyBatch
+    @PostMapping("/users/{userId}/batch")
+    public ResponseEntity<ApiResponse<BatchResult>> applyBatch(@PathVariable @NotBlank String userId,
+                                                               @Valid @RequestBody BatchRequest batch) {
+        BatchResult result = userAddressBookService.applyBatch(userId, batch.getOperations(), batch.isAtomic());
+        if (result.isRolledBack()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new ApiResponse<>(false,
+                    "Batch rolled back after a failed operation; nothing was applied", result));
+        }
+        return ResponseEntity.ok(new ApiResponse<>(result.getFailed() == 0, result.getApplied() + " of "
+                + batch.getOperations().size() + " operations applied", result));
+    }
+
     //AC4: create addbook
     @PostMapping("users/{userId}/addressbooks/{addressbookName}")
     public ResponseEntity<ApiResponse<Void>> createAddressBookForUser(@PathVariable String addressbookName,
@@ -118,11 +343,156 @@ public class AddressBookController {
         }
     }
 
-    //AC5
+    //AC5: cached, with an ETag from the user's version
     @GetMapping("/users/{userId}/addressbooks/contacts/unique")
-    public ResponseEntity<ApiResponse<Set<Contact>>> getUniqueContactsForUser(@PathVariable @NotBlank String userId) {
+    public ResponseEntity<byte[]> getUniqueContactsForUser(@PathVariable @NotBlank String userId,
+                                                           @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                                           WebRequest request) {
+        WireFormat format = WireFormat.negotiate(accept);
+        boolean gzip = gzip(request);
+        long version = userAddressBookService.getUserVersion(userId);
+        if (request.checkNotModified(etag(version, format, gzip))) return null;
+
+        ResponseCache.Key key = ResponseCache.uniqueContacts(userId, format);
+        return body(key, version, responseCache.get(key, version, () -> encode(format,
+                new ApiResponse<>(true, "Unique contacts retrieved from all addressbooks.",
+                        userAddressBookService.getUniqueContactsAcrossAllBooks(userId)))), gzip);
+    }
+
+    //AC5: paged in phone, name order
+    @GetMapping(value = "/users/{userId}/addressbooks/contacts/unique", params = PAGE_LIMIT_PARAM)
+    public ResponseEntity<ApiResponse<Page<Contact>>> getUniqueContactsPageForUser(@PathVariable @NotBlank String userId,
+                                                                                 @RequestParam int limit,
+                                                                                 @RequestParam(required = false) String cursor) {
         return ResponseEntity.ok(new ApiResponse<>(true, "Unique contacts retrieved from all addressbooks.",
-                userAddressBookService.getUniqueContactsAcrossAllBooks(userId)));
+                userAddressBookService.getUniqueContactsPage(userId, cursor, limit)));
+    }
+
+    //AC5: totals across all addressbooks, counted in parallel for large users
+    @GetMapping("/users/{userId}/addressbooks/contacts/count")
+    public ResponseEntity<ApiResponse<ContactCounts>> getContactCountsForUser(@PathVariable @NotBlank String userId) {
+        ContactCounts counts = userAddressBookService.getContactCounts(userId);
+        if (counts == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(
+                    new ApiResponse<>(false, "user not found: " + userId, null));
+        }
+        return ResponseEntity.ok(new ApiResponse<>(true, "Contact counts across all addressbooks.", counts));
+    }
+
+    //AC5: contacts held by more than one addressbook
+    @GetMapping("/users/{userId}/addressbooks/contacts/duplicates")
+    public ResponseEntity<ApiResponse<List<DuplicateContact>>> getDuplicateContactsForUser(@PathVariable @NotBlank String userId) {
+        List<DuplicateContact> duplicates = userAddressBookService.findDuplicateContacts(userId);
+        if (duplicates == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(
+                    new ApiResponse<>(false, "user not found: " + userId, null));
+        }
+        return ResponseEntity.ok(new ApiResponse<>(true, "Contacts found in more than one addressbook.", duplicates));
+    }
+
+    // Delta sync: changes to one addressbook since the client's token, or a snapshot once the token has aged out
+    @GetMapping("/users/{userId}/addressbooks/{addressbookName}/changes")
+    public ResponseEntity<ApiResponse<ChangeSet>> getAddressBookChanges(@PathVariable @NotBlank String userId,
+                                                                        @PathVariable String addressbookName,
+                                                                        @RequestParam(required = false) String since) {
+        ChangeSet changes = userAddressBookService.getChanges(userId, addressbookName, since);
+        if (changes == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(
+                    new ApiResponse<>(false, "Address book not found: " + addressbookName, null));
+        }
+        return ResponseEntity.ok(new ApiResponse<>(true, "Changes retrieved for addressbook: " + addressbookName,
+                changes));
+    }
+
+    // Delta sync across all of a user's addressbooks, including removed ones
+    @GetMapping("/users/{userId}/changes")
+    public ResponseEntity<ApiResponse<ChangeSet>> getUserChanges(@PathVariable @NotBlank String userId,
+                                                                 @RequestParam(required = false) String since) {
+        ChangeSet changes = userAddressBookService.getChanges(userId, since);
+        if (changes == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(
+                    new ApiResponse<>(false, "user not found: " + userId, null));
+        }
+        return ResponseEntity.ok(new ApiResponse<>(true, "Changes retrieved from all addressbooks.", changes));
+    }
+
+    //AC5: search across all addressbooks by exact phone or case-insensitive name prefix
+    @GetMapping("/users/{userId}/addressbooks/contacts/search")
+    public ResponseEntity<ApiResponse<List<Contact>>> searchContactsForUser(@PathVariable @NotBlank String userId,
+                                                                          @RequestParam(required = false) String phone,
+                                                                          @RequestParam(required = false) String namePrefix,
+                                                                          @RequestParam(defaultValue = DEFAULT_SEARCH_LIMIT) int limit) {
+        return ResponseEntity.ok(new ApiResponse<>(true, "Contacts found across all addressbooks.",
+                userAddressBookService.searchContacts(userId, null, phone, namePrefix, limit)));
+    }
+
+    //AC3: search within one addressbook
+    @GetMapping("/users/{userId}/addressbooks/{addressbookName}/contacts/search")
+    public ResponseEntity<ApiResponse<List<Contact>>> searchContactsInAddressBook(@PathVariable @NotBlank String userId,
+                                                                                @PathVariable String addressbookName,
+                                                                                @RequestParam(required = false) String phone,
+                                                                                @RequestParam(required = false) String namePrefix,
+                                                                                @RequestParam(defaultValue = DEFAULT_SEARCH_LIMIT) int limit) {
+        List<Contact> result = userAddressBookService.searchContacts(userId, addressbookName, phone, namePrefix, limit);
+        if (result == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(
+                    new ApiResponse<>(false, "Address book or contact not found: " + addressbookName, null));
+        }
+        return ResponseEntity.ok(new ApiResponse<>(true, "Contacts found in addressbook: " + addressbookName, result));
+    }
+
+    // Streaming endpoints may have negotiated NDJSON, so errors are written as JSON explicitly.
+    private ResponseEntity<StreamingResponseBody> streamError(HttpStatus status, String message) {
+        ApiResponse<Void> response = new ApiResponse<>(false, message, null);
+        return ResponseEntity.status(status)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> out.write(objectMapper.writeValueAsBytes(response)));
+    }
+
+    // Strong: a version identifies one exact body in each format and coding. checkNotModified has already set it
+    // on the response.
+    private String etag(long version, WireFormat format, boolean gzip) {
+        String suffix = (format == WireFormat.JSON ? "" : "-" + format.name().toLowerCase(Locale.ROOT))
+                + (gzip ? "-" + Gzip.CODING : "");
+        return "\"" + etagEpoch + "-" + version + suffix + "\"";
+    }
+
+    private boolean gzip(WebRequest request) {
+        return compression && Gzip.accepted(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
     }
-}
 
+    // Bodies over the compression threshold go out gzipped, compressed once and cached next to the plain body.
+    private ResponseEntity<byte[]> body(ResponseCache.Key key, long version, byte[] body, boolean gzip) {
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok().contentType(key.format().mediaType())
+                .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip && body.length >= compressionMinSize.toBytes()) {
+            return ok.header(HttpHeaders.CONTENT_ENCODING, Gzip.CODING)
+                    .body(responseCache.get(key.gzipped(), version, () -> Gzip.compress(body)));
+        }
+        return ok.body(body);
+    }
+
+    private byte[] encode(WireFormat format, Object value) {
+        return write(objectMapper(format), value);
+    }
+
+    private ObjectMapper objectMapper(WireFormat format) {
+        return switch (format) {
+            case JSON -> objectMapper;
+            case CBOR -> cborConverter.getObjectMapper();
+            case SMILE -> smileConverter.getObjectMapper();
+        };
+    }
+
+    private byte[] toJson(Object value) {
+        return write(objectMapper, value);
+    }
+
+    private static byte[] write(ObjectMapper mapper, Object value) {
+        try {
+            return mapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.reece.controller;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.reece.exception.AddressBookAPIException;
+import com.reece.model.BulkImportResult;
+import com.reece.model.BulkItemResult;
+import com.reece.model.Contact;
+import com.reece.service.UserAddressBookService;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Reads contacts from a JSON array, NDJSON or CSV request body as a stream, validates them and hands
+ * them to the service in batches of {@link #BATCH_SIZE}, so each batch costs one lock acquisition
+ * instead of one request per contact. Invalid items are reported and skipped; they never abort the import.
+ */
+final class BulkContactImporter {
+
+    static final int BATCH_SIZE = 1000;
+
+    private static final String CSV_HEADER = "name,phone";
+
+    private final UserAddressBookService userAddressBookService;
+    private final Validator validator;
+    private final String userId;
+    private final String bookName;
+
+    private final BulkImportResult result = new BulkImportResult();
+    private final List<Contact> batch = new ArrayList<>(BATCH_SIZE);
+    private final List<Integer> batchIndexes = new ArrayList<>(BATCH_SIZE);
+    private int nextIndex;
+
+    BulkContactImporter(UserAddressBookService userAddressBookService, Validator validator,
+                        String userId, String bookName) {
+        this.userAddressBookService = userAddressBookService;
+        this.validator = validator;
+        this.userId = userId;
+        this.bookName = bookName;
+    }
+
+    /**
+     * Each item is read whole before it is bound, so an item that is not a contact is rejected on its own.
+     * Broken syntax leaves no way to find the next item: it is rejected and ends the import, keeping the
+     * contacts already imported.
+     */
+    BulkImportResult importJsonArray(ObjectMapper objectMapper, InputStream body) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            try {
+                if (parser.nextToken() != JsonToken.START_ARRAY) {
+                    throw new IllegalArgumentException("Bulk import body must be a JSON array of contacts");
+                }
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("Malformed JSON: " + e.getOriginalMessage());
+            }
+            ObjectReader reader = objectMapper.readerFor(Contact.class);
+            try {
+                JsonToken token;
+                while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                    if (token == null) {
+                        reject("Unterminated JSON array");
+                        break;
+                    }
+                    accept(reader, parser.readValueAsTree());
+                }
+            } catch (JsonProcessingException e) {
+                rejectRest(e.getOriginalMessage());
+            }
+        }
+        return finish();
+    }
+
+    BulkImportResult importNdjson(ObjectMapper objectMapper, InputStream body) throws IOException {
+        ObjectReader reader = objectMapper.readerFor(Contact.class);
+        try (BufferedReader lines = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = lines.readLine()) != null) {
+                if (line.isBlank()) continue;
+                try {
+                    accept(reader.readValue(line));
+                } catch (JsonProcessingException e) {
+                    reject("Malformed JSON: " + e.getOriginalMessage());
+                }
+            }
+        }
+        return finish();
+    }
+
+    /**
+     * One {@code name,phone} pair per line with an optional header. The phone is taken after the last
+     * comma, so names may contain commas; surrounding double quotes are stripped.
+     */
+    BulkImportResult importCsv(InputStream body) throws IOException {
+        try (BufferedReader lines = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            String line;
+            boolean first = true;
+            while ((line = lines.readLine()) != null) {
+                if (line.isBlank()) continue;
+                if (first && line.replace(" ", "").equalsIgnoreCase(CSV_HEADER)) {
+                    first = false;
+                    continue;
+                }
+                first = false;
+                int comma = line.lastIndexOf(',');
+                if (comma < 0) {
+                    reject("Expected name,phone");
+                    continue;
+                }
+                accept(new Contact(unquote(line.substring(0, comma)), unquote(line.substring(comma + 1))));
+            }
+        }
+        return finish();
+    }
+
+    /**
+     * Validates one contact and queues it, flushing a full batch to the service. Together with
+     * {@link #finish()} this lets a caller feed contacts from a source of its own, one at a time. A null
+     * contact, such as a JSON {@code null} item, is rejected.
+     */
+    void accept(Contact contact) {
+        if (contact == null) {
+            reject("Not a contact: null");
+            return;
+        }
+        int index = nextIndex++;
+        Set<ConstraintViolation<Contact>> violations = validator.validate(contact);
+        if (!violations.isEmpty()) {
+            result.recordRejected(index, violations.stream()
+                    .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining("; ")));
+            return;
+        }
+        batch.add(contact);
+        batchIndexes.add(index);
+        if (batch.size() == BATCH_SIZE) {
+            flush();
+        }
+    }
+
+    /**
+     * Binds one JSON item with {@code contactReader} and accepts it, rejecting an item that is not a contact.
+     */
+    void accept(ObjectReader contactReader, JsonNode item) {
+        Contact contact;
+        try {
+            contact = contactReader.readValue(item);
+        } catch (JsonProcessingException e) {
+            reject("Not a contact: " + e.getOriginalMessage());
+            return;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        accept(contact);
+    }
+
+    /**
+     * Records a syntax error after which no further item could be read.
+     */
+    void rejectRest(String error) {
+        reject("Malformed JSON, the rest of the body was not read: " + error);
+    }
+
+    private void reject(String message) {
+        result.recordRejected(nextIndex++, message);
+    }
+
+    private void flush() {
+        if (batch.isEmpty()) return;
+
+        boolean[] added = userAddressBookService.addContactsToAddressBook(userId, bookName, batch);
+        if (added == null) {
+            throw new AddressBookAPIException("Address book or contact not found: " + bookName);
+        }
+        for (int i = 0; i < added.length; i++) {
+            if (added[i]) {
+                result.recordAdded();
+            } else {
+                result.recordDuplicate(batchIndexes.get(i));
+            }
+        }
+        batch.clear();
+        batchIndexes.clear();
+    }
+
+    BulkImportResult finish() {
+        flush();
+        result.getResults().sort(Comparator.comparingInt(BulkItemResult::getIndex));
+        return result;
+    }
+
+    private static String unquote(String value) {
+        String trimmed = value.trim();
+        if (trimmed.length() >= 2 && trimmed.startsWith("\"") && trimmed.endsWith("\"")) {
+            return trimmed.substring(1, trimmed.length() - 1).replace("\"\"", "\"");
+        }
+        return trimmed;
+    }
+}
@@ -0,0 +1,132 @@
+package com.reece.controller;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * gzip content coding for bodies the controller compresses itself, once per version, so that the server's own
+ * on-the-fly compression is left with nothing to do for them.
+ * <p>
+ * Besides whole bodies it writes a gzip stream from separately deflated segments. Each segment ends with a
+ * sync flush, byte-aligned and not final, so segments concatenate into one deflate stream; a cached segment can
+ * therefore be framed by freshly deflated bytes around it without being compressed again.
+ */
+final class Gzip {
+
+    static final String CODING = "gzip";
+
+    // Magic, deflate, no flags, no modification time, no extra flags, unknown OS.
+    private static final byte[] HEADER = {0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+    // An empty final block with fixed Huffman codes.
+    private static final byte[] FINAL_BLOCK = {3, 0};
+    private static final int TRAILER_BYTES = 8;
+
+    private Gzip() {
+    }
+
+    /**
+     * Whether an {@code Accept-Encoding} header allows gzip: listed with a non-zero quality, or not listed and
+     * covered by a non-zero {@code *}.
+     */
+    static boolean accepted(String acceptEncoding) {
+        if (acceptEncoding == null) return false;
+
+        Boolean wildcard = null;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim().toLowerCase(Locale.ROOT);
+            boolean allowed = quality(parts) > 0;
+            if (name.equals(CODING) || name.equals("x-gzip")) return allowed;
+            if (name.equals("*")) wildcard = allowed;
+        }
+        return Boolean.TRUE.equals(wildcard);
+    }
+
+    static byte[] compress(byte[] body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * @return {@code bytes} as a raw deflate segment that the stream of {@link #write} can carry
+     */
+    static byte[] deflateSegment(byte[] bytes) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setInput(bytes);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4 + 64);
+            byte[] buffer = new byte[8192];
+            int written;
+            do {
+                written = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                out.write(buffer, 0, written);
+            } while (written == buffer.length || !deflater.needsInput());
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * @return the length of the stream that {@link #write} produces from these segments
+     */
+    static long length(byte[]... deflatedSegments) {
+        long length = HEADER.length + FINAL_BLOCK.length + TRAILER_BYTES;
+        for (byte[] segment : deflatedSegments) {
+            length += segment.length;
+        }
+        return length;
+    }
+
+    /**
+     * Writes one gzip member whose content is {@code plain}, given each of its parts as deflated by
+     * {@link #deflateSegment}; the plain parts are only read for the checksum.
+     */
+    static void write(OutputStream out, byte[][] plain, byte[][] deflatedSegments) throws IOException {
+        CRC32 crc = new CRC32();
+        long size = 0;
+        for (byte[] part : plain) {
+            crc.update(part);
+            size += part.length;
+        }
+        out.write(HEADER);
+        for (byte[] segment : deflatedSegments) {
+            out.write(segment);
+        }
+        out.write(FINAL_BLOCK);
+        writeIntLe(out, (int) crc.getValue());
+        writeIntLe(out, (int) size);
+    }
+
+    private static double quality(String[] parameters) {
+        for (int i = 1; i < parameters.length; i++) {
+            String parameter = parameters[i].trim();
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    private static void writeIntLe(OutputStream out, int value) throws IOException {
+        out.write(value);
+        out.write(value >>> 8);
+        out.write(value >>> 16);
+        out.write(value >>> 24);
+    }
+}
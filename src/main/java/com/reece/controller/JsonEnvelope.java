@@ -0,0 +1,79 @@
+package com.reece.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reece.model.ApiResponse;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+/**
+ * The fields of an {@link ApiResponse} around data that is already encoded as JSON, in the order Jackson writes
+ * them, so that a cached body such as {@link com.reece.model.AddressBook#encodedContacts} is copied to the
+ * response as it is instead of being serialized again. Gzipped, only the envelope is deflated per response;
+ * the data comes as a segment deflated once by {@link #deflate}.
+ */
+public final class JsonEnvelope {
+
+    private final byte[] head;
+    private final byte[] tail;
+    private byte[] deflatedHead;
+    private byte[] deflatedTail;
+
+    /**
+     * Encodes {@code success}, {@code message} and the current timestamp with {@code objectMapper}, so they are
+     * formatted exactly as in a serialized {@link ApiResponse}.
+     */
+    public JsonEnvelope(ObjectMapper objectMapper, boolean success, String message) throws JsonProcessingException {
+        this.head = ("{\"success\":" + success + ",\"message\":" + objectMapper.writeValueAsString(message)
+                + ",\"data\":").getBytes(StandardCharsets.UTF_8);
+        this.tail = (",\"timestamp\":" + objectMapper.writeValueAsString(LocalDateTime.now()) + "}")
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return {@code data} deflated for {@link #writeGzipTo}; worth caching alongside it
+     */
+    public static byte[] deflate(byte[] data) {
+        return Gzip.deflateSegment(data);
+    }
+
+    /**
+     * @return the length in bytes of the response around {@code data}
+     */
+    public long length(byte[] data) {
+        return (long) head.length + data.length + tail.length;
+    }
+
+    public void writeTo(OutputStream out, byte[] data) throws IOException {
+        out.write(head);
+        out.write(data);
+        out.write(tail);
+    }
+
+    /**
+     * @return the length in bytes of the gzipped response around data deflated as {@code deflatedData}
+     */
+    public long gzipLength(byte[] deflatedData) {
+        deflateEnvelope();
+        return Gzip.length(deflatedHead, deflatedData, deflatedTail);
+    }
+
+    /**
+     * Writes the response around {@code data} as one gzip stream, given {@code data} as deflated by
+     * {@link #deflate}.
+     */
+    public void writeGzipTo(OutputStream out, byte[] data, byte[] deflatedData) throws IOException {
+        deflateEnvelope();
+        Gzip.write(out, new byte[][]{head, data, tail}, new byte[][]{deflatedHead, deflatedData, deflatedTail});
+    }
+
+    private void deflateEnvelope() {
+        if (deflatedHead == null) {
+            deflatedHead = Gzip.deflateSegment(head);
+            deflatedTail = Gzip.deflateSegment(tail);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.reece.controller;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.reece.model.AddressBook;
+import com.reece.model.Contact;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
+
+/**
+ * Writes contacts as newline-delimited JSON straight to a response stream, one object per line,
+ * while iterating the live contact sets. Nothing is collected up front, so heap use does not grow
+ * with the size of the book.
+ */
+final class NdjsonWriter {
+
+    private NdjsonWriter() {
+    }
+
+    static void writeContacts(JsonFactory jsonFactory, OutputStream out, Collection<Contact> contacts)
+            throws IOException {
+        try (JsonGenerator generator = createGenerator(jsonFactory, out)) {
+            for (Contact contact : contacts) {
+                writeContact(generator, null, contact);
+            }
+            endStream(generator, !contacts.isEmpty());
+        }
+    }
+
+    static void writeAddressBooks(JsonFactory jsonFactory, OutputStream out, Collection<AddressBook> addressBooks)
+            throws IOException {
+        try (JsonGenerator generator = createGenerator(jsonFactory, out)) {
+            boolean written = false;
+            for (AddressBook addressBook : addressBooks) {
+                for (Contact contact : addressBook.getContacts()) {
+                    writeContact(generator, addressBook.getName(), contact);
+                    written = true;
+                }
+            }
+            endStream(generator, written);
+        }
+    }
+
+    private static JsonGenerator createGenerator(JsonFactory jsonFactory, OutputStream out) throws IOException {
+        JsonGenerator generator = jsonFactory.createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+        return generator;
+    }
+
+    private static void writeContact(JsonGenerator generator, String addressBook, Contact contact) throws IOException {
+        generator.writeStartObject();
+        if (addressBook != null) {
+            generator.writeStringField("addressBook", addressBook);
+        }
+        generator.writeStringField("name", contact.getName());
+        generator.writeStringField("phone", contact.getPhone());
+        generator.writeEndObject();
+    }
+
+    private static void endStream(JsonGenerator generator, boolean written) throws IOException {
+        if (written) {
+            generator.writeRaw('\n');
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.reece.controller;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.reece.model.Contact;
+import com.reece.service.AddressBookListener;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Serialized bodies of the hottest reads, keyed by user, address book, {@link WireFormat} and whether they are
+ * gzipped, so that a repeated {@code GET} neither walks the maps nor serializes or compresses again. JSON book listings only pass through here when
+ * {@code addressbook.cache.encoded-contacts} is off; otherwise each book keeps its own encoded contacts.
+ * <p>
+ * Entries are bounded by their total size in bytes, evicted by Caffeine's W-TinyLFU policy, and expire after
+ * {@code addressbook.cache.ttl} when that is set. A {@code max-size} of zero turns the cache off.
+ * <p>
+ * As an {@link AddressBookListener} it drops exactly what a change can affect: the changed book's listing
+ * plus the user's all-books and unique-contacts bodies, in every format and coding. Every body is also stored with the version it was
+ * loaded at, read before loading, and served only for that version. A body is therefore never served with
+ * a version, or ETag, newer than its contents.
+ * <p>
+ * Hit, miss and eviction counts are published as the {@code cache.*} meters tagged {@code cache=addressbook.responses}.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class ResponseCache implements AddressBookListener, MeterBinder {
+
+    enum View { BOOK_CONTACTS, ALL_BOOKS, UNIQUE_CONTACTS }
+
+    record Key(String userId, View view, String bookName, WireFormat format, boolean gzip) {
+
+        /**
+         * @return the key of the same body gzipped
+         */
+        Key gzipped() {
+            return new Key(userId, view, bookName, format, true);
+        }
+    }
+
+    private record Entry(long version, byte[] body) {
+    }
+
+    private static final String CACHE_NAME = "addressbook.responses";
+
+    private final Cache<Key, Entry> cache;
+
+    public ResponseCache(@Value("${addressbook.cache.max-size:64MB}") DataSize maxSize,
+                         @Value("${addressbook.cache.ttl:0s}") Duration ttl) {
+        if (maxSize.toBytes() == 0) {
+            this.cache = null;
+            return;
+        }
+        Caffeine<Key, Entry> builder = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((Key key, Entry entry) -> entry.body().length)
+                .recordStats();
+        if (!ttl.isZero()) {
+            builder.expireAfterWrite(ttl);
+        }
+        this.cache = builder.build();
+    }
+
+    static Key bookContacts(String userId, String bookName, WireFormat format) {
+        return new Key(userId, View.BOOK_CONTACTS, bookName, format, false);
+    }
+
+    static Key allBooks(String userId, WireFormat format) {
+        return new Key(userId, View.ALL_BOOKS, null, format, false);
+    }
+
+    static Key uniqueContacts(String userId, WireFormat format) {
+        return new Key(userId, View.UNIQUE_CONTACTS, null, format, false);
+    }
+
+    /**
+     * @param version the current version of what {@code key} covers, read before calling this
+     * @param loader  serializes the current state, or returns null for a response that must not be cached
+     * @return the body cached for {@code version} or freshly loaded, or null if {@code loader} returned null
+     */
+    byte[] get(Key key, long version, Supplier<byte[]> loader) {
+        if (cache == null) return loader.get();
+
+        Entry cached = cache.getIfPresent(key);
+        if (cached != null && cached.version() == version) return cached.body();
+
+        // Concurrent misses may each load; that is cheaper than holding a lock while serializing.
+        byte[] body = loader.get();
+        if (body != null) {
+            cache.asMap().merge(key, new Entry(version, body),
+                    (existing, loaded) -> existing.version() >= loaded.version() ? existing : loaded);
+        }
+        return body;
+    }
+
+    @Override
+    public void onAddressBookCreated(String userId, String bookName) {
+        invalidate(userId, bookName);
+    }
+
+    @Override
+    public void onContactsAdded(String userId, String bookName, List<Contact> contacts) {
+        invalidate(userId, bookName);
+    }
+
+    @Override
+    public void onContactRemoved(String userId, String bookName, Contact contact) {
+        invalidate(userId, bookName);
+    }
+
+    @Override
+    public void onContactUpdated(String userId, String bookName, Contact oldContact, Contact newContact) {
+        invalidate(userId, bookName);
+    }
+
+    @Override
+    public void onAddressBookRemoved(String userId, String bookName) {
+        invalidate(userId, bookName);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (cache != null) {
+            CaffeineCacheMetrics.monitor(registry, cache, CACHE_NAME, Tags.empty());
+        }
+    }
+
+    private void invalidate(String userId, String bookName) {
+        if (cache == null) return;
+
+        List<Key> affected = new ArrayList<>(6 * WireFormat.values().length);
+        for (WireFormat format : WireFormat.values()) {
+            for (Key key : List.of(bookContacts(userId, bookName, format), allBooks(userId, format),
+                    uniqueContacts(userId, format))) {
+                affected.add(key);
+                affected.add(key.gzipped());
+            }
+        }
+        cache.invalidateAll(affected);
+    }
+}
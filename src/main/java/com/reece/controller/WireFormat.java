@@ -0,0 +1,65 @@
+package com.reece.controller;
+
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+/**
+ * Encodings the API reads and writes. CBOR and Smile are Jackson's binary forms of the JSON data model, written
+ * by the same serializers, so a body means the same in each; they are smaller and cheaper to parse than text.
+ */
+public enum WireFormat {
+
+    // First, so that wildcards and clients that state no preference get JSON.
+    JSON(MediaType.APPLICATION_JSON),
+    CBOR(MediaType.APPLICATION_CBOR),
+    SMILE(new MediaType("application", "x-jackson-smile"));
+
+    public static final String SMILE_VALUE = "application/x-jackson-smile";
+
+    private final MediaType mediaType;
+
+    WireFormat(MediaType mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public MediaType mediaType() {
+        return mediaType;
+    }
+
+    /**
+     * The format an {@code Accept} header ranks highest, earlier entries winning ties; JSON when the header is
+     * missing, malformed or names none of them, so that an unacceptable request fails as it would for JSON.
+     */
+    public static WireFormat negotiate(String accept) {
+        if (accept == null || accept.isBlank()) return JSON;
+
+        WireFormat best = JSON;
+        double bestQuality = 0;
+        try {
+            for (MediaType accepted : MediaType.parseMediaTypes(accept)) {
+                double quality = accepted.getQualityValue();
+                if (quality <= bestQuality) continue;
+                for (WireFormat format : values()) {
+                    if (accepted.includes(format.mediaType)) {
+                        best = format;
+                        bestQuality = quality;
+                        break;
+                    }
+                }
+            }
+        } catch (InvalidMediaTypeException e) {
+            return JSON;
+        }
+        return best;
+    }
+
+    /**
+     * @return the format of a request body of this type, or null if it is none of them
+     */
+    public static WireFormat of(MediaType contentType) {
+        for (WireFormat format : values()) {
+            if (format.mediaType.isCompatibleWith(contentType)) return format;
+        }
+        return null;
+    }
+}
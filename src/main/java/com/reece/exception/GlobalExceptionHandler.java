@@ -2,16 +2,22 @@ package com.reece.exception;
 
 import com.reece.model.ApiResponse;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.bind.support.WebExchangeBindException;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDateTime;
 import java.util.stream.Collectors;
 
 @ControllerAdvice
 public class GlobalExceptionHandler {
+    private static final Logger log = LoggerFactory.getLogger(GlobalExceptionHandler.class);
 
     @ExceptionHandler({IllegalArgumentException.class, NullPointerException.class})
     public ResponseEntity<ApiResponse<Void>> handleBadRequest(RuntimeException ex) {
@@ -24,7 +30,23 @@ public class GlobalExceptionHandler {
     }
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<ApiResponse<Void>> handleValidationErrors(MethodArgumentNotValidException ex) {
-        String errors = ex.getBindingResult()
+        return validationFailed(ex.getBindingResult());
+    }
+
+    // WebFlux counterpart of MethodArgumentNotValidException
+    @ExceptionHandler(WebExchangeBindException.class)
+    public ResponseEntity<ApiResponse<Void>> handleReactiveValidationErrors(WebExchangeBindException ex) {
+        return validationFailed(ex.getBindingResult());
+    }
+
+    // Unreadable bodies and unsupported media types on the reactive stack, or explicit statuses
+    @ExceptionHandler(ResponseStatusException.class)
+    public ResponseEntity<ApiResponse<Void>> handleResponseStatus(ResponseStatusException ex) {
+        return buildResponse(false, ex.getReason(), HttpStatus.valueOf(ex.getStatusCode().value()));
+    }
+
+    private ResponseEntity<ApiResponse<Void>> validationFailed(BindingResult bindingResult) {
+        String errors = bindingResult
                 .getFieldErrors()
                 .stream()
                 .map(err -> err.getField() + ": " + err.getDefaultMessage())
@@ -35,7 +57,7 @@ public class GlobalExceptionHandler {
     // Catch-all for unhandled exceptions
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ApiResponse<Void>> handleGeneralError(Exception ex) {
-        ex.printStackTrace(); // For debugging, remove in production
+        log.error("Unhandled exception", ex);
         return buildResponse(false, "An unexpected error occurred", HttpStatus.INTERNAL_SERVER_ERROR);
     }
 
@@ -1,17 +1,74 @@
 package com.reece.model;
 
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.NavigableSet;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
 
 public class AddressBook {
     private String name;
-    private Set<Contact> contacts = new HashSet<>();
+    // Either iterates in Contact.KEY_ORDER, so a page can be read from any cursor.
+    private Set<Contact> contacts;
+    // ConcurrentSkipListSet.size() walks the whole set, so the count is tracked alongside it.
+    private final AtomicInteger contactCount = new AtomicInteger();
+    // Owning user's version at this book's last change; written after the change, see User#version().
+    private volatile long version;
+    // Recent changes for delta sync, appended by User with each new version.
+    private final ChangeLog changeLog = new ChangeLog();
+    // Contacts already encoded for a response, with the version they were read at; dropped by every change.
+    private volatile EncodedContacts encodedContacts;
+
+    /**
+     * Contacts encoded for a response at one version of their book, and a compressed form of the same bytes made
+     * on first use. Callers must not modify either array.
+     */
+    public static final class EncodedContacts {
+        private final long version;
+        private final byte[] bytes;
+        private volatile byte[] compressed;
+
+        private EncodedContacts(long version, byte[] bytes) {
+            this.version = version;
+            this.bytes = bytes;
+        }
+
+        public byte[] bytes() {
+            return bytes;
+        }
+
+        /**
+         * @return {@link #bytes()} as compressed by {@code compressor}, which is called on the first request only
+         */
+        public byte[] compressed(UnaryOperator<byte[]> compressor) {
+            byte[] result = compressed;
+            if (result == null) {
+                // Concurrent first requests may each compress; any result will do.
+                result = compressor.apply(bytes);
+                compressed = result;
+            }
+            return result;
+        }
+    }
 
     public AddressBook() {
+        this(null);
     }
 
     public AddressBook(String name) {
+        this(name, ContactStorage.SKIP_LIST);
+    }
+
+    public AddressBook(String name, ContactStorage storage) {
         this.name = name;
+        this.contacts = storage == ContactStorage.COMPACT
+                ? new CompactContactSet()
+                : new ConcurrentSkipListSet<>(Contact.KEY_ORDER);
     }
 
     public String getName() {
@@ -27,20 +84,133 @@ public class AddressBook {
     }
 
     public void setContacts(Set<Contact> contacts) {
-        this.contacts = contacts;
+        Set<Contact> copy = this.contacts instanceof CompactContactSet
+                ? new CompactContactSet()
+                : new ConcurrentSkipListSet<>(Contact.KEY_ORDER);
+        copy.addAll(contacts);
+        this.contacts = copy;
+        this.contactCount.set(copy.size());
+        this.encodedContacts = null;
+        this.changeLog.reset(version);
     }
 
-    public Boolean addContact(Contact contact) {
-        contacts.add(contact);
+    /**
+     * @return true if the contact was not already in this book
+     */
+    public boolean addContact(Contact contact) {
+        if (!contacts.add(contact)) return false;
+
+        contactCount.incrementAndGet();
+        encodedContacts = null;
         return true;
     }
 
     public boolean removeContact(Contact contact) {
-        if (contacts.contains(contact)) {
-            contacts.remove(contact);
-            return true;
+        if (!contacts.remove(contact)) return false;
+
+        contactCount.decrementAndGet();
+        encodedContacts = null;
+        return true;
+    }
+
+    /**
+     * Replaces {@code oldContact} with {@code newContact}, leaving the count unchanged. Compact books swap the
+     * packed key under one lock; skip-list books add the new contact before removing the old, so a concurrent
+     * reader may briefly see both but never neither. Callers hold the owning user's lock.
+     */
+    public UpdateResult replaceContact(Contact oldContact, Contact newContact) {
+        UpdateResult result;
+        if (contacts instanceof CompactContactSet compact) {
+            result = compact.replace(oldContact, newContact);
+        } else if (!contacts.contains(oldContact)) {
+            result = UpdateResult.NOT_FOUND;
+        } else if (!contacts.add(newContact)) {
+            result = UpdateResult.DUPLICATE;
+        } else {
+            contacts.remove(oldContact);
+            result = UpdateResult.UPDATED;
         }
-        return false;
+        if (result == UpdateResult.UPDATED) encodedContacts = null;
+        return result;
+    }
+
+    /**
+     * Number of contacts in this book, in constant time.
+     */
+    public int contactCount() {
+        return contactCount.get();
+    }
+
+    /**
+     * Version of this book's contents: it grows with every change and is never reused by a book recreated
+     * under the same name. Read it before the contacts, so that what is read is at least this version.
+     */
+    public long version() {
+        return version;
+    }
+
+    void setVersion(long version) {
+        this.version = version;
+    }
+
+    /**
+     * The contacts as encoded by {@code encoder}, which is called on the first read after a change; later reads
+     * at the same {@link #version()} share the result, compressed form included. Like any read that follows the
+     * version, the bytes are at least as new as the version they are kept under.
+     */
+    public EncodedContacts encodedContacts(Function<Set<Contact>, byte[]> encoder) {
+        long current = version;
+        EncodedContacts encoded = encodedContacts;
+        if (encoded != null && encoded.version == current) return encoded;
+
+        // Concurrent first reads may each encode; the last to finish is kept.
+        encoded = new EncodedContacts(current, encoder.apply(contacts));
+        encodedContacts = encoded;
+        return encoded;
+    }
+
+    public ChangeLog changeLog() {
+        return changeLog;
     }
-}
 
+    /**
+     * Contacts strictly after {@code cursor} in {@link Contact#KEY_ORDER}, or all contacts when it is null.
+     */
+    public Iterable<Contact> contactsAfter(Contact cursor) {
+        if (contacts instanceof CompactContactSet compact) return compact.contactsAfter(cursor);
+
+        NavigableSet<Contact> sorted = (NavigableSet<Contact>) contacts;
+        return cursor == null ? sorted : sorted.tailSet(cursor, false);
+    }
+
+    /**
+     * Contacts with exactly this phone number, in no particular order.
+     */
+    public List<Contact> findByPhone(String phone) {
+        if (contacts instanceof CompactContactSet compact) return compact.findByPhone(phone);
+
+        List<Contact> matches = new ArrayList<>(2);
+        for (Contact contact : ((NavigableSet<Contact>) contacts).tailSet(new Contact(null, phone), true)) {
+            if (!Objects.equals(phone, contact.getPhone())) break;
+            matches.add(contact);
+        }
+        return matches;
+    }
+
+    /**
+     * Contacts whose name, lower-cased in {@link Locale#ROOT}, starts with {@code foldedPrefix}, in no
+     * particular order; scans the whole book.
+     */
+    public List<Contact> findByNamePrefix(String foldedPrefix) {
+        if (contacts instanceof CompactContactSet compact) return compact.findByNamePrefix(foldedPrefix);
+
+        List<Contact> matches = new ArrayList<>();
+        for (Contact contact : contacts) {
+            String contactName = contact.getName();
+            if (contactName != null && contactName.toLowerCase(Locale.ROOT).startsWith(foldedPrefix)) {
+                matches.add(contact);
+            }
+        }
+        return matches;
+    }
+}
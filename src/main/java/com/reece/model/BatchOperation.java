@@ -0,0 +1,43 @@
+package com.reece.model;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * One step of a {@link BatchRequest}. {@code contact} is the contact to add or remove, or the old contact
+ * of an update; {@code newContact} is used by updates only.
+ */
+@Setter
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchOperation {
+
+    @NotNull(message = "Operation type is required")
+    private Type type;
+
+    @NotBlank(message = "Address book name is required")
+    private String addressBook;
+
+    @Valid
+    private Contact contact;
+
+    @Valid
+    private Contact newContact;
+
+    public enum Type {
+        CREATE_BOOK,
+        REMOVE_BOOK,
+        ADD_CONTACT,
+        REMOVE_CONTACT,
+        UPDATE_CONTACT
+    }
+}
@@ -0,0 +1,25 @@
+package com.reece.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Setter
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchOperationResult {
+    private int index;
+    private Status status;
+
+    public enum Status {
+        APPLIED,
+        NOT_FOUND,
+        DUPLICATE,
+        // Applied, then undone because a later operation of an atomic batch failed
+        ROLLED_BACK,
+        // Not attempted because an earlier operation of an atomic batch failed
+        SKIPPED
+    }
+}
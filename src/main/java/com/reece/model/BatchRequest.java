@@ -0,0 +1,33 @@
+package com.reece.model;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Operations applied in order for one user. When {@code atomic} is set, the first operation that fails
+ * undoes every operation before it.
+ */
+@Setter
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchRequest {
+
+    public static final int MAX_OPERATIONS = 1000;
+
+    private boolean atomic;
+
+    @NotEmpty(message = "At least one operation is required")
+    @Size(max = MAX_OPERATIONS, message = "At most " + MAX_OPERATIONS + " operations per batch")
+    private List<@Valid BatchOperation> operations;
+}
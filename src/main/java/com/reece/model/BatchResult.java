@@ -0,0 +1,46 @@
+package com.reece.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Outcome of a batch: one result per operation, in request order.
+ */
+@Setter
+@Getter
+@NoArgsConstructor
+public class BatchResult {
+    private int applied;
+    private int failed;
+    private boolean rolledBack;
+    private List<BatchOperationResult> results = new ArrayList<>();
+
+    public void record(int index, BatchOperationResult.Status status) {
+        if (status == BatchOperationResult.Status.APPLIED) {
+            applied++;
+        } else {
+            failed++;
+        }
+        results.add(new BatchOperationResult(index, status));
+    }
+
+    /**
+     * Marks every applied operation as rolled back and the operations after {@code failedIndex} as skipped.
+     */
+    public void rollBack(int failedIndex, int operationCount) {
+        for (BatchOperationResult result : results) {
+            if (result.getStatus() == BatchOperationResult.Status.APPLIED) {
+                result.setStatus(BatchOperationResult.Status.ROLLED_BACK);
+            }
+        }
+        applied = 0;
+        for (int index = failedIndex + 1; index < operationCount; index++) {
+            results.add(new BatchOperationResult(index, BatchOperationResult.Status.SKIPPED));
+        }
+        rolledBack = true;
+    }
+}
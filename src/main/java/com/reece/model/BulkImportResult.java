@@ -0,0 +1,40 @@
+package com.reece.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Outcome of a bulk contact import. Counts cover every item received; {@code results} lists only
+ * the items that were not added, by their zero-based position in the request body.
+ */
+@Setter
+@Getter
+@NoArgsConstructor
+public class BulkImportResult {
+    private int received;
+    private int added;
+    private int duplicates;
+    private int rejected;
+    private List<BulkItemResult> results = new ArrayList<>();
+
+    public void recordAdded() {
+        received++;
+        added++;
+    }
+
+    public void recordDuplicate(int index) {
+        received++;
+        duplicates++;
+        results.add(new BulkItemResult(index, BulkItemResult.Status.DUPLICATE, "Contact already exists"));
+    }
+
+    public void recordRejected(int index, String message) {
+        received++;
+        rejected++;
+        results.add(new BulkItemResult(index, BulkItemResult.Status.REJECTED, message));
+    }
+}
@@ -0,0 +1,22 @@
+package com.reece.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Setter
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkItemResult {
+    private int index;
+    private Status status;
+    private String message;
+
+    public enum Status {
+        ADDED,
+        DUPLICATE,
+        REJECTED
+    }
+}
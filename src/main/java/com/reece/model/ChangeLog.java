@@ -0,0 +1,64 @@
+package com.reece.model;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+/**
+ * The most recent {@link #CAPACITY} changes of one book, or the book removals of one user, in version order.
+ * <p>
+ * Appends happen under the owning user's lock, before the version they carry is published, so a reader that
+ * has read a version finds every entry up to it without locking. When the log is full the oldest entry is
+ * dropped, and the floor rises to its version first: changes after the floor are always all present.
+ */
+public class ChangeLog {
+
+    public static final int CAPACITY = 1000;
+
+    private final ConcurrentLinkedDeque<ContactChange> entries = new ConcurrentLinkedDeque<>();
+    // Only touched by writers, under the user's lock; the deque's own size() is linear.
+    private int size;
+    private volatile long floor;
+
+    void append(ContactChange change) {
+        entries.addLast(change);
+        if (++size > CAPACITY) {
+            floor = entries.getFirst().getVersion();
+            entries.removeFirst();
+            size--;
+        }
+    }
+
+    /**
+     * Forgets every entry; changes up to {@code version} are no longer known.
+     */
+    void reset(long version) {
+        floor = version;
+        entries.clear();
+        size = 0;
+    }
+
+    /**
+     * Appends the entries with {@code since < version <= upTo} to {@code out}, oldest first.
+     *
+     * @return false, leaving {@code out} as it was, if entries after {@code since} have been dropped
+     */
+    public boolean changesSince(long since, long upTo, List<ContactChange> out) {
+        if (since < floor) return false;
+
+        int start = out.size();
+        for (Iterator<ContactChange> newestFirst = entries.descendingIterator(); newestFirst.hasNext(); ) {
+            ContactChange change = newestFirst.next();
+            if (change.getVersion() <= since) break;
+            if (change.getVersion() <= upTo) out.add(change);
+        }
+        // Re-checked after reading: an entry dropped under us raised the floor before it went.
+        if (since < floor) {
+            out.subList(start, out.size()).clear();
+            return false;
+        }
+        Collections.reverse(out.subList(start, out.size()));
+        return true;
+    }
+}
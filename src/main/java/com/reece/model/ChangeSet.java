@@ -0,0 +1,35 @@
+package com.reece.model;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Answer to a "changes since" request. Either {@code changes} lists every change after the client's
+ * token, oldest first, or, when the token is unknown or older than the change log reaches back,
+ * {@code snapshot} is true and {@code books} holds the full contents of every book asked about.
+ * Either way the client sends {@code token} next time.
+ */
+@Setter
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChangeSet {
+    private String token;
+    private boolean snapshot;
+    private List<ContactChange> changes;
+    private Map<String, Collection<Contact>> books;
+
+    public static ChangeSet delta(String token, List<ContactChange> changes) {
+        return new ChangeSet(token, false, changes, null);
+    }
+
+    public static ChangeSet snapshot(String token, Map<String, Collection<Contact>> books) {
+        return new ChangeSet(token, true, null, books);
+    }
+}
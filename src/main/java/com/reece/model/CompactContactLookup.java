@@ -0,0 +1,154 @@
+package com.reece.model;
+
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * {@link ContactLookup} for {@link ContactStorage#COMPACT} users, which keeps no state of its own so that
+ * no {@link Contact} objects stay on the heap. Unique contacts are a merge of the books' ordered contacts
+ * with duplicates dropped, and searches ask each book, so reads cost time in proportion to the books.
+ */
+public class CompactContactLookup implements ContactLookup {
+
+    private final Supplier<Collection<AddressBook>> books;
+
+    private final Set<Contact> uniqueContacts = new AbstractSet<>() {
+        @Override
+        public Iterator<Contact> iterator() {
+            return uniqueContactsAfter(null).iterator();
+        }
+
+        @Override
+        public int size() {
+            int size = 0;
+            for (Iterator<Contact> iterator = iterator(); iterator.hasNext(); iterator.next()) {
+                size++;
+            }
+            return size;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return books.get().stream().anyMatch(book -> book.getContacts().contains(o));
+        }
+    };
+
+    public CompactContactLookup(Supplier<Collection<AddressBook>> books) {
+        this.books = books;
+    }
+
+    // Mutations are already reflected in the books, which every query reads.
+    @Override
+    public void add(Contact contact) {
+    }
+
+    @Override
+    public void addAll(Collection<Contact> contacts) {
+    }
+
+    @Override
+    public void remove(Contact contact) {
+    }
+
+    @Override
+    public void removeAll(Collection<Contact> contacts) {
+    }
+
+    @Override
+    public void clear() {
+    }
+
+    /**
+     * Live view; {@code size()} walks every book.
+     */
+    @Override
+    public Set<Contact> uniqueContacts() {
+        return uniqueContacts;
+    }
+
+    @Override
+    public Iterable<Contact> uniqueContactsAfter(Contact cursor) {
+        return () -> {
+            PriorityQueue<Head> heads = new PriorityQueue<>();
+            for (AddressBook book : books.get()) {
+                Head.push(heads, book.contactsAfter(cursor).iterator());
+            }
+            return new DistinctMergeIterator(heads);
+        };
+    }
+
+    @Override
+    public Set<Contact> findByPhone(String phone) {
+        Set<Contact> matches = new TreeSet<>(Contact.KEY_ORDER);
+        for (AddressBook book : books.get()) {
+            matches.addAll(book.findByPhone(phone));
+        }
+        return Collections.unmodifiableSet(matches);
+    }
+
+    @Override
+    public List<Contact> findByNamePrefix(String prefix, Predicate<Contact> filter, int limit) {
+        String foldedPrefix = prefix.toLowerCase(Locale.ROOT);
+        NavigableMap<String, Contact> matches = new TreeMap<>();
+        for (AddressBook book : books.get()) {
+            for (Contact contact : book.findByNamePrefix(foldedPrefix)) {
+                matches.putIfAbsent(ContactIndex.nameKey(contact), contact);
+            }
+        }
+        return matches.values().stream().filter(filter).limit(limit).toList();
+    }
+
+    private record Head(Contact contact, Iterator<Contact> rest) implements Comparable<Head> {
+
+        static void push(PriorityQueue<Head> heads, Iterator<Contact> iterator) {
+            if (iterator.hasNext()) {
+                heads.add(new Head(iterator.next(), iterator));
+            }
+        }
+
+        @Override
+        public int compareTo(Head other) {
+            return Contact.KEY_ORDER.compare(contact, other.contact);
+        }
+    }
+
+    /**
+     * K-way merge of ordered iterators that emits each contact once however many books hold it.
+     */
+    private static final class DistinctMergeIterator implements Iterator<Contact> {
+        private final PriorityQueue<Head> heads;
+
+        DistinctMergeIterator(PriorityQueue<Head> heads) {
+            this.heads = heads;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public Contact next() {
+            Head head = heads.poll();
+            if (head == null) throw new NoSuchElementException();
+
+            Head.push(heads, head.rest());
+            while (!heads.isEmpty() && heads.peek().compareTo(head) == 0) {
+                Head.push(heads, heads.poll().rest());
+            }
+            return head.contact();
+        }
+    }
+}
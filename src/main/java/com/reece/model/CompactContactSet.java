@@ -0,0 +1,719 @@
+package com.reece.model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Heap-compact contact set for {@link ContactStorage#COMPACT} address books.
+ * <p>
+ * A contact with a ten-digit phone is one {@code long}: the phone in the high 34 bits and a name id in the
+ * low 30, held in an open-addressing table with linear probing. Slots are chosen by phone alone, so every
+ * contact sharing a number sits on one probe run. Each distinct name is stored once as UTF-8 in a byte
+ * arena and shared by every contact that uses it. {@link Contact} objects exist only while iterating or
+ * searching. Contacts whose phone is not exactly ten ASCII digits are kept as objects in an overflow set.
+ * <p>
+ * Iteration follows {@link Contact#KEY_ORDER}: a snapshot of the packed keys is sorted as primitives and
+ * contacts are created lazily, one phone at a time, so a page touches only its own contacts.
+ * <p>
+ * Writers must hold the owning user's lock. Readers never block on it; they validate optimistic reads
+ * against a {@link StampedLock}, or briefly take its read lock to copy the live keys. Name bytes are only
+ * ever appended or moved to new arrays, so a snapshot stays readable after later writes.
+ */
+public final class CompactContactSet extends AbstractSet<Contact> {
+
+    private static final int NAME_BITS = 30;
+    private static final long NAME_MASK = (1L << NAME_BITS) - 1;
+    private static final int NULL_NAME = (int) NAME_MASK;
+    // Both have all 34 phone bits set, above any ten-digit number, so they never equal a packed contact.
+    private static final long EMPTY = -1L;
+    private static final long REMOVED = -2L;
+    private static final int PHONE_DIGITS = 10;
+    private static final int MIN_CAPACITY = 16;
+
+    private final StampedLock lock = new StampedLock();
+    private final NavigableSet<Contact> overflow = new ConcurrentSkipListSet<>(Contact.KEY_ORDER);
+
+    private NameArena names = new NameArena(MIN_CAPACITY);
+    private long[] keys = emptyTable(MIN_CAPACITY);
+    private volatile int packedSize;
+    // Live keys plus tombstones; kept below three quarters of the table so probes always reach an empty slot.
+    private int occupied;
+
+    @Override
+    public int size() {
+        return packedSize + overflow.size();
+    }
+
+    @Override
+    public boolean add(Contact contact) {
+        long phone = packPhone(contact.getPhone());
+        if (phone < 0) return overflow.add(contact);
+
+        byte[] name = encode(contact.getName());
+        long stamp = lock.writeLock();
+        try {
+            if (containsPacked(phone, name)) return false;
+
+            insertPacked(phone, name);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (!(o instanceof Contact contact)) return false;
+
+        long phone = packPhone(contact.getPhone());
+        if (phone < 0) return overflow.remove(contact);
+
+        byte[] name = encode(contact.getName());
+        long stamp = lock.writeLock();
+        try {
+            int nameId = names.find(name);
+            if (nameId < 0) return false;
+
+            int index = indexOf(keys, pack(phone, nameId));
+            if (index < 0) return false;
+
+            removePacked(index, nameId);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Replaces {@code oldContact} with {@code newContact} under a single write lock, so readers see one or the
+     * other, never neither. When the phone number is unchanged the new key is written into the old key's slot.
+     */
+    UpdateResult replace(Contact oldContact, Contact newContact) {
+        long oldPhone = packPhone(oldContact.getPhone());
+        long newPhone = packPhone(newContact.getPhone());
+        byte[] oldName = oldPhone < 0 ? null : encode(oldContact.getName());
+        byte[] newName = newPhone < 0 ? null : encode(newContact.getName());
+        long stamp = lock.writeLock();
+        try {
+            int oldNameId = oldPhone < 0 ? -1 : names.find(oldName);
+            int oldIndex = oldNameId < 0 ? -1 : indexOf(keys, pack(oldPhone, oldNameId));
+            if (oldPhone < 0 ? !overflow.contains(oldContact) : oldIndex < 0) return UpdateResult.NOT_FOUND;
+            if (newPhone < 0 ? overflow.contains(newContact) : containsPacked(newPhone, newName)) {
+                return UpdateResult.DUPLICATE;
+            }
+
+            if (oldPhone >= 0 && oldPhone == newPhone) {
+                // Same phone, same probe run: overwrite the slot in place.
+                int newNameId = names.find(newName);
+                if (newNameId < 0) {
+                    newNameId = names.add(newName);
+                }
+                names.retain(newNameId);
+                keys[oldIndex] = pack(newPhone, newNameId);
+                if (names.release(oldNameId)) {
+                    compactNames();
+                }
+                return UpdateResult.UPDATED;
+            }
+
+            // The overflow set is read without the lock, so the new contact goes in before the old comes out.
+            if (newPhone < 0) {
+                overflow.add(newContact);
+            }
+            if (oldPhone < 0) {
+                overflow.remove(oldContact);
+            } else {
+                removePacked(oldIndex, oldNameId);
+            }
+            if (newPhone >= 0) {
+                insertPacked(newPhone, newName);
+            }
+            return UpdateResult.UPDATED;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof Contact contact)) return false;
+
+        long phone = packPhone(contact.getPhone());
+        if (phone < 0) return overflow.contains(contact);
+
+        byte[] name = encode(contact.getName());
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                boolean found = containsPacked(phone, name);
+                if (lock.validate(stamp)) return found;
+            } catch (RuntimeException e) {
+                // Read a table mid-rebuild; retried below under the read lock.
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return containsPacked(phone, name);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public Iterator<Contact> iterator() {
+        return contactsAfter(null).iterator();
+    }
+
+    /**
+     * Contacts strictly after {@code cursor} in {@link Contact#KEY_ORDER}, or all of them when it is null,
+     * created lazily from a snapshot taken when iteration starts.
+     */
+    public Iterable<Contact> contactsAfter(Contact cursor) {
+        return () -> {
+            Iterator<Contact> packed = new PackedIterator(snapshot(), cursor);
+            if (overflow.isEmpty()) return packed;
+
+            NavigableSet<Contact> others = cursor == null ? overflow : overflow.tailSet(cursor, false);
+            return new MergingIterator(packed, others.iterator());
+        };
+    }
+
+    /**
+     * Contacts with exactly this phone number, in no particular order.
+     */
+    public List<Contact> findByPhone(String phone) {
+        long packedPhone = packPhone(phone);
+        if (packedPhone < 0) {
+            List<Contact> matches = new ArrayList<>();
+            for (Contact contact : overflow.tailSet(new Contact(null, phone), true)) {
+                if (!Objects.equals(phone, contact.getPhone())) break;
+                matches.add(contact);
+            }
+            return matches;
+        }
+
+        long stamp = lock.readLock();
+        try {
+            List<Contact> matches = new ArrayList<>(2);
+            long[] table = keys;
+            int mask = table.length - 1;
+            for (int slot = slot(packedPhone, mask); table[slot] != EMPTY; slot = (slot + 1) & mask) {
+                long key = table[slot];
+                if (key != REMOVED && phoneOf(key) == packedPhone) {
+                    matches.add(new Contact(names.name(nameOf(key)), phone));
+                }
+            }
+            return matches;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Contacts whose name, lower-cased in {@link Locale#ROOT}, starts with {@code foldedPrefix}, in no
+     * particular order. Checks each distinct name once, then scans the packed keys.
+     */
+    public List<Contact> findByNamePrefix(String foldedPrefix) {
+        List<Contact> matches = new ArrayList<>();
+        long stamp = lock.readLock();
+        try {
+            boolean[] matchingNames = names.matchingPrefix(foldedPrefix);
+            for (long key : keys) {
+                if (key == EMPTY || key == REMOVED) continue;
+
+                int nameId = nameOf(key);
+                if (nameId != NULL_NAME && matchingNames[nameId]) {
+                    matches.add(new Contact(names.name(nameId), formatPhone(phoneOf(key))));
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        for (Contact contact : overflow) {
+            String name = contact.getName();
+            if (name != null && name.toLowerCase(Locale.ROOT).startsWith(foldedPrefix)) {
+                matches.add(contact);
+            }
+        }
+        return matches;
+    }
+
+    private boolean containsPacked(long phone, byte[] name) {
+        int nameId = names.find(name);
+        return nameId >= 0 && indexOf(keys, pack(phone, nameId)) >= 0;
+    }
+
+    private Snapshot snapshot() {
+        long stamp = lock.readLock();
+        try {
+            long[] live = new long[packedSize];
+            int count = 0;
+            for (long key : keys) {
+                if (key != EMPTY && key != REMOVED) {
+                    // Flipping the sign bit makes a signed sort order the keys as unsigned, i.e. by phone.
+                    live[count++] = key ^ Long.MIN_VALUE;
+                }
+            }
+            Arrays.sort(live, 0, count);
+            for (int i = 0; i < count; i++) {
+                live[i] ^= Long.MIN_VALUE;
+            }
+            return new Snapshot(live, count, names.arena, names.starts);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // Callers hold the write lock and have checked the contact is absent.
+    private void insertPacked(long phone, byte[] name) {
+        int nameId = names.find(name);
+        if (nameId < 0) {
+            nameId = names.add(name);
+        }
+        names.retain(nameId);
+        insert(pack(phone, nameId));
+        packedSize++;
+    }
+
+    // Callers hold the write lock.
+    private void removePacked(int index, int nameId) {
+        keys[index] = REMOVED;
+        packedSize--;
+        if (names.release(nameId)) {
+            compactNames();
+        }
+    }
+
+    private void insert(long key) {
+        if ((occupied + 1) * 4L > keys.length * 3L) {
+            // Mostly tombstones: rebuild at the same size; otherwise grow.
+            rehash(packedSize * 2 < occupied ? keys.length : keys.length * 2);
+        }
+        long[] table = keys;
+        int mask = table.length - 1;
+        int slot = slot(phoneOf(key), mask);
+        while (table[slot] != EMPTY && table[slot] != REMOVED) {
+            slot = (slot + 1) & mask;
+        }
+        if (table[slot] == EMPTY) {
+            occupied++;
+        }
+        table[slot] = key;
+    }
+
+    private void rehash(int capacity) {
+        long[] rebuilt = emptyTable(capacity);
+        int mask = capacity - 1;
+        for (long key : keys) {
+            if (key == EMPTY || key == REMOVED) continue;
+
+            int slot = slot(phoneOf(key), mask);
+            while (rebuilt[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            rebuilt[slot] = key;
+        }
+        keys = rebuilt;
+        occupied = packedSize;
+    }
+
+    // Drops the bytes of names no contact uses any more, renumbering the names still in use.
+    private void compactNames() {
+        NameArena compacted = new NameArena(Math.max(MIN_CAPACITY, names.liveCount() * 2));
+        int[] renumbered = new int[names.count];
+        Arrays.fill(renumbered, -1);
+        long[] table = keys;
+        for (int slot = 0; slot < table.length; slot++) {
+            long key = table[slot];
+            if (key == EMPTY || key == REMOVED || nameOf(key) == NULL_NAME) continue;
+
+            int nameId = nameOf(key);
+            if (renumbered[nameId] < 0) {
+                renumbered[nameId] = compacted.add(names.bytes(nameId));
+            }
+            compacted.retain(renumbered[nameId]);
+            table[slot] = pack(phoneOf(key), renumbered[nameId]);
+        }
+        names = compacted;
+    }
+
+    private static int indexOf(long[] table, long key) {
+        int mask = table.length - 1;
+        for (int slot = slot(phoneOf(key), mask); table[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (table[slot] == key) return slot;
+        }
+        return -1;
+    }
+
+    private static int slot(long phone, int mask) {
+        long hash = phone * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private static long[] emptyTable(int capacity) {
+        long[] table = new long[capacity];
+        Arrays.fill(table, EMPTY);
+        return table;
+    }
+
+    private static long pack(long phone, int nameId) {
+        return phone << NAME_BITS | nameId;
+    }
+
+    private static long phoneOf(long key) {
+        return key >>> NAME_BITS;
+    }
+
+    private static int nameOf(long key) {
+        return (int) (key & NAME_MASK);
+    }
+
+    /**
+     * @return the phone as a number, or -1 unless it is exactly ten ASCII digits
+     */
+    static long packPhone(String phone) {
+        if (phone == null || phone.length() != PHONE_DIGITS) return -1;
+
+        long value = 0;
+        for (int i = 0; i < PHONE_DIGITS; i++) {
+            char digit = phone.charAt(i);
+            if (digit < '0' || digit > '9') return -1;
+            value = value * 10 + (digit - '0');
+        }
+        return value;
+    }
+
+    static String formatPhone(long phone) {
+        byte[] digits = new byte[PHONE_DIGITS];
+        for (int i = PHONE_DIGITS - 1; i >= 0; i--) {
+            digits[i] = (byte) ('0' + phone % 10);
+            phone /= 10;
+        }
+        return new String(digits, StandardCharsets.ISO_8859_1);
+    }
+
+    private static byte[] encode(String name) {
+        return name == null ? null : name.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Sorted packed keys and the name arrays they refer to, as of one moment. Later writes only append past
+     * these names or replace the arrays, so the snapshot never needs the lock again.
+     */
+    private record Snapshot(long[] keys, int size, byte[] arena, int[] starts) {
+
+        String name(int id) {
+            return id == NULL_NAME ? null : NameArena.decode(arena, starts[id]);
+        }
+    }
+
+    /**
+     * Walks a snapshot in {@link Contact#KEY_ORDER}, creating the contacts of one phone number at a time.
+     */
+    private static final class PackedIterator implements Iterator<Contact> {
+        private final Snapshot snapshot;
+        private final Contact after;
+        private final List<Contact> run = new ArrayList<>(2);
+        private int position;
+        private int runIndex;
+
+        PackedIterator(Snapshot snapshot, Contact after) {
+            this.snapshot = snapshot;
+            this.after = after;
+            long afterPhone = after == null ? -1 : packPhone(after.getPhone());
+            this.position = afterPhone < 0 ? 0 : firstWithPhone(afterPhone);
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (runIndex == run.size()) {
+                if (position == snapshot.size()) return false;
+                loadRun();
+            }
+            return true;
+        }
+
+        @Override
+        public Contact next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            return run.get(runIndex++);
+        }
+
+        private void loadRun() {
+            run.clear();
+            runIndex = 0;
+            long[] keys = snapshot.keys();
+            long phone = phoneOf(keys[position]);
+            int end = position;
+            while (end < snapshot.size() && phoneOf(keys[end]) == phone) {
+                end++;
+            }
+
+            String phoneText = formatPhone(phone);
+            int order = after == null ? 1 : compareNullsFirst(phoneText, after.getPhone());
+            if (order >= 0) {
+                for (int i = position; i < end; i++) {
+                    Contact contact = new Contact(snapshot.name(nameOf(keys[i])), phoneText);
+                    if (order > 0 || Contact.KEY_ORDER.compare(contact, after) > 0) {
+                        run.add(contact);
+                    }
+                }
+                run.sort(Contact.KEY_ORDER);
+            }
+            position = end;
+        }
+
+        private int firstWithPhone(long phone) {
+            long[] keys = snapshot.keys();
+            long target = pack(phone, 0);
+            int low = 0;
+            int high = snapshot.size();
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (Long.compareUnsigned(keys[mid], target) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private static int compareNullsFirst(String a, String b) {
+            if (a == null || b == null) return a == null ? (b == null ? 0 : -1) : 1;
+            return a.compareTo(b);
+        }
+    }
+
+    /**
+     * Merges two iterators that are each in {@link Contact#KEY_ORDER}.
+     */
+    private static final class MergingIterator implements Iterator<Contact> {
+        private final Iterator<Contact> left;
+        private final Iterator<Contact> right;
+        private Contact nextLeft;
+        private Contact nextRight;
+
+        MergingIterator(Iterator<Contact> left, Iterator<Contact> right) {
+            this.left = left;
+            this.right = right;
+            this.nextLeft = left.hasNext() ? left.next() : null;
+            this.nextRight = right.hasNext() ? right.next() : null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextLeft != null || nextRight != null;
+        }
+
+        @Override
+        public Contact next() {
+            if (!hasNext()) throw new NoSuchElementException();
+
+            Contact result;
+            if (nextRight == null || (nextLeft != null && Contact.KEY_ORDER.compare(nextLeft, nextRight) <= 0)) {
+                result = nextLeft;
+                nextLeft = left.hasNext() ? left.next() : null;
+            } else {
+                result = nextRight;
+                nextRight = right.hasNext() ? right.next() : null;
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Distinct names of one set as length-prefixed UTF-8 in a single byte array, numbered in the order they
+     * were added, with an open-addressing table over the ids for lookup by content. A name no contact uses
+     * keeps its id until there are more unused bytes than used ones and the set renumbers into a new arena.
+     */
+    private static final class NameArena {
+        private static final int MIN_GARBAGE_BYTES = 4096;
+
+        private byte[] arena = new byte[256];
+        private int arenaLength;
+        private int[] starts;
+        private int[] refs;
+        private int count;
+        // Name id + 1 per slot, 0 when empty; at most half full.
+        private int[] table;
+        private long liveBytes;
+        private long deadBytes;
+
+        NameArena(int capacity) {
+            starts = new int[capacity];
+            refs = new int[capacity];
+            table = new int[Integer.highestOneBit(capacity * 2 - 1) * 2];
+        }
+
+        /**
+         * @return the id of this name, {@link #NULL_NAME} for null, or -1 if it has never been added
+         */
+        int find(byte[] name) {
+            if (name == null) return NULL_NAME;
+
+            int[] ids = table;
+            int mask = ids.length - 1;
+            for (int slot = hash(name) & mask; ids[slot] != 0; slot = (slot + 1) & mask) {
+                int id = ids[slot] - 1;
+                if (sameBytes(id, name)) return id;
+            }
+            return -1;
+        }
+
+        int add(byte[] name) {
+            if (count == NULL_NAME) throw new IllegalStateException("Too many distinct names in one address book");
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+                refs = Arrays.copyOf(refs, count * 2);
+            }
+            if ((count + 1) * 2 > table.length) {
+                rehash(table.length * 2);
+            }
+            int size = varIntSize(name.length) + name.length;
+            if (arenaLength + size > arena.length) {
+                arena = Arrays.copyOf(arena, Math.max(arena.length * 2, arenaLength + size));
+            }
+            int id = count;
+            starts[id] = arenaLength;
+            int offset = writeVarInt(arena, arenaLength, name.length);
+            System.arraycopy(name, 0, arena, offset, name.length);
+            arenaLength += size;
+            deadBytes += size;
+            count++;
+
+            int mask = table.length - 1;
+            int slot = hash(name) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = id + 1;
+            return id;
+        }
+
+        void retain(int id) {
+            if (id == NULL_NAME) return;
+
+            if (refs[id]++ == 0) {
+                int size = entrySize(id);
+                deadBytes -= size;
+                liveBytes += size;
+            }
+        }
+
+        /**
+         * @return true once unused names take more space than used ones and are worth compacting away
+         */
+        boolean release(int id) {
+            if (id == NULL_NAME) return false;
+
+            if (--refs[id] == 0) {
+                int size = entrySize(id);
+                liveBytes -= size;
+                deadBytes += size;
+            }
+            return deadBytes > MIN_GARBAGE_BYTES && deadBytes > liveBytes;
+        }
+
+        int liveCount() {
+            int live = 0;
+            for (int i = 0; i < count; i++) {
+                if (refs[i] > 0) live++;
+            }
+            return live;
+        }
+
+        String name(int id) {
+            return id == NULL_NAME ? null : decode(arena, starts[id]);
+        }
+
+        static String decode(byte[] arena, int start) {
+            int length = readVarInt(arena, start);
+            return new String(arena, start + varIntSize(length), length, StandardCharsets.UTF_8);
+        }
+
+        byte[] bytes(int id) {
+            int start = starts[id];
+            int length = readVarInt(arena, start);
+            int offset = start + varIntSize(length);
+            return Arrays.copyOfRange(arena, offset, offset + length);
+        }
+
+        /**
+         * @return for each id, whether its name is in use and starts with the prefix once lower-cased
+         */
+        boolean[] matchingPrefix(String foldedPrefix) {
+            boolean[] matching = new boolean[count];
+            for (int id = 0; id < count; id++) {
+                matching[id] = refs[id] > 0 && name(id).toLowerCase(Locale.ROOT).startsWith(foldedPrefix);
+            }
+            return matching;
+        }
+
+        private boolean sameBytes(int id, byte[] name) {
+            int start = starts[id];
+            int length = readVarInt(arena, start);
+            int offset = start + varIntSize(length);
+            return length == name.length && Arrays.equals(arena, offset, offset + length, name, 0, length);
+        }
+
+        private int entrySize(int id) {
+            int length = readVarInt(arena, starts[id]);
+            return varIntSize(length) + length;
+        }
+
+        private void rehash(int capacity) {
+            int[] rebuilt = new int[capacity];
+            int mask = capacity - 1;
+            for (int id = 0; id < count; id++) {
+                int slot = hash(bytes(id)) & mask;
+                while (rebuilt[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                rebuilt[slot] = id + 1;
+            }
+            table = rebuilt;
+        }
+
+        private static int hash(byte[] name) {
+            int hash = Arrays.hashCode(name) * 0x9E3779B9;
+            return hash ^ (hash >>> 16);
+        }
+
+        private static int varIntSize(int value) {
+            int size = 1;
+            while ((value >>>= 7) != 0) {
+                size++;
+            }
+            return size;
+        }
+
+        private static int writeVarInt(byte[] target, int offset, int value) {
+            while ((value & ~0x7F) != 0) {
+                target[offset++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            target[offset++] = (byte) value;
+            return offset;
+        }
+
+        private static int readVarInt(byte[] source, int offset) {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = source[offset++];
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) return value;
+            }
+        }
+    }
+}
@@ -10,6 +10,7 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+import java.util.Comparator;
 import java.util.Objects;
 
 @Setter
@@ -19,6 +20,13 @@ import java.util.Objects;
 @AllArgsConstructor
 public class Contact {
 
+    /**
+     * Stable ordering used by sorted contact sets and page cursors: by phone, then by name.
+     */
+    public static final Comparator<Contact> KEY_ORDER = Comparator
+            .comparing(Contact::getPhone, Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+            .thenComparing(Contact::getName, Comparator.nullsFirst(Comparator.<String>naturalOrder()));
+
     @NotBlank(message = "Name cannot be empty")
     @Size(min = 2, max = 100, message = "Name must be between 2 and 100 characters")
     private String name;
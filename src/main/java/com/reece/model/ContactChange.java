@@ -0,0 +1,31 @@
+package com.reece.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * One entry of a {@link ChangeLog}: what happened to a book at a given version of its user.
+ * {@code previousContact} is set only for {@link Type#UPDATED}; neither contact is set for book events.
+ */
+@Setter
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ContactChange {
+    private long version;
+    private Type type;
+    private String addressBook;
+    private Contact contact;
+    private Contact previousContact;
+
+    public enum Type {
+        // The book starts out empty at this version; anything a client held under its name is gone.
+        BOOK_CREATED,
+        ADDED,
+        REMOVED,
+        UPDATED,
+        BOOK_REMOVED
+    }
+}
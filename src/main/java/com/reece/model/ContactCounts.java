@@ -0,0 +1,21 @@
+package com.reece.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Contact totals across one user's address books. {@code contacts} counts a contact once per book holding
+ * it, {@code uniqueContacts} once overall, and {@code duplicatedContacts} counts those held by two or more books.
+ */
+@Setter
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ContactCounts {
+    private int addressBooks;
+    private long contacts;
+    private long uniqueContacts;
+    private long duplicatedContacts;
+}
@@ -0,0 +1,120 @@
+package com.reece.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Predicate;
+
+/**
+ * Reference-counted set of the distinct contacts held across all of a user's address books.
+ * <p>
+ * Each contact maps to the number of books that currently contain it, so the unique-contacts view
+ * is maintained incrementally instead of being rebuilt from every book on each read. The distinct
+ * contacts are also indexed by phone and by case-folded name for search. Writers must hold the
+ * owning {@link User}'s lock; readers use the query methods without locking.
+ */
+public class ContactIndex implements ContactLookup {
+    private static final char KEY_SEPARATOR = '\u0000';
+
+    private final ConcurrentNavigableMap<Contact, Integer> bookCounts = new ConcurrentSkipListMap<>(Contact.KEY_ORDER);
+    private final Set<Contact> uniqueContacts = Collections.unmodifiableSet(bookCounts.keySet());
+
+    private final ConcurrentMap<String, Set<Contact>> byPhone = new ConcurrentHashMap<>();
+    // Keyed by "lower-case name \0 name \0 phone", so every name starting with a folded prefix sorts at or after it.
+    private final ConcurrentNavigableMap<String, Contact> byName = new ConcurrentSkipListMap<>();
+
+    @Override
+    public void add(Contact contact) {
+        Integer count = bookCounts.get(contact);
+        bookCounts.put(contact, count == null ? 1 : count + 1);
+        if (count == null) {
+            byPhone.computeIfAbsent(contact.getPhone(), phone -> ConcurrentHashMap.newKeySet()).add(contact);
+            byName.put(nameKey(contact), contact);
+        }
+    }
+
+    @Override
+    public void addAll(Collection<Contact> contacts) {
+        contacts.forEach(this::add);
+    }
+
+    @Override
+    public void remove(Contact contact) {
+        Integer count = bookCounts.get(contact);
+        if (count == null) return;
+
+        if (count > 1) {
+            bookCounts.put(contact, count - 1);
+            return;
+        }
+        bookCounts.remove(contact);
+        byPhone.computeIfPresent(contact.getPhone(), (phone, contacts) -> {
+            contacts.remove(contact);
+            return contacts.isEmpty() ? null : contacts;
+        });
+        byName.remove(nameKey(contact));
+    }
+
+    @Override
+    public void removeAll(Collection<Contact> contacts) {
+        contacts.forEach(this::remove);
+    }
+
+    @Override
+    public void clear() {
+        bookCounts.clear();
+        byPhone.clear();
+        byName.clear();
+    }
+
+    /**
+     * Live view, maintained incrementally.
+     */
+    @Override
+    public Set<Contact> uniqueContacts() {
+        return uniqueContacts;
+    }
+
+    @Override
+    public NavigableSet<Contact> uniqueContactsAfter(Contact cursor) {
+        NavigableSet<Contact> keys = bookCounts.navigableKeySet();
+        return Collections.unmodifiableNavigableSet(cursor == null ? keys : keys.tailSet(cursor, false));
+    }
+
+    @Override
+    public Set<Contact> findByPhone(String phone) {
+        Set<Contact> contacts = byPhone.get(phone);
+        return contacts == null ? Set.of() : Collections.unmodifiableSet(contacts);
+    }
+
+    /**
+     * Costs O(log n + k) for k visited entries.
+     */
+    @Override
+    public List<Contact> findByNamePrefix(String prefix, Predicate<Contact> filter, int limit) {
+        String foldedPrefix = prefix.toLowerCase(Locale.ROOT);
+        List<Contact> matches = new ArrayList<>(Math.min(limit, 64));
+        for (Map.Entry<String, Contact> entry : byName.tailMap(foldedPrefix).entrySet()) {
+            if (matches.size() == limit || !entry.getKey().startsWith(foldedPrefix)) break;
+            if (filter.test(entry.getValue())) {
+                matches.add(entry.getValue());
+            }
+        }
+        return matches;
+    }
+
+    // Also orders CompactContactLookup's prefix matches, so both lookups return them in the same order.
+    static String nameKey(Contact contact) {
+        String name = contact.getName();
+        return name.toLowerCase(Locale.ROOT) + KEY_SEPARATOR + name + KEY_SEPARATOR + contact.getPhone();
+    }
+}
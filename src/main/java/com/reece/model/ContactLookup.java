@@ -0,0 +1,44 @@
+package com.reece.model;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Unique-contact and search queries across all of a user's address books. {@link User} reports every
+ * contact mutation to it; writers must hold the user's lock, readers never take it.
+ */
+public interface ContactLookup {
+
+    void add(Contact contact);
+
+    void addAll(Collection<Contact> contacts);
+
+    void remove(Contact contact);
+
+    void removeAll(Collection<Contact> contacts);
+
+    void clear();
+
+    /**
+     * Read-only view of the distinct contacts in {@link Contact#KEY_ORDER}; iteration is weakly consistent.
+     */
+    Set<Contact> uniqueContacts();
+
+    /**
+     * Distinct contacts strictly after {@code cursor} in {@link Contact#KEY_ORDER}, or all of them when it is null.
+     */
+    Iterable<Contact> uniqueContactsAfter(Contact cursor);
+
+    /**
+     * Distinct contacts with exactly this phone number, in no particular order.
+     */
+    Set<Contact> findByPhone(String phone);
+
+    /**
+     * Distinct contacts accepted by {@code filter} whose name starts with {@code prefix}, ignoring case,
+     * in case-folded name order.
+     */
+    List<Contact> findByNamePrefix(String prefix, Predicate<Contact> filter, int limit);
+}
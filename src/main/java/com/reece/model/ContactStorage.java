@@ -0,0 +1,19 @@
+package com.reece.model;
+
+/**
+ * How a user's address books hold their contacts, chosen by {@code addressbook.contacts.storage}.
+ */
+public enum ContactStorage {
+    /**
+     * {@link Contact} objects in a concurrent skip list per book, plus a per-user {@link ContactIndex}
+     * for unique-contact and search queries.
+     */
+    SKIP_LIST,
+
+    /**
+     * Packed primitive keys and a shared name arena per book ({@link CompactContactSet}), with unique-contact
+     * and search queries answered from the books by {@link CompactContactLookup}. Several times smaller on
+     * the heap, at the cost of sorting on each listing and scanning books for name-prefix search.
+     */
+    COMPACT
+}
@@ -0,0 +1,20 @@
+package com.reece.model;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * A contact held by more than one of a user's address books, with the names of those books in order.
+ */
+@Setter
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class DuplicateContact {
+    private Contact contact;
+    private List<String> addressBooks;
+}
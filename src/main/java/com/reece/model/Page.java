@@ -0,0 +1,37 @@
+package com.reece.model;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * One page of a keyset-paginated listing. {@code nextCursor} is null on the last page.
+ */
+@Setter
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class Page<T> {
+    private List<T> items;
+    private String nextCursor;
+
+    /**
+     * Takes up to {@code limit} items from an already ordered sequence that starts after the
+     * caller's cursor, touching at most one element beyond the page.
+     */
+    public static <T> Page<T> of(Iterable<T> orderedItems, int limit, Function<T, String> cursorOf) {
+        List<T> items = new ArrayList<>(Math.min(limit, 64));
+        Iterator<T> iterator = orderedItems.iterator();
+        while (items.size() < limit && iterator.hasNext()) {
+            items.add(iterator.next());
+        }
+        String nextCursor = iterator.hasNext() && !items.isEmpty() ? cursorOf.apply(items.get(items.size() - 1)) : null;
+        return new Page<>(items, nextCursor);
+    }
+}
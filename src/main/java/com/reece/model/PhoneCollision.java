@@ -0,0 +1,38 @@
+package com.reece.model;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * A phone number stored under more than one name. {@code occurrences} counts every (user, book, contact)
+ * holding the number; {@code entries} lists them ordered by user, name and book, cut off after a fixed
+ * number with {@code truncated} set.
+ */
+@Setter
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class PhoneCollision {
+    private String phone;
+    private long occurrences;
+    // Some single user holds the number under two or more names.
+    private boolean withinUser;
+    // The number is held by more than one user.
+    private boolean acrossUsers;
+    private boolean truncated;
+    private List<Entry> entries;
+
+    @Setter
+    @Getter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Entry {
+        private String userId;
+        private String addressBook;
+        private String name;
+    }
+}
@@ -0,0 +1,32 @@
+package com.reece.model;
+
+import java.time.Instant;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Progress of one run of a background report.
+ */
+@Setter
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReportStatus {
+    private String id;
+    private State state;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private long usersScanned;
+    private long contactsScanned;
+    private long results;
+    private String error;
+
+    public enum State {
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+}
@@ -1,5 +1,8 @@
 package com.reece.model;
 
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
@@ -13,7 +16,12 @@ import lombok.Setter;
 @NoArgsConstructor
 @AllArgsConstructor
 public class UpdateContact {
+    @Valid
+    @NotNull(message = "Old contact is required")
     private Contact oldContact;
+
+    @Valid
+    @NotNull(message = "New contact is required")
     private Contact newContact;
 }
 
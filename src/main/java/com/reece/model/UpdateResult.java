@@ -0,0 +1,21 @@
+package com.reece.model;
+
+/**
+ * Outcome of replacing one contact with another in an address book.
+ */
+public enum UpdateResult {
+    /**
+     * The old contact was replaced by the new one.
+     */
+    UPDATED,
+
+    /**
+     * The user, the address book or the old contact does not exist; nothing changed.
+     */
+    NOT_FOUND,
+
+    /**
+     * The new contact is already in the address book; nothing changed.
+     */
+    DUPLICATE
+}
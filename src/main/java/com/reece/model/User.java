@@ -1,38 +1,107 @@
 package com.reece.model;
 
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
-import lombok.AllArgsConstructor;
+import lombok.AccessLevel;
 import lombok.Builder;
 import lombok.Getter;
-import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 @Setter
 @Getter
-@Builder
-@NoArgsConstructor
-@AllArgsConstructor
 public class User {
     private String userId;
     private String username;
-    private Map<String, AddressBook> addressBooks = new HashMap<>();
+    // Sorted by book name so listings can be paged from a cursor.
+    private NavigableMap<String, AddressBook> addressBooks;
+
+    // Serialises mutations of this user's books; readers never take it.
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // Storage for books created from now on.
+    private final ContactStorage contactStorage;
+
+    // Distinct contacts across all books, kept in step with every mutation below.
+    private final ContactLookup contactIndex;
+
+    // Each instance counts its versions in a range of 2^32 above every range handed out before it in this
+    // process, so a user removed and created again never repeats a version, and with it an ETag or change token.
+    private static final AtomicLong INSTANCES = new AtomicLong();
+    private static final int VERSION_RANGE_BITS = 32;
+
+    // Bumped after every change below; the changed book takes the new value as its own version.
+    @Getter(AccessLevel.NONE)
+    private final AtomicLong version = new AtomicLong(INSTANCES.getAndIncrement() << VERSION_RANGE_BITS);
+
+    // Book removals, for delta sync across all books; each book logs its own contact changes.
+    @Getter(AccessLevel.NONE)
+    private final ChangeLog removedBooks = new ChangeLog();
+
+    public User() {
+        this(null, null);
+    }
 
     public User(String userId, String username) {
+        this(userId, username, null);
+    }
+
+    public User(String userId, String username, Map<String, AddressBook> addressBooks) {
+        this(userId, username, addressBooks, null);
+    }
+
+    @Builder
+    public User(String userId, String username, Map<String, AddressBook> addressBooks, ContactStorage contactStorage) {
         this.userId = userId;
         this.username = username;
+        this.contactStorage = contactStorage == null ? ContactStorage.SKIP_LIST : contactStorage;
+        this.contactIndex = this.contactStorage == ContactStorage.COMPACT
+                ? new CompactContactLookup(this::getAllAddressBooks)
+                : new ContactIndex();
+        setAddressBooks(addressBooks);
     }
 
-    public boolean createAddressBook(String name) {
-        if (addressBooks.containsKey(name)) {
-            return false; // Duplicate address book
+    public void setAddressBooks(Map<String, AddressBook> addressBooks) {
+        this.addressBooks = addressBooks == null ? new ConcurrentSkipListMap<>() : new ConcurrentSkipListMap<>(addressBooks);
+        contactIndex.clear();
+        long replaced = version.get() + 1;
+        for (AddressBook book : this.addressBooks.values()) {
+            contactIndex.addAll(book.getContacts());
+            book.changeLog().reset(replaced);
+            book.setVersion(replaced);
         }
-        addressBooks.put(name, new AddressBook(name));
+        removedBooks.reset(replaced);
+        version.set(replaced);
+    }
+
+    public boolean createAddressBook(String name) {
+        AddressBook book = new AddressBook(name, contactStorage);
+        if (addressBooks.putIfAbsent(name, book) != null) return false; // duplicate address book
+
+        publish(book, ContactChange.Type.BOOK_CREATED, null, null);
         return true;
     }
 
+    /**
+     * Version of this user's books as a whole, bumped after every change to any of them. Read it before
+     * the books, so that what is read is at least this version.
+     */
+    public long version() {
+        return version.get();
+    }
+
+    /**
+     * Removals of this user's books; changes within a book are in its own {@link AddressBook#changeLog()}.
+     */
+    public ChangeLog removedBooksLog() {
+        return removedBooks;
+    }
+
     public AddressBook getAddressBook(String name) {
         return addressBooks.get(name);
     }
@@ -41,7 +110,83 @@ public class User {
         return addressBooks.values();
     }
 
+    /**
+     * Books whose name sorts strictly after {@code cursor}, or all books when it is null.
+     */
+    public NavigableMap<String, AddressBook> addressBooksAfter(String cursor) {
+        return cursor == null ? addressBooks : addressBooks.tailMap(cursor, false);
+    }
+
     public AddressBook removeAddressBook(String book) {
-        return addressBooks.remove(book);
+        AddressBook removed = addressBooks.remove(book);
+        if (removed != null) {
+            contactIndex.removeAll(removed.getContacts());
+            long next = version.get() + 1;
+            removedBooks.append(new ContactChange(next, ContactChange.Type.BOOK_REMOVED, book, null, null));
+            version.set(next);
+        }
+        return removed;
+    }
+
+    /**
+     * @return false if the address book does not exist
+     */
+    public boolean addContact(String bookName, Contact contact) {
+        AddressBook book = addressBooks.get(bookName);
+        if (book == null) return false;
+
+        addNewContact(book, contact);
+        return true;
+    }
+
+    /**
+     * Adds to one of this user's books that the caller has already looked up.
+     *
+     * @return true if the contact was not already in the book
+     */
+    public boolean addNewContact(AddressBook book, Contact contact) {
+        if (!book.addContact(contact)) return false;
+
+        contactIndex.add(contact);
+        publish(book, ContactChange.Type.ADDED, contact, null);
+        return true;
+    }
+
+    public boolean removeContact(String bookName, Contact contact) {
+        AddressBook book = addressBooks.get(bookName);
+        if (book == null || !book.removeContact(contact)) return false;
+
+        contactIndex.remove(contact);
+        publish(book, ContactChange.Type.REMOVED, contact, null);
+        return true;
+    }
+
+    /**
+     * Replaces {@code oldContact} as one change. Nothing changes unless the book holds {@code oldContact}
+     * and does not yet hold {@code newContact}.
+     */
+    public UpdateResult updateContact(String bookName, Contact oldContact, Contact newContact) {
+        AddressBook book = addressBooks.get(bookName);
+        if (book == null) return UpdateResult.NOT_FOUND;
+
+        UpdateResult result = book.replaceContact(oldContact, newContact);
+        if (result != UpdateResult.UPDATED) return result;
+
+        contactIndex.add(newContact);
+        contactIndex.remove(oldContact);
+        publish(book, ContactChange.Type.UPDATED, newContact, oldContact);
+        return result;
+    }
+
+    public Set<Contact> getUniqueContacts() {
+        return contactIndex.uniqueContacts();
+    }
+
+    // Callers hold the lock. The change is logged before its version is published, book first, then user.
+    private void publish(AddressBook book, ContactChange.Type type, Contact contact, Contact previousContact) {
+        long next = version.get() + 1;
+        book.changeLog().append(new ContactChange(next, type, book.getName(), contact, previousContact));
+        book.setVersion(next);
+        version.set(next);
     }
 }
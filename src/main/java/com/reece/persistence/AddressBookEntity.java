@@ -0,0 +1,38 @@
+package com.reece.persistence;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Entity
+@Table(name = "address_books",
+        uniqueConstraints = @UniqueConstraint(name = "uk_address_books_user_book", columnNames = {"user_id", "book_name"}))
+@Setter
+@Getter
+@NoArgsConstructor
+public class AddressBookEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "address_book_seq")
+    @SequenceGenerator(name = "address_book_seq", sequenceName = "address_book_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+
+    @Column(name = "book_name", nullable = false)
+    private String bookName;
+
+    public AddressBookEntity(String userId, String bookName) {
+        this.userId = userId;
+        this.bookName = bookName;
+    }
+}
@@ -0,0 +1,16 @@
+package com.reece.persistence;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+
+public interface AddressBookEntityRepository extends JpaRepository<AddressBookEntity, Long> {
+
+    List<AddressBookEntity> findAllByOrderByUserIdAscBookNameAsc();
+
+    @Modifying
+    @Query("delete from AddressBookEntity b where b.userId = :userId and b.bookName = :bookName")
+    int deleteBook(String userId, String bookName);
+}
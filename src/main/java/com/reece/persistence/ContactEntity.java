@@ -0,0 +1,59 @@
+package com.reece.persistence;
+
+import com.reece.model.Contact;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// A sequence rather than an identity column keeps Hibernate's JDBC insert batching enabled.
+@Entity
+@Table(name = "contacts",
+        indexes = {
+                @Index(name = "idx_contacts_user_book", columnList = "user_id, book_name"),
+                @Index(name = "idx_contacts_name_phone", columnList = "name, phone")
+        },
+        uniqueConstraints = @UniqueConstraint(name = "uk_contacts_user_book_contact",
+                columnNames = {"user_id", "book_name", "phone", "name"}))
+@Setter
+@Getter
+@NoArgsConstructor
+public class ContactEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "contact_seq")
+    @SequenceGenerator(name = "contact_seq", sequenceName = "contact_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+
+    @Column(name = "book_name", nullable = false)
+    private String bookName;
+
+    @Column(nullable = false, length = 100)
+    private String name;
+
+    @Column(nullable = false, length = 10)
+    private String phone;
+
+    public ContactEntity(String userId, String bookName, Contact contact) {
+        this.userId = userId;
+        this.bookName = bookName;
+        this.name = contact.getName();
+        this.phone = contact.getPhone();
+    }
+
+    public Contact toContact() {
+        return new Contact(name, phone);
+    }
+}
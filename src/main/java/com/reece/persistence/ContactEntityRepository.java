@@ -0,0 +1,30 @@
+package com.reece.persistence;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import jakarta.persistence.QueryHint;
+
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+
+public interface ContactEntityRepository extends JpaRepository<ContactEntity, Long> {
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("select c from ContactEntity c order by c.userId, c.bookName")
+    Stream<ContactEntity> streamAllOrderedByBook();
+
+    boolean existsByUserIdAndBookNameAndNameAndPhone(String userId, String bookName, String name, String phone);
+
+    @Modifying
+    @Query("delete from ContactEntity c where c.userId = :userId and c.bookName = :bookName"
+            + " and c.name = :name and c.phone = :phone")
+    int deleteContact(String userId, String bookName, String name, String phone);
+
+    @Modifying
+    @Query("delete from ContactEntity c where c.userId = :userId and c.bookName = :bookName")
+    int deleteBookContacts(String userId, String bookName);
+}
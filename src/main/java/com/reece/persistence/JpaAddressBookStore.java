@@ -0,0 +1,166 @@
+package com.reece.persistence;
+
+import com.reece.model.Contact;
+import com.reece.service.AddressBookStore;
+import com.reece.service.UserAddressBookService;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Persists the address books through JPA (H2 by default, see {@code application-jpa.properties}).
+ * <p>
+ * Each change is written in its own transaction before the request returns. Bulk additions go out
+ * as JDBC batches ({@code hibernate.jdbc.batch_size}). On startup all books and contacts are
+ * streamed back into the in-memory store.
+ * <p>
+ * Once a write's transaction fails to commit the store refuses further changes, so only the change that
+ * hit the failure can be in memory without being in the database. Values longer than their columns are
+ * refused by {@link #checkStorable} before the service applies them.
+ */
+@Component
+@ConditionalOnProperty(name = "addressbook.storage", havingValue = "jpa")
+@Transactional
+public class JpaAddressBookStore implements AddressBookStore {
+
+    private static final int RESTORE_CHUNK_SIZE = 1000;
+
+    // The column lengths of the entities; user ids and book names use the JPA default.
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final int MAX_NAME_LENGTH = 100;
+    private static final int MAX_PHONE_LENGTH = 10;
+
+    @Autowired
+    private UserEntityRepository userRepository;
+
+    @Autowired
+    private AddressBookEntityRepository addressBookRepository;
+
+    @Autowired
+    private ContactEntityRepository contactRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private volatile boolean failed;
+
+    @Override
+    public void checkWritable() {
+        if (failed) throw new IllegalStateException("A write to the database failed; the store refuses further changes");
+    }
+
+    @Override
+    public void checkStorable(String userId, String bookName, List<Contact> contacts) {
+        checkLength(userId, MAX_KEY_LENGTH, "User id");
+        checkLength(bookName, MAX_KEY_LENGTH, "Address book name");
+        for (Contact contact : contacts) {
+            checkLength(contact.getName(), MAX_NAME_LENGTH, "Name");
+            checkLength(contact.getPhone(), MAX_PHONE_LENGTH, "Phone number");
+        }
+    }
+
+    @Override
+    public void onAddressBookCreated(String userId, String bookName) {
+        watchCommit();
+        if (!userRepository.existsById(userId)) {
+            userRepository.save(new UserEntity(userId, null));
+        }
+        addressBookRepository.save(new AddressBookEntity(userId, bookName));
+    }
+
+    @Override
+    public void onContactsAdded(String userId, String bookName, List<Contact> contacts) {
+        watchCommit();
+        List<ContactEntity> entities = new ArrayList<>(contacts.size());
+        for (Contact contact : contacts) {
+            entities.add(new ContactEntity(userId, bookName, contact));
+        }
+        contactRepository.saveAll(entities);
+    }
+
+    @Override
+    public void onContactRemoved(String userId, String bookName, Contact contact) {
+        watchCommit();
+        contactRepository.deleteContact(userId, bookName, contact.getName(), contact.getPhone());
+    }
+
+    @Override
+    public void onContactUpdated(String userId, String bookName, Contact oldContact, Contact newContact) {
+        watchCommit();
+        // The service reports an update only when the new contact was not already in the book.
+        contactRepository.deleteContact(userId, bookName, oldContact.getName(), oldContact.getPhone());
+        contactRepository.save(new ContactEntity(userId, bookName, newContact));
+    }
+
+    @Override
+    public void onAddressBookRemoved(String userId, String bookName) {
+        watchCommit();
+        contactRepository.deleteBookContacts(userId, bookName);
+        addressBookRepository.deleteBook(userId, bookName);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void restore(UserAddressBookService service) {
+        for (AddressBookEntity book : addressBookRepository.findAllByOrderByUserIdAscBookNameAsc()) {
+            service.createAddressBookForUser(book.getUserId(), book.getBookName());
+        }
+        entityManager.clear();
+
+        try (Stream<ContactEntity> contacts = contactRepository.streamAllOrderedByBook()) {
+            Iterator<ContactEntity> iterator = contacts.iterator();
+            List<Contact> chunk = new ArrayList<>(RESTORE_CHUNK_SIZE);
+            String userId = null;
+            String bookName = null;
+            while (iterator.hasNext()) {
+                ContactEntity contact = iterator.next();
+                if (chunk.size() == RESTORE_CHUNK_SIZE || !Objects.equals(userId, contact.getUserId())
+                        || !Objects.equals(bookName, contact.getBookName())) {
+                    flush(service, userId, bookName, chunk);
+                    userId = contact.getUserId();
+                    bookName = contact.getBookName();
+                }
+                chunk.add(contact.toContact());
+            }
+            flush(service, userId, bookName, chunk);
+        }
+    }
+
+    // Marks the store failed if the current write's transaction rolls back, including a failure in the commit itself.
+    private void watchCommit() {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) failed = true;
+            }
+        });
+    }
+
+    private static void checkLength(String value, int maxLength, String what) {
+        if (value != null && value.length() > maxLength) {
+            throw new IllegalArgumentException(what + " is longer than " + maxLength + " characters");
+        }
+    }
+
+    private void flush(UserAddressBookService service, String userId, String bookName, List<Contact> chunk) {
+        if (chunk.isEmpty()) return;
+
+        service.addContactsToAddressBook(userId, bookName, chunk);
+        chunk.clear();
+        // Restored entities are never modified; dropping them keeps the persistence context small.
+        entityManager.clear();
+    }
+}
@@ -0,0 +1,470 @@
+package com.reece.persistence;
+
+import com.reece.model.AddressBook;
+import com.reece.model.Contact;
+import com.reece.model.ContactStorage;
+import com.reece.model.User;
+import com.reece.service.AddressBookStore;
+import com.reece.service.UserAddressBookService;
+
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Keeps users, address books and contacts in memory-mapped files of fixed-width records, found through
+ * off-heap hash indexes, so that startup only maps the files and each user is read back the first time
+ * it is requested.
+ * <p>
+ * {@code books.dat} holds one record per user, heading a chain of that user's books, and one per book,
+ * heading a doubly linked chain of its contacts in {@code contacts.dat}. {@code users.idx} is keyed by user
+ * id, {@code books.idx} by (user id, book name) and {@code contacts.idx} by (book, name, phone).
+ * <p>
+ * Changes reach the page cache as they are applied and are written back by the OS, by a periodic
+ * {@code force} every {@code addressbook.mmap.sync-interval} and on shutdown. A record is written before it
+ * is linked and unlinked before it is freed, so a process killed mid-change leaves at worst an unreachable
+ * record. Unlike {@link WriteAheadLogStore} it offers no guarantee against a machine crash before a sync.
+ * <p>
+ * Each user's records are guarded by one of a fixed set of striped locks, so users on different stripes
+ * are written and loaded in parallel; the record files and indexes serialise only their shared parts.
+ * Values too long for their field are refused by {@link #checkStorable} before the service applies them.
+ */
+@Component
+@ConditionalOnProperty(name = "addressbook.storage", havingValue = "mmap")
+public class MappedFileStore implements AddressBookStore {
+
+    private static final Logger log = LoggerFactory.getLogger(MappedFileStore.class);
+
+    // books.dat: [kind][pad][int free link][int next][int first contact][int owner][int key length][key]
+    private static final int BOOK_BYTES = 256;
+    private static final int NEXT = 8;
+    private static final int FIRST_CONTACT = 12;
+    private static final int OWNER = 16;
+    private static final int KEY_LENGTH = 20;
+    private static final int KEY = 24;
+    private static final int MAX_KEY_BYTES = BOOK_BYTES - KEY;
+
+    private static final byte USER = 1;
+    private static final byte BOOK = 2;
+
+    // contacts.dat: [kind][pad][int book][int prev][int next][int hash][int phone length][int name length][phone][name]
+    private static final int CONTACT_BYTES = 352;
+    private static final int CONTACT_BOOK = 4;
+    private static final int PREV = 8;
+    private static final int CONTACT_NEXT = 12;
+    private static final int HASH = 16;
+    private static final int PHONE_LENGTH = 20;
+    private static final int NAME_LENGTH = 24;
+    private static final int PHONE = 28;
+    private static final int MAX_PHONE_BYTES = 24;
+    private static final int NAME = PHONE + MAX_PHONE_BYTES;
+    private static final int MAX_NAME_BYTES = CONTACT_BYTES - NAME; // 300: any 100-character name
+
+    private static final byte CONTACT = 1;
+
+    private static final int BOOKS_MAGIC = 0x41424231;    // "ABB1"
+    private static final int CONTACTS_MAGIC = 0x41424331; // "ABC1"
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final Path directory;
+    private final Duration syncInterval;
+    private final ReentrantLock[] userLocks = new ReentrantLock[LOCK_STRIPES];
+    // Read-held by every access to the files, write-held while they are opened or closed.
+    private final ReentrantReadWriteLock filesLock = new ReentrantReadWriteLock();
+
+    private MappedRecordFile books;
+    private MappedRecordFile contacts;
+    private MappedHashIndex userIndex;
+    private MappedHashIndex bookIndex;
+    private MappedHashIndex contactIndex;
+    private ScheduledExecutorService syncScheduler;
+
+    public MappedFileStore(@Value("${addressbook.mmap.directory:./data/mmap}") Path directory,
+                           @Value("${addressbook.mmap.sync-interval:PT5S}") Duration syncInterval) {
+        this.directory = directory;
+        this.syncInterval = syncInterval;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            userLocks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Only maps the files; users are read on demand through {@link #loadUser}.
+     */
+    @Override
+    public void restore(UserAddressBookService service) {
+        filesLock.writeLock().lock();
+        try {
+            Files.createDirectories(directory);
+            books = new MappedRecordFile(directory.resolve("books.dat"), BOOKS_MAGIC, BOOK_BYTES);
+            contacts = new MappedRecordFile(directory.resolve("contacts.dat"), CONTACTS_MAGIC, CONTACT_BYTES);
+            userIndex = new MappedHashIndex(directory.resolve("users.idx"));
+            bookIndex = new MappedHashIndex(directory.resolve("books.idx"));
+            contactIndex = new MappedHashIndex(directory.resolve("contacts.idx"));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open mapped store in " + directory, e);
+        } finally {
+            filesLock.writeLock().unlock();
+        }
+        log.info("Mapped store in {}: {} users, {} address books, {} contacts", directory,
+                userIndex.size(), bookIndex.size(), contactIndex.size());
+
+        if (!syncInterval.isZero()) {
+            syncScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "addressbook-mmap-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long intervalMillis = syncInterval.toMillis();
+            syncScheduler.scheduleWithFixedDelay(this::sync, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public User loadUser(String userId, ContactStorage contactStorage) {
+        ReentrantLock userLock = userLock(userId);
+        filesLock.readLock().lock();
+        userLock.lock();
+        try {
+            byte[] userKey = userId.getBytes(StandardCharsets.UTF_8);
+            if (userKey.length > MAX_KEY_BYTES) return null; // could never have been stored
+
+            int userSlot = findUser(userId, userKey);
+            if (userSlot == MappedHashIndex.NOT_FOUND) return null;
+
+            User user = User.builder().userId(userId).contactStorage(contactStorage).build();
+            for (int book = books.getInt(userSlot, NEXT); book != MappedRecordFile.NONE; book = books.getInt(book, NEXT)) {
+                String bookName = readKey(book);
+                user.createAddressBook(bookName);
+                AddressBook addressBook = user.getAddressBook(bookName);
+                for (int contact = books.getInt(book, FIRST_CONTACT); contact != MappedRecordFile.NONE;
+                     contact = contacts.getInt(contact, CONTACT_NEXT)) {
+                    user.addNewContact(addressBook, readContact(contact));
+                }
+            }
+            return user;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not load user " + userId, e);
+        } finally {
+            userLock.unlock();
+            filesLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void checkStorable(String userId, String bookName, List<Contact> contacts) {
+        keyBytes(userId, "User id");
+        keyBytes(bookName, "Address book name");
+        for (Contact contact : contacts) {
+            fieldBytes(contact.getPhone(), MAX_PHONE_BYTES, "Phone number");
+            fieldBytes(contact.getName(), MAX_NAME_BYTES, "Name");
+        }
+    }
+
+    @Override
+    public void onAddressBookCreated(String userId, String bookName) {
+        write(userId, () -> {
+            byte[] userKey = keyBytes(userId, "User id");
+            byte[] bookKey = keyBytes(bookName, "Address book name");
+
+            int userSlot = findUser(userId, userKey);
+            if (userSlot == MappedHashIndex.NOT_FOUND) {
+                userSlot = books.allocate();
+                writeKey(userSlot, USER, userKey);
+                books.putInt(userSlot, NEXT, MappedRecordFile.NONE);
+                int owner = userSlot;
+                userIndex.put(Objects.hashCode(userId), userSlot, slot -> slot == owner);
+            }
+
+            int book = books.allocate();
+            writeKey(book, BOOK, bookKey);
+            books.putInt(book, OWNER, userSlot);
+            books.putInt(book, FIRST_CONTACT, MappedRecordFile.NONE);
+            books.putInt(book, NEXT, books.getInt(userSlot, NEXT));
+            books.putInt(userSlot, NEXT, book);
+            bookIndex.put(bookHash(userId, bookName), book, slot -> slot == book);
+        });
+    }
+
+    @Override
+    public void onContactsAdded(String userId, String bookName, List<Contact> added) {
+        write(userId, () -> {
+            int book = requireBook(userId, bookName);
+            for (Contact contact : added) {
+                addContact(book, contact);
+            }
+        });
+    }
+
+    @Override
+    public void onContactRemoved(String userId, String bookName, Contact contact) {
+        write(userId, () -> removeContact(requireBook(userId, bookName), contact));
+    }
+
+    @Override
+    public void onContactUpdated(String userId, String bookName, Contact oldContact, Contact newContact) {
+        write(userId, () -> replaceContact(requireBook(userId, bookName), oldContact, newContact));
+    }
+
+    @Override
+    public void onAddressBookRemoved(String userId, String bookName) {
+        write(userId, () -> {
+            int book = requireBook(userId, bookName);
+            bookIndex.remove(bookHash(userId, bookName), slot -> slot == book);
+
+            int userSlot = books.getInt(book, OWNER);
+            int previous = userSlot;
+            while (books.getInt(previous, NEXT) != book) {
+                previous = books.getInt(previous, NEXT);
+            }
+            books.putInt(previous, NEXT, books.getInt(book, NEXT));
+
+            int contact = books.getInt(book, FIRST_CONTACT);
+            while (contact != MappedRecordFile.NONE) {
+                int next = contacts.getInt(contact, CONTACT_NEXT);
+                int freed = contact;
+                contactIndex.remove(contacts.getInt(contact, HASH), slot -> slot == freed);
+                contacts.free(contact);
+                contact = next;
+            }
+            books.free(book);
+        });
+    }
+
+    /**
+     * Writes dirty pages of every file back to disk.
+     */
+    public void sync() {
+        filesLock.readLock().lock();
+        try {
+            if (books == null) return;
+            books.force();
+            contacts.force();
+            userIndex.force();
+            bookIndex.force();
+            contactIndex.force();
+        } finally {
+            filesLock.readLock().unlock();
+        }
+    }
+
+    // Slots in contacts.dat ever handed out; stays flat while removals free as many as are added.
+    int contactSlots() {
+        return contacts.highWater();
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (syncScheduler != null) {
+            syncScheduler.shutdownNow();
+        }
+        filesLock.writeLock().lock();
+        try {
+            if (books == null) return;
+            books.close();
+            contacts.close();
+            userIndex.close();
+            bookIndex.close();
+            contactIndex.close();
+            books = null;
+        } finally {
+            filesLock.writeLock().unlock();
+        }
+    }
+
+    private void addContact(int book, Contact contact) throws IOException {
+        byte[] phone = fieldBytes(contact.getPhone(), MAX_PHONE_BYTES, "Phone number");
+        byte[] name = fieldBytes(contact.getName(), MAX_NAME_BYTES, "Name");
+        int hash = contactHash(book, contact);
+        if (findContact(book, hash, name, phone) != MappedHashIndex.NOT_FOUND) return;
+
+        int slot = writeContact(book, hash, name, phone);
+        int first = books.getInt(book, FIRST_CONTACT);
+        contacts.putInt(slot, PREV, MappedRecordFile.NONE);
+        contacts.putInt(slot, CONTACT_NEXT, first);
+        if (first != MappedRecordFile.NONE) {
+            contacts.putInt(first, PREV, slot);
+        }
+        books.putInt(book, FIRST_CONTACT, slot);
+        contactIndex.put(hash, slot, candidate -> candidate == slot);
+    }
+
+    private void removeContact(int book, Contact contact) throws IOException {
+        byte[] phone = fieldBytes(contact.getPhone(), MAX_PHONE_BYTES, "Phone number");
+        byte[] name = fieldBytes(contact.getName(), MAX_NAME_BYTES, "Name");
+        int hash = contactHash(book, contact);
+        int slot = findContact(book, hash, name, phone);
+        if (slot == MappedHashIndex.NOT_FOUND) return;
+
+        contactIndex.remove(hash, candidate -> candidate == slot);
+        int previous = contacts.getInt(slot, PREV);
+        int next = contacts.getInt(slot, CONTACT_NEXT);
+        if (previous == MappedRecordFile.NONE) {
+            books.putInt(book, FIRST_CONTACT, next);
+        } else {
+            contacts.putInt(previous, CONTACT_NEXT, next);
+        }
+        if (next != MappedRecordFile.NONE) {
+            contacts.putInt(next, PREV, previous);
+        }
+        contacts.free(slot);
+    }
+
+    // Writes the new contact into a fresh record, links it where the old one was, then frees the old one,
+    // so a process killed part way leaves the book holding exactly one of the two.
+    private void replaceContact(int book, Contact oldContact, Contact newContact) throws IOException {
+        byte[] oldPhone = fieldBytes(oldContact.getPhone(), MAX_PHONE_BYTES, "Phone number");
+        byte[] oldName = fieldBytes(oldContact.getName(), MAX_NAME_BYTES, "Name");
+        int oldHash = contactHash(book, oldContact);
+        int slot = findContact(book, oldHash, oldName, oldPhone);
+        byte[] phone = fieldBytes(newContact.getPhone(), MAX_PHONE_BYTES, "Phone number");
+        byte[] name = fieldBytes(newContact.getName(), MAX_NAME_BYTES, "Name");
+        int hash = contactHash(book, newContact);
+        if (slot == MappedHashIndex.NOT_FOUND || findContact(book, hash, name, phone) != MappedHashIndex.NOT_FOUND) {
+            removeContact(book, oldContact);
+            addContact(book, newContact);
+            return;
+        }
+
+        int replacement = writeContact(book, hash, name, phone);
+        int previous = contacts.getInt(slot, PREV);
+        int next = contacts.getInt(slot, CONTACT_NEXT);
+        contacts.putInt(replacement, PREV, previous);
+        contacts.putInt(replacement, CONTACT_NEXT, next);
+        if (next != MappedRecordFile.NONE) {
+            contacts.putInt(next, PREV, replacement);
+        }
+        if (previous == MappedRecordFile.NONE) {
+            books.putInt(book, FIRST_CONTACT, replacement);
+        } else {
+            contacts.putInt(previous, CONTACT_NEXT, replacement);
+        }
+        contactIndex.remove(oldHash, candidate -> candidate == slot);
+        contactIndex.put(hash, replacement, candidate -> candidate == replacement);
+        contacts.free(slot);
+    }
+
+    // Fills a fresh, still unlinked contact record.
+    private int writeContact(int book, int hash, byte[] name, byte[] phone) throws IOException {
+        int slot = contacts.allocate();
+        contacts.putInt(slot, CONTACT_BOOK, book);
+        contacts.putInt(slot, HASH, hash);
+        contacts.putInt(slot, PHONE_LENGTH, phone.length);
+        contacts.putInt(slot, NAME_LENGTH, name.length);
+        contacts.putBytes(slot, PHONE, phone);
+        contacts.putBytes(slot, NAME, name);
+        contacts.putByte(slot, MappedRecordFile.KIND, CONTACT);
+        return slot;
+    }
+
+    private int findUser(String userId, byte[] userKey) throws IOException {
+        return userIndex.get(Objects.hashCode(userId), slot -> keyEquals(slot, USER, userKey));
+    }
+
+    private int requireBook(String userId, String bookName) throws IOException {
+        byte[] userKey = keyBytes(userId, "User id");
+        byte[] bookKey = keyBytes(bookName, "Address book name");
+        int book = bookIndex.get(bookHash(userId, bookName),
+                slot -> keyEquals(slot, BOOK, bookKey) && keyEquals(books.getInt(slot, OWNER), USER, userKey));
+        if (book == MappedHashIndex.NOT_FOUND) {
+            throw new IllegalStateException("Mapped store has no address book " + bookName + " for user " + userId);
+        }
+        return book;
+    }
+
+    private int findContact(int book, int hash, byte[] name, byte[] phone) throws IOException {
+        return contactIndex.get(hash, slot -> contacts.getInt(slot, CONTACT_BOOK) == book
+                && contacts.getInt(slot, PHONE_LENGTH) == phone.length
+                && contacts.getInt(slot, NAME_LENGTH) == name.length
+                && contacts.bytesEqual(slot, PHONE, phone)
+                && contacts.bytesEqual(slot, NAME, name));
+    }
+
+    private boolean keyEquals(int slot, byte kind, byte[] key) throws IOException {
+        return books.getByte(slot, MappedRecordFile.KIND) == kind
+                && books.getInt(slot, KEY_LENGTH) == key.length
+                && books.bytesEqual(slot, KEY, key);
+    }
+
+    private void writeKey(int slot, byte kind, byte[] key) throws IOException {
+        books.putInt(slot, KEY_LENGTH, key.length);
+        books.putBytes(slot, KEY, key);
+        books.putByte(slot, MappedRecordFile.KIND, kind);
+    }
+
+    private String readKey(int slot) throws IOException {
+        return new String(books.getBytes(slot, KEY, books.getInt(slot, KEY_LENGTH)), StandardCharsets.UTF_8);
+    }
+
+    private Contact readContact(int slot) throws IOException {
+        String phone = new String(contacts.getBytes(slot, PHONE, contacts.getInt(slot, PHONE_LENGTH)),
+                StandardCharsets.UTF_8);
+        String name = new String(contacts.getBytes(slot, NAME, contacts.getInt(slot, NAME_LENGTH)),
+                StandardCharsets.UTF_8);
+        return new Contact(name, phone);
+    }
+
+    private void write(String userId, MappedWrite change) {
+        ReentrantLock userLock = userLock(userId);
+        filesLock.readLock().lock();
+        userLock.lock();
+        try {
+            change.apply();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write to mapped store in " + directory, e);
+        } finally {
+            userLock.unlock();
+            filesLock.readLock().unlock();
+        }
+    }
+
+    private ReentrantLock userLock(String userId) {
+        int hash = Objects.hashCode(userId);
+        return userLocks[(hash ^ hash >>> 16) & (LOCK_STRIPES - 1)];
+    }
+
+    private static int bookHash(String userId, String bookName) {
+        return 31 * Objects.hashCode(userId) + Objects.hashCode(bookName);
+    }
+
+    private static int contactHash(int book, Contact contact) {
+        return Objects.hash(book, contact.getName(), contact.getPhone());
+    }
+
+    private static byte[] keyBytes(String key, String what) {
+        return fieldBytes(key, MAX_KEY_BYTES, what);
+    }
+
+    // Records are fixed-width, so values that do not fit are rejected rather than truncated.
+    private static byte[] fieldBytes(String value, int maxBytes, String what) {
+        byte[] bytes = Objects.requireNonNullElse(value, "").getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > maxBytes) {
+            throw new IllegalArgumentException(what + " is longer than " + maxBytes + " bytes in UTF-8");
+        }
+        return bytes;
+    }
+
+    @FunctionalInterface
+    private interface MappedWrite {
+        void apply() throws IOException;
+    }
+}
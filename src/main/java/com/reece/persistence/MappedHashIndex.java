@@ -0,0 +1,220 @@
+package com.reece.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Open-addressing hash table in a memory-mapped file, from a 32-bit key hash to an int value, normally a
+ * {@link MappedRecordFile} slot.
+ * <p>
+ * The table stores hashes only. Callers pass a {@link ValueMatcher} that checks a candidate value against
+ * the full key, usually by comparing the record it points at. Entries are {@code [int state][int hash][int value]}
+ * with linear probing and tombstones for removals. When live entries plus tombstones pass three quarters of
+ * the capacity, the table is rebuilt at double size in a temporary file that then replaces this one.
+ * <p>
+ * Lookups share a read lock; changes, including a rebuild, take the write lock.
+ */
+class MappedHashIndex implements Closeable {
+
+    @FunctionalInterface
+    interface ValueMatcher {
+        boolean matches(int value) throws IOException;
+    }
+
+    static final int NOT_FOUND = -1;
+
+    private static final int HEADER_BYTES = 16;
+    private static final int ENTRY_BYTES = 12;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int MAX_CAPACITY = 1 << 27;
+
+    private static final int MAGIC = 0x41424958; // "ABIX"
+    private static final int CAPACITY = 4;
+    private static final int LIVE = 8;
+    private static final int USED = 12;
+
+    private static final int EMPTY = 0;
+    private static final int OCCUPIED = 1;
+    private static final int DELETED = 2;
+
+    private final Path path;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private FileChannel channel;
+    private MappedByteBuffer table;
+    private int capacity;
+
+    MappedHashIndex(Path path) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        if (channel.size() == 0) {
+            this.table = map(channel, INITIAL_CAPACITY);
+        } else {
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            if (header.getInt(0) != MAGIC) {
+                channel.close();
+                throw new IOException("Not a hash index: " + path);
+            }
+            this.table = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    HEADER_BYTES + (long) header.getInt(CAPACITY) * ENTRY_BYTES);
+        }
+        this.capacity = table.getInt(CAPACITY);
+    }
+
+    /**
+     * @return the value stored for the key, or {@link #NOT_FOUND}
+     */
+    int get(int hash, ValueMatcher matcher) throws IOException {
+        lock.readLock().lock();
+        try {
+            int entry = find(hash, matcher);
+            return entry < 0 ? NOT_FOUND : table.getInt(entry + 8);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Stores {@code value} for the key, replacing the value of an existing entry that {@code matcher} accepts.
+     */
+    void put(int hash, int value, ValueMatcher matcher) throws IOException {
+        lock.writeLock().lock();
+        try {
+            int existing = find(hash, matcher);
+            if (existing >= 0) {
+                table.putInt(existing + 8, value);
+                return;
+            }
+            if ((table.getInt(USED) + 1) * 4L > capacity * 3L) {
+                grow();
+            }
+            insert(table, capacity, hash, value);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return true if an entry that {@code matcher} accepts was removed
+     */
+    boolean remove(int hash, ValueMatcher matcher) throws IOException {
+        lock.writeLock().lock();
+        try {
+            int entry = find(hash, matcher);
+            if (entry < 0) return false;
+
+            table.putInt(entry, DELETED);
+            table.putInt(LIVE, table.getInt(LIVE) - 1);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return table.getInt(LIVE);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    void force() {
+        lock.readLock().lock();
+        try {
+            table.force();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            table.force();
+            channel.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private int find(int hash, ValueMatcher matcher) throws IOException {
+        int mask = capacity - 1;
+        for (int i = spread(hash) & mask, probes = 0; probes < capacity; i = (i + 1) & mask, probes++) {
+            int entry = HEADER_BYTES + i * ENTRY_BYTES;
+            int state = table.getInt(entry);
+            if (state == EMPTY) return -1;
+            if (state == OCCUPIED && table.getInt(entry + 4) == hash && matcher.matches(table.getInt(entry + 8))) {
+                return entry;
+            }
+        }
+        return -1;
+    }
+
+    // Takes the first free or deleted entry; the caller has checked the key is absent.
+    private static void insert(MappedByteBuffer table, int capacity, int hash, int value) {
+        int mask = capacity - 1;
+        int i = spread(hash) & mask;
+        int entry = HEADER_BYTES + i * ENTRY_BYTES;
+        while (table.getInt(entry) == OCCUPIED) {
+            i = (i + 1) & mask;
+            entry = HEADER_BYTES + i * ENTRY_BYTES;
+        }
+        if (table.getInt(entry) == EMPTY) {
+            table.putInt(USED, table.getInt(USED) + 1);
+        }
+        table.putInt(entry + 4, hash);
+        table.putInt(entry + 8, value);
+        table.putInt(entry, OCCUPIED);
+        table.putInt(LIVE, table.getInt(LIVE) + 1);
+    }
+
+    // Rebuilds without tombstones, doubling only when live entries alone would keep the table over half full.
+    private void grow() throws IOException {
+        int newCapacity = table.getInt(LIVE) * 2L >= capacity ? capacity * 2 : capacity;
+        if (newCapacity > MAX_CAPACITY) throw new IOException("Hash index is full: " + path);
+
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.deleteIfExists(temporary);
+        FileChannel newChannel = FileChannel.open(temporary, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer newTable = map(newChannel, newCapacity);
+        for (int i = 0; i < capacity; i++) {
+            int entry = HEADER_BYTES + i * ENTRY_BYTES;
+            if (table.getInt(entry) == OCCUPIED) {
+                insert(newTable, newCapacity, table.getInt(entry + 4), table.getInt(entry + 8));
+            }
+        }
+        newTable.force();
+        Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        channel.close();
+        channel = newChannel;
+        table = newTable;
+        capacity = newCapacity;
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, int capacity) throws IOException {
+        MappedByteBuffer table = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                HEADER_BYTES + (long) capacity * ENTRY_BYTES);
+        table.putInt(CAPACITY, capacity);
+        table.putInt(LIVE, 0);
+        table.putInt(USED, 0);
+        table.putInt(0, MAGIC);
+        return table;
+    }
+
+    private static int spread(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,185 @@
+package com.reece.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A file of fixed-width records addressed by slot number, memory-mapped with {@link FileChannel#map} in
+ * chunks that are mapped on first use, so opening a large file costs nothing until its pages are read.
+ * <p>
+ * The header holds a magic number, the record width, the high-water slot and the head of the free list.
+ * Byte 0 of a record is its kind, 0 meaning free; freed slots are chained through the int at
+ * {@link #FREE_LINK} and reused before the file grows.
+ * <p>
+ * Threads may read and write different slots concurrently; callers keep two threads off the same slot.
+ * Allocating, freeing and mapping a chunk are serialised here.
+ */
+class MappedRecordFile implements Closeable {
+
+    static final int KIND = 0;
+    static final int FREE_LINK = 4;
+    static final int NONE = -1;
+
+    private static final int HEADER_BYTES = 64;
+    private static final int CHUNK_BYTES = 16 * 1024 * 1024;
+
+    private static final int MAGIC = 0;
+    private static final int RECORD_BYTES = 4;
+    private static final int HIGH_WATER = 8;
+    private static final int FREE_HEAD = 12;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private final int recordBytes;
+    private final int recordsPerChunk;
+    private final AtomicReferenceArray<MappedByteBuffer> chunks;
+    private final ReentrantLock allocation = new ReentrantLock();
+
+    MappedRecordFile(Path path, int magic, int recordBytes) throws IOException {
+        this.path = path;
+        this.recordBytes = recordBytes;
+        this.recordsPerChunk = CHUNK_BYTES / recordBytes;
+        this.chunks = new AtomicReferenceArray<>(Integer.MAX_VALUE / recordsPerChunk + 1);
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        this.header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+
+        if (header.getInt(MAGIC) == 0) {
+            header.putInt(RECORD_BYTES, recordBytes);
+            header.putInt(HIGH_WATER, 0);
+            header.putInt(FREE_HEAD, NONE);
+            header.putInt(MAGIC, magic);
+        } else if (header.getInt(MAGIC) != magic || header.getInt(RECORD_BYTES) != recordBytes) {
+            channel.close();
+            throw new IOException("Not a record file of " + recordBytes + "-byte records: " + path);
+        }
+    }
+
+    /**
+     * @return a zeroed slot, taken from the free list when there is one
+     */
+    int allocate() throws IOException {
+        allocation.lock();
+        try {
+            int slot = header.getInt(FREE_HEAD);
+            if (slot != NONE) {
+                header.putInt(FREE_HEAD, getInt(slot, FREE_LINK));
+            } else {
+                slot = header.getInt(HIGH_WATER);
+                if (slot == Integer.MAX_VALUE) throw new IOException("Record file is full: " + path);
+                header.putInt(HIGH_WATER, slot + 1);
+            }
+            MappedByteBuffer chunk = chunk(slot);
+            int offset = offset(slot);
+            for (int i = 0; i < recordBytes; i++) {
+                chunk.put(offset + i, (byte) 0);
+            }
+            return slot;
+        } finally {
+            allocation.unlock();
+        }
+    }
+
+    void free(int slot) throws IOException {
+        allocation.lock();
+        try {
+            putByte(slot, KIND, (byte) 0);
+            putInt(slot, FREE_LINK, header.getInt(FREE_HEAD));
+            header.putInt(FREE_HEAD, slot);
+        } finally {
+            allocation.unlock();
+        }
+    }
+
+    /**
+     * @return the number of slots ever handed out, live or free
+     */
+    int highWater() {
+        return header.getInt(HIGH_WATER);
+    }
+
+    byte getByte(int slot, int field) throws IOException {
+        return chunk(slot).get(offset(slot) + field);
+    }
+
+    void putByte(int slot, int field, byte value) throws IOException {
+        chunk(slot).put(offset(slot) + field, value);
+    }
+
+    int getInt(int slot, int field) throws IOException {
+        return chunk(slot).getInt(offset(slot) + field);
+    }
+
+    void putInt(int slot, int field, int value) throws IOException {
+        chunk(slot).putInt(offset(slot) + field, value);
+    }
+
+    byte[] getBytes(int slot, int field, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        chunk(slot).get(offset(slot) + field, bytes);
+        return bytes;
+    }
+
+    void putBytes(int slot, int field, byte[] bytes) throws IOException {
+        chunk(slot).put(offset(slot) + field, bytes);
+    }
+
+    /**
+     * Compares bytes in place, without copying the field out of the mapping.
+     */
+    boolean bytesEqual(int slot, int field, byte[] expected) throws IOException {
+        MappedByteBuffer chunk = chunk(slot);
+        int offset = offset(slot) + field;
+        for (int i = 0; i < expected.length; i++) {
+            if (chunk.get(offset + i) != expected[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Writes dirty pages back to the file.
+     */
+    void force() {
+        header.force();
+        for (int i = 0; i < chunks.length(); i++) {
+            MappedByteBuffer chunk = chunks.get(i);
+            if (chunk != null) chunk.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    private MappedByteBuffer chunk(int slot) throws IOException {
+        int index = slot / recordsPerChunk;
+        MappedByteBuffer chunk = chunks.get(index);
+        if (chunk != null) return chunk;
+
+        allocation.lock();
+        try {
+            chunk = chunks.get(index);
+            if (chunk == null) {
+                long position = HEADER_BYTES + (long) index * recordsPerChunk * recordBytes;
+                chunk = channel.map(FileChannel.MapMode.READ_WRITE, position, (long) recordsPerChunk * recordBytes);
+                chunks.set(index, chunk);
+            }
+            return chunk;
+        } finally {
+            allocation.unlock();
+        }
+    }
+
+    private int offset(int slot) {
+        return (slot % recordsPerChunk) * recordBytes;
+    }
+}
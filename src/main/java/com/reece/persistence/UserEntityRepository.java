@@ -0,0 +1,6 @@
+package com.reece.persistence;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface UserEntityRepository extends JpaRepository<UserEntity, String> {
+}
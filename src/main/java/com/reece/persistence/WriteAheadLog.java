@@ -0,0 +1,341 @@
+package com.reece.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of opaque records split into segment files named after the first log sequence
+ * number (LSN) they may contain.
+ * <p>
+ * {@link #append} hands the record to a single flusher thread and blocks until it is durable. The
+ * flusher writes everything queued since its last pass with one {@link FileChannel#write} and one
+ * {@link FileChannel#force}, so concurrent writers share the cost of each fsync (group commit).
+ * <p>
+ * On disk every record is {@code [int length][int crc32][long lsn][payload]}. A torn record at the
+ * end of the log, left by a crash mid-write, is truncated away by {@link #replay}. Once a write fails
+ * the log stays failed: every later append throws rather than guessing what reached the disk.
+ */
+class WriteAheadLog implements Closeable {
+
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int HEADER_BYTES = Integer.BYTES * 2;
+    private static final int MAX_RECORD_BYTES = 64 * 1024 * 1024;
+
+    @FunctionalInterface
+    interface RecordHandler {
+        void accept(long lsn, DataInputStream payload) throws IOException;
+    }
+
+    private final Path directory;
+    private final boolean fsync;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition recordsQueued = lock.newCondition();
+    private final Condition recordsDurable = lock.newCondition();
+
+    private ByteArrayOutputStream queued = new ByteArrayOutputStream();
+    private ByteArrayOutputStream writing = new ByteArrayOutputStream();
+    private long nextLsn;
+    private long lastQueuedLsn;
+    private long durableLsn;
+    private boolean flushing;
+    private boolean closed = true;
+    private IOException failure;
+    private FileChannel channel;
+    private Thread flusher;
+
+    WriteAheadLog(Path directory, boolean fsync) {
+        this.directory = directory;
+        this.fsync = fsync;
+    }
+
+    /**
+     * Replays every intact record in LSN order and truncates a torn tail.
+     * <p>
+     * Only the newest segment with records can end in a torn record: a segment is complete before the
+     * next one is opened. A bad record followed by newer records is corruption rather than a crash, and
+     * replaying around it would lose changes or reuse their LSNs, so it stops startup instead.
+     *
+     * @return the highest LSN seen, or 0 for an empty log
+     * @throws IOException if a segment other than the last non-empty one holds a bad record
+     */
+    long replay(RecordHandler handler) throws IOException {
+        long maxLsn = 0;
+        List<Path> segments = segments();
+        for (int i = 0; i < segments.size(); i++) {
+            Path segment = segments.get(i);
+            long validBytes = 0;
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(segment))) {
+                DataInputStream records = new DataInputStream(in);
+                byte[] record;
+                while ((record = readRecord(records)) != null) {
+                    DataInputStream payload = new DataInputStream(new ByteArrayInputStream(record));
+                    long lsn = payload.readLong();
+                    handler.accept(lsn, payload);
+                    maxLsn = Math.max(maxLsn, lsn);
+                    validBytes += HEADER_BYTES + record.length;
+                }
+            } catch (EOFException | CorruptRecordException e) {
+                List<Path> newer = segments.subList(i + 1, segments.size());
+                for (Path later : newer) {
+                    if (Files.size(later) > 0) {
+                        throw new IOException("Bad record in " + segment + " at byte " + validBytes
+                                + " is followed by newer records in " + later, e);
+                    }
+                }
+                try (FileChannel torn = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+                    torn.truncate(validBytes);
+                }
+                for (Path later : newer) {
+                    Files.delete(later);
+                }
+                break;
+            }
+        }
+        return maxLsn;
+    }
+
+    /**
+     * Starts accepting appends in a fresh segment, numbering records from {@code firstLsn}.
+     */
+    void open(long firstLsn) throws IOException {
+        Files.createDirectories(directory);
+        lock.lock();
+        try {
+            nextLsn = firstLsn;
+            lastQueuedLsn = firstLsn - 1;
+            durableLsn = firstLsn - 1;
+            channel = openSegment(firstLsn);
+            closed = false;
+        } finally {
+            lock.unlock();
+        }
+        flusher = new Thread(this::flushLoop, "addressbook-wal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Queues one record and waits until it has been written (and forced, if fsync is enabled).
+     *
+     * @return the LSN assigned to the record
+     */
+    long append(byte[] payload) {
+        lock.lock();
+        try {
+            if (closed) throw new IllegalStateException("Write-ahead log is closed");
+            checkFailure();
+
+            long lsn = nextLsn++;
+            CRC32 crc = new CRC32();
+            ByteBuffer lsnBytes = ByteBuffer.allocate(Long.BYTES).putLong(0, lsn);
+            crc.update(lsnBytes.array());
+            crc.update(payload);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES)
+                    .putInt(0, Long.BYTES + payload.length)
+                    .putInt(Integer.BYTES, (int) crc.getValue());
+            queued.writeBytes(header.array());
+            queued.writeBytes(lsnBytes.array());
+            queued.writeBytes(payload);
+            lastQueuedLsn = lsn;
+            recordsQueued.signal();
+
+            while (durableLsn < lsn) {
+                checkFailure();
+                recordsDurable.awaitUninterruptibly();
+            }
+            return lsn;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Throws if {@link #append} can no longer succeed, because the log is closed or a write has failed.
+     */
+    void checkWritable() {
+        lock.lock();
+        try {
+            if (closed) throw new IllegalStateException("Write-ahead log is closed");
+            checkFailure();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits for queued records to become durable, then continues the log in a new segment.
+     *
+     * @return the first LSN of the new segment; every record in older segments has a lower LSN
+     */
+    long rotate() throws IOException {
+        lock.lock();
+        try {
+            awaitQuiescent();
+            channel.close();
+            channel = openSegment(nextLsn);
+            return nextLsn;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Deletes whole segments whose records all have an LSN below {@code lsn}.
+     */
+    void deleteSegmentsBefore(long lsn) throws IOException {
+        List<Path> segments = segments();
+        for (int i = 0; i + 1 < segments.size(); i++) {
+            if (firstLsn(segments.get(i + 1)) <= lsn) {
+                Files.deleteIfExists(segments.get(i));
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) return;
+            awaitQuiescent();
+            closed = true;
+            recordsQueued.signalAll();
+            channel.close();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            FileChannel target;
+            long batchLsn;
+            lock.lock();
+            try {
+                while (queued.size() == 0 && !closed) {
+                    recordsQueued.awaitUninterruptibly();
+                }
+                if (queued.size() == 0) return;
+
+                ByteArrayOutputStream batch = queued;
+                queued = writing;
+                writing = batch;
+                batchLsn = lastQueuedLsn;
+                target = channel;
+                flushing = true;
+            } finally {
+                lock.unlock();
+            }
+
+            IOException error = null;
+            try {
+                ByteBuffer bytes = ByteBuffer.wrap(writing.toByteArray());
+                while (bytes.hasRemaining()) {
+                    target.write(bytes);
+                }
+                if (fsync) {
+                    target.force(false);
+                }
+            } catch (IOException e) {
+                error = e;
+            }
+            writing.reset();
+
+            lock.lock();
+            try {
+                flushing = false;
+                if (error != null) {
+                    failure = error;
+                } else {
+                    durableLsn = batchLsn;
+                }
+                recordsDurable.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // Caller holds the lock. Returns once nothing is queued or being written.
+    private void awaitQuiescent() throws IOException {
+        while (queued.size() > 0 || flushing) {
+            if (failure != null) throw failure;
+            recordsDurable.awaitUninterruptibly();
+        }
+        if (failure != null) throw failure;
+    }
+
+    private void checkFailure() {
+        if (failure != null) {
+            throw new UncheckedIOException("Write-ahead log failed", failure);
+        }
+    }
+
+    private FileChannel openSegment(long firstLsn) throws IOException {
+        Path segment = directory.resolve(SEGMENT_PREFIX + String.format("%020d", firstLsn) + SEGMENT_SUFFIX);
+        return FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private List<Path> segments() throws IOException {
+        if (!Files.isDirectory(directory)) return List.of();
+
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> segments = new ArrayList<>(files
+                    .filter(file -> {
+                        String name = file.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .toList());
+            segments.sort((a, b) -> Long.compare(firstLsn(a), firstLsn(b)));
+            return segments;
+        }
+    }
+
+    private static long firstLsn(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static byte[] readRecord(DataInputStream in) throws IOException {
+        int first = in.read();
+        if (first < 0) return null; // clean end of segment
+
+        int length = first << 24 | in.readUnsignedByte() << 16 | in.readUnsignedByte() << 8 | in.readUnsignedByte();
+        int expectedCrc = in.readInt();
+        if (length < Long.BYTES || length > MAX_RECORD_BYTES) throw new CorruptRecordException();
+
+        byte[] record = new byte[length];
+        in.readFully(record);
+        CRC32 crc = new CRC32();
+        crc.update(record);
+        if ((int) crc.getValue() != expectedCrc) throw new CorruptRecordException();
+        return record;
+    }
+
+    private static class CorruptRecordException extends IOException {
+    }
+}
@@ -0,0 +1,320 @@
+package com.reece.persistence;
+
+import com.reece.model.AddressBook;
+import com.reece.model.Contact;
+import com.reece.model.User;
+import com.reece.service.AddressBookStore;
+import com.reece.service.UserAddressBookService;
+
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Keeps the in-memory store durable with a {@link WriteAheadLog} plus periodic binary snapshots.
+ * <p>
+ * Each change is logged before the request returns. After a failed log write the store refuses further
+ * changes, so only the change that hit the failure can be in memory without being on disk. A snapshot rotates the log, then copies each user
+ * under that user's lock, one user at a time, so writers are never paused globally. Every user's
+ * entry records the LSN of the last change it reflects. On startup the snapshot is loaded and only
+ * the log records newer than each user's LSN are replayed, after which older segments can be deleted.
+ */
+@Component
+@ConditionalOnProperty(name = "addressbook.storage", havingValue = "wal")
+public class WriteAheadLogStore implements AddressBookStore {
+
+    private static final Logger log = LoggerFactory.getLogger(WriteAheadLogStore.class);
+
+    private static final String SNAPSHOT_FILE = "snapshot.bin";
+    private static final int SNAPSHOT_MAGIC = 0x41425331; // "ABS1"
+
+    private static final byte CREATE_BOOK = 1;
+    private static final byte ADD_CONTACTS = 2;
+    private static final byte REMOVE_CONTACT = 3;
+    private static final byte UPDATE_CONTACT = 4;
+    private static final byte REMOVE_BOOK = 5;
+
+    private final Path directory;
+    private final Duration snapshotInterval;
+    private final WriteAheadLog writeAheadLog;
+
+    // LSN of the last logged change per user; written under that user's lock.
+    private final Map<String, Long> userLsns = new ConcurrentHashMap<>();
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+
+    private UserAddressBookService service;
+    private ScheduledExecutorService snapshotScheduler;
+    private volatile long lastSnapshotLsn;
+    private volatile long lastLoggedLsn;
+
+    public WriteAheadLogStore(@Value("${addressbook.wal.directory:./data/wal}") Path directory,
+                              @Value("${addressbook.wal.fsync:true}") boolean fsync,
+                              @Value("${addressbook.wal.snapshot-interval:PT10M}") Duration snapshotInterval) {
+        this.directory = directory;
+        this.snapshotInterval = snapshotInterval;
+        this.writeAheadLog = new WriteAheadLog(directory, fsync);
+    }
+
+    @Override
+    public void onAddressBookCreated(String userId, String bookName) {
+        append(userId, CREATE_BOOK, out -> out.writeUTF(bookName));
+    }
+
+    @Override
+    public void onContactsAdded(String userId, String bookName, List<Contact> contacts) {
+        append(userId, ADD_CONTACTS, out -> {
+            out.writeUTF(bookName);
+            out.writeInt(contacts.size());
+            for (Contact contact : contacts) {
+                writeContact(out, contact);
+            }
+        });
+    }
+
+    @Override
+    public void onContactRemoved(String userId, String bookName, Contact contact) {
+        append(userId, REMOVE_CONTACT, out -> {
+            out.writeUTF(bookName);
+            writeContact(out, contact);
+        });
+    }
+
+    @Override
+    public void onContactUpdated(String userId, String bookName, Contact oldContact, Contact newContact) {
+        append(userId, UPDATE_CONTACT, out -> {
+            out.writeUTF(bookName);
+            writeContact(out, oldContact);
+            writeContact(out, newContact);
+        });
+    }
+
+    @Override
+    public void onAddressBookRemoved(String userId, String bookName) {
+        append(userId, REMOVE_BOOK, out -> out.writeUTF(bookName));
+    }
+
+    @Override
+    public void checkWritable() {
+        writeAheadLog.checkWritable();
+    }
+
+    @Override
+    public void restore(UserAddressBookService service) {
+        this.service = service;
+        try {
+            loadSnapshot();
+            long maxLsn = writeAheadLog.replay((lsn, payload) -> replayRecord(lsn, payload));
+            lastLoggedLsn = Math.max(maxLsn, lastSnapshotLsn);
+            writeAheadLog.open(lastLoggedLsn + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not restore address books from " + directory, e);
+        }
+
+        if (!snapshotInterval.isZero()) {
+            snapshotScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "addressbook-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long intervalMillis = snapshotInterval.toMillis();
+            snapshotScheduler.scheduleWithFixedDelay(this::snapshotQuietly, intervalMillis, intervalMillis,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Writes a new snapshot if anything was logged since the last one, then drops the log segments it covers.
+     */
+    public void snapshot() throws IOException {
+        snapshotLock.lock();
+        try {
+            if (lastLoggedLsn == lastSnapshotLsn) return;
+
+            long rotatedAt = writeAheadLog.rotate();
+            Path temporary = directory.resolve(SNAPSHOT_FILE + ".tmp");
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                CheckedOutputStream checked = new CheckedOutputStream(
+                        new BufferedOutputStream(Channels.newOutputStream(channel)), new CRC32());
+                DataOutputStream out = new DataOutputStream(checked);
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeLong(rotatedAt - 1);
+                for (User user : service.getAllUsers()) {
+                    out.write(copyUser(user));
+                }
+                out.writeBoolean(false);
+                out.flush();
+                out.writeLong(checked.getChecksum().getValue());
+                out.flush();
+                channel.force(true);
+            }
+            Files.move(temporary, directory.resolve(SNAPSHOT_FILE),
+                    StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            lastSnapshotLsn = rotatedAt - 1;
+            writeAheadLog.deleteSegmentsBefore(rotatedAt);
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (snapshotScheduler != null) {
+            snapshotScheduler.shutdownNow();
+        }
+        writeAheadLog.close();
+    }
+
+    private void append(String userId, byte type, PayloadWriter payloadWriter) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(type);
+            out.writeUTF(userId);
+            payloadWriter.write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        long lsn = writeAheadLog.append(bytes.toByteArray());
+        userLsns.put(userId, lsn);
+        lastLoggedLsn = lsn;
+    }
+
+    // Serialises one user while holding its lock, so the entry and its LSN describe the same state.
+    private byte[] copyUser(User user) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        ReentrantLock lock = user.getLock();
+        lock.lock();
+        try {
+            out.writeBoolean(true);
+            out.writeUTF(user.getUserId());
+            out.writeLong(userLsns.getOrDefault(user.getUserId(), 0L));
+            out.writeInt(user.getAddressBooks().size());
+            for (AddressBook book : user.getAllAddressBooks()) {
+                out.writeUTF(book.getName());
+                out.writeInt(book.getContacts().size());
+                for (Contact contact : book.getContacts()) {
+                    writeContact(out, contact);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        return bytes.toByteArray();
+    }
+
+    private void loadSnapshot() throws IOException {
+        Path snapshot = directory.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(snapshot)) return;
+
+        try (InputStream file = new BufferedInputStream(Files.newInputStream(snapshot))) {
+            CheckedInputStream checked = new CheckedInputStream(file, new CRC32());
+            DataInputStream in = new DataInputStream(checked);
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Not an address book snapshot: " + snapshot);
+            }
+            long snapshotLsn = in.readLong();
+            while (in.readBoolean()) {
+                String userId = in.readUTF();
+                userLsns.put(userId, in.readLong());
+                int books = in.readInt();
+                for (int book = 0; book < books; book++) {
+                    String bookName = in.readUTF();
+                    service.createAddressBookForUser(userId, bookName);
+                    int contacts = in.readInt();
+                    List<Contact> chunk = new ArrayList<>(Math.min(contacts, 1000));
+                    for (int i = 0; i < contacts; i++) {
+                        chunk.add(readContact(in));
+                        if (chunk.size() == 1000) {
+                            service.addContactsToAddressBook(userId, bookName, chunk);
+                            chunk.clear();
+                        }
+                    }
+                    service.addContactsToAddressBook(userId, bookName, chunk);
+                }
+            }
+            long expectedChecksum = checked.getChecksum().getValue();
+            if (in.readLong() != expectedChecksum) {
+                throw new IOException("Snapshot checksum mismatch: " + snapshot);
+            }
+            lastSnapshotLsn = snapshotLsn;
+        }
+    }
+
+    private void replayRecord(long lsn, DataInputStream payload) throws IOException {
+        byte type = payload.readByte();
+        String userId = payload.readUTF();
+        if (lsn <= userLsns.getOrDefault(userId, 0L)) return; // already in the snapshot
+
+        String bookName = payload.readUTF();
+        switch (type) {
+            case CREATE_BOOK -> service.createAddressBookForUser(userId, bookName);
+            case ADD_CONTACTS -> {
+                int count = payload.readInt();
+                List<Contact> contacts = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    contacts.add(readContact(payload));
+                }
+                service.addContactsToAddressBook(userId, bookName, contacts);
+            }
+            case REMOVE_CONTACT -> service.removeContactForUser(userId, bookName, readContact(payload));
+            case UPDATE_CONTACT -> service.updateContactForUser(userId, bookName, readContact(payload), readContact(payload));
+            case REMOVE_BOOK -> service.removeAddressBookForUser(userId, bookName);
+            default -> throw new IOException("Unknown write-ahead log record type " + type + " at LSN " + lsn);
+        }
+        userLsns.put(userId, lsn);
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (IOException | RuntimeException e) {
+            log.error("Address book snapshot failed; the write-ahead log is kept", e);
+        }
+    }
+
+    private static void writeContact(DataOutputStream out, Contact contact) throws IOException {
+        out.writeUTF(contact.getName());
+        out.writeUTF(contact.getPhone());
+    }
+
+    private static Contact readContact(DataInputStream in) throws IOException {
+        return new Contact(in.readUTF(), in.readUTF());
+    }
+
+    @FunctionalInterface
+    private interface PayloadWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+}
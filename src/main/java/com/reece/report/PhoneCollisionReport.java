@@ -0,0 +1,407 @@
+package com.reece.report;
+
+import com.reece.model.AddressBook;
+import com.reece.model.Contact;
+import com.reece.model.Page;
+import com.reece.model.PhoneCollision;
+import com.reece.model.ReportStatus;
+import com.reece.model.User;
+import com.reece.service.PageCursors;
+import com.reece.service.UserAddressBookService;
+
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Store-wide report of phone numbers held under more than one name, built in the background so that a
+ * data-quality check never has to page every user out through the API.
+ * <p>
+ * A run walks the users and their books with the same lock-free reads as the listing endpoints, so writers
+ * are never paused and the report is a weakly consistent view of the store. Every (phone, user, book, name)
+ * is buffered into a chunk of {@code addressbook.report.chunk-size} occurrences, and each full chunk is sorted
+ * and spilled to a run file. The runs are then k-way merged, streaming, into the inverted phone order, and
+ * only numbers seen under two or more names are written to the result file. Heap use is therefore bounded by
+ * one chunk plus a read buffer per run, however large the store. Disk use is about the size of the raw data.
+ * <p>
+ * The result file is paged by byte offset. A new run replaces it only once it completes.
+ */
+@Component
+public class PhoneCollisionReport {
+
+    static final int MAX_ENTRIES = 1000;
+
+    private static final Logger log = LoggerFactory.getLogger(PhoneCollisionReport.class);
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    // Inverted order: all occurrences of a number together, then by user so collisions within a user can be seen.
+    private static final Comparator<Occurrence> ORDER = Comparator.comparing(Occurrence::phone)
+            .thenComparing(Occurrence::userId)
+            .thenComparing(Occurrence::name)
+            .thenComparing(Occurrence::book);
+
+    private final UserAddressBookService userAddressBookService;
+    private final Path directory;
+    private final int chunkSize;
+    private final ExecutorService executor;
+
+    private volatile ReportStatus latest;
+    private volatile Result completed;
+
+    @Autowired
+    public PhoneCollisionReport(UserAddressBookService userAddressBookService,
+                                @Value("${addressbook.report.directory:./data/reports}") Path directory,
+                                @Value("${addressbook.report.chunk-size:500000}") int chunkSize) {
+        this(userAddressBookService, directory, chunkSize, Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "addressbook-report");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    PhoneCollisionReport(UserAddressBookService userAddressBookService, Path directory, int chunkSize,
+                         ExecutorService executor) {
+        if (chunkSize < 1) throw new IllegalArgumentException("addressbook.report.chunk-size must be positive");
+
+        this.userAddressBookService = userAddressBookService;
+        this.directory = directory;
+        this.chunkSize = chunkSize;
+        this.executor = executor;
+    }
+
+    /**
+     * Starts a run in the background.
+     *
+     * @return the new run's status, or null if a run is already in progress
+     */
+    public synchronized ReportStatus start() {
+        if (latest != null && latest.getState() == ReportStatus.State.RUNNING) return null;
+
+        ReportStatus status = new ReportStatus(UUID.randomUUID().toString(), ReportStatus.State.RUNNING,
+                Instant.now(), null, 0, 0, 0, null);
+        latest = status;
+        executor.execute(() -> run(status));
+        return status;
+    }
+
+    /**
+     * @return the status of the current or last run, or null if none was ever started
+     */
+    public ReportStatus status() {
+        return latest;
+    }
+
+    /**
+     * @param withinUser only numbers that some single user holds under two or more names
+     * @return a page of the last completed run in phone order, or null if no run has completed
+     */
+    public Page<PhoneCollision> results(String cursor, int limit, boolean withinUser) throws IOException {
+        PageCursors.checkLimit(limit);
+        while (true) {
+            Result result = completed;
+            if (result == null) return null;
+
+            long offset = PageCursors.decodeOffset(cursor, result.status().getId());
+            try {
+                return read(result, offset, limit, withinUser);
+            } catch (NoSuchFileException e) {
+                // Replaced by a newer run between reading `completed` and opening its file.
+                if (completed == result) throw e;
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private void run(ReportStatus status) {
+        Path work = directory.resolve("phone-collisions-" + status.getId());
+        try {
+            Files.createDirectories(work);
+            List<Path> runs = spillSortedRuns(work, status);
+            Path file = directory.resolve("phone-collisions-" + status.getId() + ".dat");
+            status.setResults(merge(runs, file));
+
+            Result previous = completed;
+            completed = new Result(status, file);
+            finish(status, ReportStatus.State.COMPLETED, null);
+            if (previous != null) Files.deleteIfExists(previous.file());
+            log.info("Phone collision report {}: {} collisions in {} contacts of {} users", status.getId(),
+                    status.getResults(), status.getContactsScanned(), status.getUsersScanned());
+        } catch (IOException | RuntimeException e) {
+            log.error("Phone collision report {} failed", status.getId(), e);
+            finish(status, ReportStatus.State.FAILED, e.getMessage());
+        } finally {
+            deleteRecursively(work);
+        }
+    }
+
+    // Synchronized with start(), which must see the run as finished once it is.
+    private synchronized void finish(ReportStatus status, ReportStatus.State state, String error) {
+        status.setError(error);
+        status.setFinishedAt(Instant.now());
+        status.setState(state);
+    }
+
+    private List<Path> spillSortedRuns(Path work, ReportStatus status) throws IOException {
+        List<Path> runs = new ArrayList<>();
+        Occurrence[] chunk = new Occurrence[chunkSize];
+        int size = 0;
+        for (User user : userAddressBookService.getAllUsers()) {
+            for (AddressBook book : user.getAllAddressBooks()) {
+                long scanned = 0;
+                for (Contact contact : book.getContacts()) {
+                    scanned++;
+                    chunk[size++] = new Occurrence(orEmpty(contact.getPhone()), user.getUserId(), book.getName(),
+                            orEmpty(contact.getName()));
+                    if (size == chunkSize) {
+                        runs.add(writeRun(work, runs.size(), chunk, size));
+                        size = 0;
+                    }
+                }
+                status.setContactsScanned(status.getContactsScanned() + scanned);
+            }
+            status.setUsersScanned(status.getUsersScanned() + 1);
+        }
+        if (size > 0) {
+            runs.add(writeRun(work, runs.size(), chunk, size));
+        }
+        return runs;
+    }
+
+    private static Path writeRun(Path work, int index, Occurrence[] chunk, int size) throws IOException {
+        Arrays.sort(chunk, 0, size, ORDER);
+        Path run = work.resolve("run-" + index);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), BUFFER_BYTES))) {
+            out.writeInt(size);
+            for (int i = 0; i < size; i++) {
+                Occurrence occurrence = chunk[i];
+                out.writeUTF(occurrence.phone());
+                out.writeUTF(occurrence.userId());
+                out.writeUTF(occurrence.book());
+                out.writeUTF(occurrence.name());
+                chunk[i] = null;
+            }
+        }
+        return run;
+    }
+
+    private static long merge(List<Path> runs, Path file) throws IOException {
+        PriorityQueue<RunReader> heads = new PriorityQueue<>(Comparator.comparing(RunReader::current, ORDER));
+        List<RunReader> readers = new ArrayList<>(runs.size());
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), BUFFER_BYTES))) {
+            for (Path run : runs) {
+                RunReader reader = new RunReader(run);
+                readers.add(reader);
+                if (reader.advance()) heads.add(reader);
+            }
+            CollisionWriter collisions = new CollisionWriter(out);
+            while (!heads.isEmpty()) {
+                RunReader reader = heads.poll();
+                collisions.accept(reader.current());
+                if (reader.advance()) heads.add(reader);
+            }
+            collisions.flush();
+            return collisions.written;
+        } finally {
+            for (RunReader reader : readers) {
+                reader.close();
+            }
+        }
+    }
+
+    private static Page<PhoneCollision> read(Result result, long offset, int limit, boolean withinUser) throws IOException {
+        try (FileChannel channel = FileChannel.open(result.file(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            channel.position(offset);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), BUFFER_BYTES));
+            List<PhoneCollision> items = new ArrayList<>(Math.min(limit, 64));
+            while (items.size() < limit && offset < size) {
+                byte[] entry = new byte[in.readInt()];
+                in.readFully(entry);
+                offset += Integer.BYTES + entry.length;
+                PhoneCollision collision = decode(entry);
+                if (!withinUser || collision.isWithinUser()) items.add(collision);
+            }
+            String nextCursor = offset < size ? PageCursors.encodeOffset(result.status().getId(), offset) : null;
+            return new Page<>(items, nextCursor);
+        }
+    }
+
+    private static PhoneCollision decode(byte[] entry) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(entry));
+        PhoneCollision collision = new PhoneCollision();
+        collision.setPhone(in.readUTF());
+        collision.setOccurrences(in.readLong());
+        collision.setWithinUser(in.readBoolean());
+        collision.setAcrossUsers(in.readBoolean());
+        collision.setTruncated(in.readBoolean());
+        int count = in.readInt();
+        List<PhoneCollision.Entry> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            entries.add(new PhoneCollision.Entry(in.readUTF(), in.readUTF(), in.readUTF()));
+        }
+        collision.setEntries(entries);
+        return collision;
+    }
+
+    private static String orEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+    private static void deleteRecursively(Path work) {
+        try (var paths = Files.walk(work)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (NoSuchFileException e) {
+            // Never created.
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Could not delete report work directory {}", work, e);
+        }
+    }
+
+    private record Result(ReportStatus status, Path file) {
+    }
+
+    private record Occurrence(String phone, String userId, String book, String name) {
+    }
+
+    private static final class RunReader implements Closeable {
+        private final DataInputStream in;
+        private int remaining;
+        private Occurrence current;
+
+        RunReader(Path run) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run), BUFFER_BYTES));
+            this.remaining = in.readInt();
+        }
+
+        Occurrence current() {
+            return current;
+        }
+
+        boolean advance() throws IOException {
+            if (remaining == 0) return false;
+
+            remaining--;
+            String phone = in.readUTF();
+            String userId = in.readUTF();
+            String book = in.readUTF();
+            current = new Occurrence(phone, userId, book, in.readUTF());
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * Consumes occurrences in {@link #ORDER} one number at a time and writes out the numbers seen under two or
+     * more names, as length-prefixed entries. Keeps at most {@link #MAX_ENTRIES} occurrences of a number.
+     */
+    private static final class CollisionWriter {
+        private final DataOutputStream out;
+        private final List<Occurrence> entries = new ArrayList<>();
+        private String phone;
+        private String firstName;
+        private String user;
+        private String userFirstName;
+        private long occurrences;
+        private boolean namesDiffer;
+        private boolean withinUser;
+        private boolean acrossUsers;
+        long written;
+
+        CollisionWriter(DataOutputStream out) {
+            this.out = out;
+        }
+
+        void accept(Occurrence occurrence) throws IOException {
+            if (!occurrence.phone().equals(phone)) {
+                flush();
+                phone = occurrence.phone();
+                firstName = occurrence.name();
+                user = occurrence.userId();
+                userFirstName = occurrence.name();
+                occurrences = 0;
+                namesDiffer = false;
+                withinUser = false;
+                acrossUsers = false;
+            } else if (!occurrence.userId().equals(user)) {
+                user = occurrence.userId();
+                userFirstName = occurrence.name();
+                acrossUsers = true;
+            } else if (!occurrence.name().equals(userFirstName)) {
+                withinUser = true;
+            }
+            if (!occurrence.name().equals(firstName)) {
+                namesDiffer = true;
+            }
+            occurrences++;
+            if (entries.size() < MAX_ENTRIES) {
+                entries.add(occurrence);
+            }
+        }
+
+        void flush() throws IOException {
+            if (phone != null && namesDiffer) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                DataOutputStream entry = new DataOutputStream(bytes);
+                entry.writeUTF(phone);
+                entry.writeLong(occurrences);
+                entry.writeBoolean(withinUser);
+                entry.writeBoolean(acrossUsers);
+                entry.writeBoolean(occurrences > entries.size());
+                entry.writeInt(entries.size());
+                for (Occurrence occurrence : entries) {
+                    entry.writeUTF(occurrence.userId());
+                    entry.writeUTF(occurrence.book());
+                    entry.writeUTF(occurrence.name());
+                }
+                out.writeInt(bytes.size());
+                bytes.writeTo(out);
+                written++;
+            }
+            entries.clear();
+        }
+    }
+}
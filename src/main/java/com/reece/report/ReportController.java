@@ -0,0 +1,68 @@
+package com.reece.report;
+
+import com.reece.model.ApiResponse;
+import com.reece.model.Page;
+import com.reece.model.PhoneCollision;
+import com.reece.model.ReportStatus;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+
+/**
+ * Starts and pages the store-wide phone collision report; see {@link PhoneCollisionReport}.
+ */
+@RestController
+@RequestMapping("/api/v1/reports/phone-collisions")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class ReportController {
+
+    private static final String DEFAULT_PAGE_SIZE = "100";
+
+    private final PhoneCollisionReport report;
+
+    public ReportController(PhoneCollisionReport report) {
+        this.report = report;
+    }
+
+    @PostMapping
+    public ResponseEntity<ApiResponse<ReportStatus>> startReport() {
+        ReportStatus started = report.start();
+        if (started == null) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(
+                    new ApiResponse<>(false, "A phone collision report is already running", report.status()));
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(
+                new ApiResponse<>(true, "Phone collision report started", started));
+    }
+
+    @GetMapping
+    public ResponseEntity<ApiResponse<ReportStatus>> getReportStatus() {
+        ReportStatus status = report.status();
+        if (status == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(
+                    new ApiResponse<>(false, "No phone collision report has been started", null));
+        }
+        return ResponseEntity.ok(new ApiResponse<>(true, "Phone collision report " + status.getState(), status));
+    }
+
+    @GetMapping("/results")
+    public ResponseEntity<ApiResponse<Page<PhoneCollision>>> getReportResults(
+            @RequestParam(defaultValue = DEFAULT_PAGE_SIZE) int limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean withinUser) throws IOException {
+        Page<PhoneCollision> page = report.results(cursor, limit, withinUser);
+        if (page == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(
+                    new ApiResponse<>(false, "No phone collision report has completed yet", null));
+        }
+        return ResponseEntity.ok(new ApiResponse<>(true, "Phone numbers held under more than one name.", page));
+    }
+}
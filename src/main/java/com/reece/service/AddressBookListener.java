@@ -0,0 +1,30 @@
+package com.reece.service;
+
+import com.reece.model.Contact;
+
+import java.util.List;
+
+/**
+ * Receives every change that {@link UserAddressBookService} applies to its store.
+ * <p>
+ * Callbacks run on the request thread while the owning user's lock is held, so events for one user
+ * arrive in the order they were applied. They fire only when state actually changed, and never for
+ * the replay performed by an {@link AddressBookStore} at startup.
+ */
+public interface AddressBookListener {
+
+    default void onAddressBookCreated(String userId, String bookName) {
+    }
+
+    default void onContactsAdded(String userId, String bookName, List<Contact> contacts) {
+    }
+
+    default void onContactRemoved(String userId, String bookName, Contact contact) {
+    }
+
+    default void onContactUpdated(String userId, String bookName, Contact oldContact, Contact newContact) {
+    }
+
+    default void onAddressBookRemoved(String userId, String bookName) {
+    }
+}
@@ -0,0 +1,47 @@
+package com.reece.service;
+
+import com.reece.model.Contact;
+import com.reece.model.ContactStorage;
+import com.reece.model.User;
+
+import java.util.List;
+
+/**
+ * A durable storage engine behind the in-memory store. It records changes as an
+ * {@link AddressBookListener} and rebuilds the in-memory state when the service starts.
+ * <p>
+ * At most one store is active, selected by the {@code addressbook.storage} property; without one the
+ * service is purely in-memory.
+ */
+public interface AddressBookStore extends AddressBookListener {
+
+    /**
+     * Replays persisted state into {@code service} through its public mutation methods.
+     * Listeners are not notified while this runs.
+     */
+    void restore(UserAddressBookService service);
+
+    /**
+     * Throws if the store can no longer record changes. The service calls it before applying each change,
+     * so a store that has failed refuses writes instead of letting memory run ahead of what is persisted.
+     */
+    default void checkWritable() {
+    }
+
+    /**
+     * Throws {@link IllegalArgumentException} if the store could not hold these values, such as a name too
+     * long for a fixed-width record. The service calls it before applying a change that stores them.
+     */
+    default void checkStorable(String userId, String bookName, List<Contact> contacts) {
+    }
+
+    /**
+     * Reads one user the first time the service is asked for it, for stores that restore nothing up front.
+     * The user is built with {@code contactStorage} and is not yet visible to the service.
+     *
+     * @return the stored user, or null if the store has no such user or restores everything in {@link #restore}
+     */
+    default User loadUser(String userId, ContactStorage contactStorage) {
+        return null;
+    }
+}
@@ -0,0 +1,162 @@
+package com.reece.service;
+
+import com.reece.model.AddressBook;
+
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+
+/**
+ * Runs an aggregation over a user's address books, like {@code Stream.collect}: each book is folded into a
+ * partial result and partial results are combined.
+ * <p>
+ * Once the books hold {@code addressbook.aggregation.parallel-threshold} contacts or more, they are split into
+ * ranges of similar contact counts on a dedicated {@link ForkJoinPool} of
+ * {@code addressbook.aggregation.parallelism} threads (0 for one per core), about four ranges per thread.
+ * Below the threshold, or for a single book, the caller's thread does the work. The pool is created on first
+ * use, so it stays separate from the common pool and from request threads.
+ */
+@Component
+public class AggregationEngine {
+
+    public static final long DEFAULT_PARALLEL_THRESHOLD = 100_000;
+
+    private static final int RANGES_PER_THREAD = 4;
+
+    private final int parallelism;
+    private final long parallelThreshold;
+    private volatile ForkJoinPool pool;
+
+    public AggregationEngine(@Value("${addressbook.aggregation.parallelism:0}") int parallelism,
+                             @Value("${addressbook.aggregation.parallel-threshold:" + DEFAULT_PARALLEL_THRESHOLD + "}")
+                             long parallelThreshold) {
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * @param container   creates an empty partial result
+     * @param accumulator folds one book into a partial result
+     * @param combiner    merges two partial results, the second covering later books than the first
+     */
+    public <R> R aggregate(List<AddressBook> books, Supplier<R> container, BiConsumer<R, AddressBook> accumulator,
+                           BinaryOperator<R> combiner) {
+        // Prefix sums of contact counts, so a range's weight and its midpoint by weight are cheap to find.
+        long[] weights = new long[books.size() + 1];
+        for (int i = 0; i < books.size(); i++) {
+            weights[i + 1] = weights[i] + books.get(i).contactCount();
+        }
+        long total = weights[books.size()];
+        Fold<R> fold = new Fold<>(books, weights, Math.max(1, total / ((long) parallelism * RANGES_PER_THREAD)),
+                container, accumulator, combiner, 0, books.size());
+        if (books.size() < 2 || total < parallelThreshold || parallelism == 1) return fold.sequential();
+
+        return pool().invoke(fold);
+    }
+
+    /**
+     * @return whether {@link #aggregate} would split these books over the pool
+     */
+    public boolean runsInParallel(List<AddressBook> books) {
+        if (books.size() < 2 || parallelism == 1) return false;
+
+        long total = 0;
+        for (AddressBook book : books) {
+            total += book.contactCount();
+        }
+        return total >= parallelThreshold;
+    }
+
+    public int parallelism() {
+        return parallelism;
+    }
+
+    @PreDestroy
+    public void close() {
+        if (pool != null) pool.shutdownNow();
+    }
+
+    private ForkJoinPool pool() {
+        ForkJoinPool current = pool;
+        if (current != null) return current;
+
+        synchronized (this) {
+            if (pool == null) {
+                pool = new ForkJoinPool(parallelism, forkJoinPool -> {
+                    ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+                    thread.setName("addressbook-aggregation-" + thread.getPoolIndex());
+                    return thread;
+                }, null, false);
+            }
+            return pool;
+        }
+    }
+
+    private static final class Fold<R> extends RecursiveTask<R> {
+        private final List<AddressBook> books;
+        private final long[] weights;
+        private final long grain;
+        private final Supplier<R> container;
+        private final BiConsumer<R, AddressBook> accumulator;
+        private final BinaryOperator<R> combiner;
+        private final int from;
+        private final int to;
+
+        Fold(List<AddressBook> books, long[] weights, long grain, Supplier<R> container,
+             BiConsumer<R, AddressBook> accumulator, BinaryOperator<R> combiner, int from, int to) {
+            this.books = books;
+            this.weights = weights;
+            this.grain = grain;
+            this.container = container;
+            this.accumulator = accumulator;
+            this.combiner = combiner;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected R compute() {
+            if (to - from < 2 || weights[to] - weights[from] <= grain) return sequential();
+
+            int middle = split();
+            Fold<R> left = new Fold<>(books, weights, grain, container, accumulator, combiner, from, middle);
+            Fold<R> right = new Fold<>(books, weights, grain, container, accumulator, combiner, middle, to);
+            left.fork();
+            R rightResult = right.compute();
+            return combiner.apply(left.join(), rightResult);
+        }
+
+        R sequential() {
+            R result = container.get();
+            for (int i = from; i < to; i++) {
+                accumulator.accept(result, books.get(i));
+            }
+            return result;
+        }
+
+        // First index whose prefix weight reaches half of the range, kept inside (from, to).
+        private int split() {
+            long half = weights[from] + (weights[to] - weights[from]) / 2;
+            int low = from + 1;
+            int high = to - 1;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (weights[middle] < half) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+}
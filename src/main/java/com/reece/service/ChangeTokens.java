@@ -0,0 +1,38 @@
+package com.reece.service;
+
+/**
+ * Encodes a user version into the opaque token handed to delta-sync clients, and back.
+ * <p>
+ * Tokens carry an epoch chosen when the process starts. Versions start over after a restart, so a token
+ * from an earlier process decodes as unknown and the client is sent a snapshot. Within a process a user
+ * created again after removal continues above its old versions, so its old tokens are answered with one too. Malformed tokens
+ * are rejected with {@link IllegalArgumentException}, which the API reports as 400.
+ */
+public final class ChangeTokens {
+
+    /** Returned for a missing token or one from another process. */
+    public static final long UNKNOWN = -1;
+
+    private static final String EPOCH = Long.toString(System.currentTimeMillis(), 36);
+    private static final char SEPARATOR = '.';
+
+    private ChangeTokens() {
+    }
+
+    public static String encode(long version) {
+        return EPOCH + SEPARATOR + version;
+    }
+
+    public static long decode(String token) {
+        if (token == null) return UNKNOWN;
+
+        int separator = token.lastIndexOf(SEPARATOR);
+        try {
+            long version = Long.parseLong(token.substring(separator + 1));
+            if (separator < 0 || version < 0) throw new NumberFormatException();
+            return token.substring(0, separator).equals(EPOCH) ? version : UNKNOWN;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid change token: " + token);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.reece.service;
+
+import com.reece.model.Contact;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Encodes the last key of a page into an opaque, URL-safe cursor and back.
+ * Malformed cursors are rejected with {@link IllegalArgumentException}, which the API reports as 400.
+ */
+public final class PageCursors {
+
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    private static final char SEPARATOR = '\n';
+
+    private PageCursors() {
+    }
+
+    public static String encodeContact(Contact contact) {
+        return encode(contact.getPhone() + SEPARATOR + contact.getName());
+    }
+
+    public static Contact decodeContact(String cursor) {
+        if (cursor == null) return null;
+
+        String key = decode(cursor);
+        int separator = key.indexOf(SEPARATOR);
+        if (separator < 0) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        return new Contact(key.substring(separator + 1), key.substring(0, separator));
+    }
+
+    public static String encodeName(String name) {
+        return encode(name);
+    }
+
+    public static String decodeName(String cursor) {
+        return cursor == null ? null : decode(cursor);
+    }
+
+    /**
+     * A position in a file written by one run of a job, so that a cursor outliving its run is rejected.
+     */
+    public static String encodeOffset(String run, long offset) {
+        return encode(run + SEPARATOR + offset);
+    }
+
+    /**
+     * @return the offset, or 0 for a null cursor
+     */
+    public static long decodeOffset(String cursor, String run) {
+        if (cursor == null) return 0;
+
+        String key = decode(cursor);
+        int separator = key.lastIndexOf(SEPARATOR);
+        if (separator < 0 || !key.substring(0, separator).equals(run)) {
+            throw new IllegalArgumentException("Invalid or expired cursor: " + cursor);
+        }
+        try {
+            return Long.parseLong(key.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+
+    public static void checkLimit(int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+    }
+
+    private static String encode(String key) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decode(String cursor) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+}
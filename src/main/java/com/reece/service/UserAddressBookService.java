@@ -1,47 +1,230 @@
 package com.reece.service;
 
 import com.reece.model.AddressBook;
+import com.reece.model.BatchOperation;
+import com.reece.model.BatchOperationResult;
+import com.reece.model.BatchResult;
+import com.reece.model.ChangeSet;
 import com.reece.model.Contact;
+import com.reece.model.ContactLookup;
+import com.reece.model.ContactChange;
+import com.reece.model.ContactCounts;
+import com.reece.model.ContactStorage;
+import com.reece.model.DuplicateContact;
+import com.reece.model.Page;
+import com.reece.model.UpdateResult;
 import com.reece.model.User;
+
+import io.micrometer.core.annotation.Timed;
+import jakarta.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashMap;
-
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
+/**
+ * Thread-safe in-memory store of users and their address books.
+ * <p>
+ * Users live in a {@link ConcurrentHashMap}; each mutation takes only the owning user's lock, so
+ * requests for different users never block each other. Reads are lock-free over the concurrent
+ * collections held by {@link User} and {@link AddressBook}. Contact mutations go through {@link User}
+ * so that its unique-contact index stays in step with the books.
+ * <p>
+ * Every applied change is published to the registered {@link AddressBookListener}s; an optional
+ * {@link AddressBookStore} uses that to persist the data and replays it back on startup, or pages each user
+ * in on first access.
+ * <p>
+ * Every public method is timed as {@code addressbook.service}, tagged with the method name.
+ */
 @Service
+@Timed("addressbook.service")
 public class UserAddressBookService {
-    private Map<String, User> userStore = new HashMap<>();
+    private static final int LOAD_STRIPES = 64;
+    private static final int MAX_CACHED_MISSES = 10_000;
+
+    private final ConcurrentMap<String, User> userStore = new ConcurrentHashMap<>();
+    // Loads of users on the same stripe are serialised, so a slow store read never holds a map bin lock.
+    private final ReentrantLock[] loadLocks = new ReentrantLock[LOAD_STRIPES];
+    // Users the store was asked for and did not have. A user leaves userStore only when it is removed from
+    // the store too, so an entry is never hidden by a later creation; the set is simply cleared when full.
+    private final Set<String> missingUsers = ConcurrentHashMap.newKeySet();
+    // Store-wide totals for the size gauges, kept up to date by the mutations below.
+    private final LongAdder addressBookCount = new LongAdder();
+    private final LongAdder contactCount = new LongAdder();
+
+    private List<AddressBookListener> listeners = List.of();
+    private AddressBookStore store;
+    private volatile boolean restoring;
+    private ContactStorage contactStorage = ContactStorage.SKIP_LIST;
+    private AggregationEngine aggregationEngine =
+            new AggregationEngine(0, AggregationEngine.DEFAULT_PARALLEL_THRESHOLD);
+
+    public UserAddressBookService() {
+        for (int i = 0; i < LOAD_STRIPES; i++) {
+            loadLocks[i] = new ReentrantLock();
+        }
+    }
+
+    @Autowired(required = false)
+    public void setListeners(List<AddressBookListener> listeners) {
+        this.listeners = List.copyOf(listeners);
+    }
+
+    @Autowired(required = false)
+    public void setStore(AddressBookStore store) {
+        this.store = store;
+    }
+
+    @Autowired(required = false)
+    public void setAggregationEngine(AggregationEngine aggregationEngine) {
+        this.aggregationEngine = aggregationEngine;
+    }
+
+    @Value("${addressbook.contacts.storage:skip-list}")
+    public void setContactStorage(ContactStorage contactStorage) {
+        this.contactStorage = contactStorage;
+    }
+
+    @PostConstruct
+    public void restore() {
+        if (store == null) return;
+
+        restoring = true;
+        try {
+            store.restore(this);
+        } finally {
+            restoring = false;
+        }
+    }
 
     public boolean createAddressBookForUser(String userId, String bookName) {
-        User user = userStore.get(userId);
+        checkWritable();
+        checkStorable(userId, bookName, List.of());
+        return createBook(userId, bookName);
+    }
+
+    // The unchecked mutations below are shared with applyBatch, which checks once up front and must be able
+    // to undo its changes even after the store has started refusing writes.
+    private boolean createBook(String userId, String bookName) {
+        User user = findUser(userId);
         if (user == null) {
-            User user1 = new User();//creating user for first time.
-            user1.setUserId(userId);
-            userStore.put(userId, user1);
-            return user1.createAddressBook(bookName);
+            user = userStore.computeIfAbsent(userId, id -> {
+                //creating user for first time.
+                return User.builder().userId(id).contactStorage(contactStorage).build();
+            });
+        }
+        ReentrantLock lock = user.getLock();
+        lock.lock();
+        try {
+            if (!user.createAddressBook(bookName)) return false;
+
+            addressBookCount.increment();
+            notifyListeners(listener -> listener.onAddressBookCreated(userId, bookName));
+            return true;
+        } finally {
+            lock.unlock();
         }
-        return user.createAddressBook(bookName);
     }
 
     public boolean addContactToAddressBook(String userId, String bookName, Contact contact) {
-        User user = userStore.get(userId);
+        checkWritable();
+        checkStorable(userId, bookName, List.of(contact));
+        User user = findUser(userId);
         if (user == null) {
             return false;
-            //userStore.put(userId, user);
         }
 
-        AddressBook book = user.getAddressBook(bookName);
-        if (book == null) return false;
+        ReentrantLock lock = user.getLock();
+        lock.lock();
+        try {
+            AddressBook book = user.getAddressBook(bookName);
+            if (book == null) return false;
+
+            if (user.addNewContact(book, contact)) {
+                contactCount.increment();
+                notifyListeners(listener -> listener.onContactsAdded(userId, bookName, List.of(contact)));
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds a batch of contacts under a single acquisition of the user's lock.
+     *
+     * @return per-contact flags, true where the contact was newly added; null if the user or address book does not exist
+     */
+    public boolean[] addContactsToAddressBook(String userId, String bookName, List<Contact> contacts) {
+        checkWritable();
+        checkStorable(userId, bookName, contacts);
+        return addContacts(userId, bookName, contacts);
+    }
+
+    private boolean[] addContacts(String userId, String bookName, List<Contact> contacts) {
+        User user = findUser(userId);
+        if (user == null) return null;
+
+        ReentrantLock lock = user.getLock();
+        lock.lock();
+        try {
+            AddressBook book = user.getAddressBook(bookName);
+            if (book == null) return null;
+
+            boolean[] added = new boolean[contacts.size()];
+            List<Contact> addedContacts = new ArrayList<>(contacts.size());
+            for (int i = 0; i < added.length; i++) {
+                added[i] = user.addNewContact(book, contacts.get(i));
+                if (added[i]) {
+                    addedContacts.add(contacts.get(i));
+                }
+            }
+            if (!addedContacts.isEmpty()) {
+                contactCount.add(addedContacts.size());
+                notifyListeners(listener -> listener.onContactsAdded(userId, bookName, addedContacts));
+            }
+            return added;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean hasAddressBook(String userId, String bookName) {
+        User user = findUser(userId);
+        return user != null && user.getAddressBook(bookName) != null;
+    }
 
-        return book.addContact(contact);
+    /**
+     * @return the address book, or null if the user or address book does not exist
+     */
+    public AddressBook getAddressBook(String userId, String bookName) {
+        User user = findUser(userId);
+        return user == null ? null : user.getAddressBook(bookName);
     }
 
     public Set<Contact> getContacts(String userId, String bookName) {
-        User user = userStore.get(userId);
+        User user = findUser(userId);
         if (user == null) return Set.of();
 
         AddressBook book = user.getAddressBook(bookName);
@@ -50,54 +233,564 @@ public class UserAddressBookService {
         return book.getContacts();
     }
 
+    /**
+     * @return the page of contacts after {@code cursor}, or null if the user or address book does not exist
+     */
+    public Page<Contact> getContactsPage(String userId, String bookName, String cursor, int limit) {
+        PageCursors.checkLimit(limit);
+        Contact after = PageCursors.decodeContact(cursor);
+
+        User user = findUser(userId);
+        if (user == null) return null;
+
+        AddressBook book = user.getAddressBook(bookName);
+        if (book == null) return null;
+
+        return Page.of(book.contactsAfter(after), limit, PageCursors::encodeContact);
+    }
+
     public boolean removeContactForUser(String userId, String bookName, Contact contact) {
-        User user = userStore.get(userId);
+        checkWritable();
+        return removeContact(userId, bookName, contact);
+    }
+
+    private boolean removeContact(String userId, String bookName, Contact contact) {
+        User user = findUser(userId);
         if (user == null) return false;
 
-        AddressBook addressBook = user.getAddressBook(bookName);
-        if (addressBook == null) {
-            return false;
+        ReentrantLock lock = user.getLock();
+        lock.lock();
+        try {
+            if (!user.removeContact(bookName, contact)) return false;
+
+            contactCount.decrement();
+            notifyListeners(listener -> listener.onContactRemoved(userId, bookName, contact));
+            return true;
+        } finally {
+            lock.unlock();
         }
-        return addressBook.removeContact(contact);
     }
 
     public Set<Contact> getUniqueContactsAcrossAllBooks(String userId) {
-        User user = userStore.get(userId);
+        User user = findUser(userId);
         if (user == null) return Set.of();
+        if (user.getContactStorage() != ContactStorage.COMPACT) return user.getUniqueContacts();
+
+        // Compact users keep no index; a large one is deduplicated across cores instead of by one merge.
+        List<AddressBook> books = List.copyOf(user.getAllAddressBooks());
+        if (!aggregationEngine.runsInParallel(books)) return user.getUniqueContacts();
 
-        Set<Contact> uniqueContacts = new HashSet<>();
+        Set<Contact> unique = aggregationEngine.<Set<Contact>>aggregate(books, HashSet::new,
+                (contacts, book) -> contacts.addAll(book.getContacts()),
+                (first, second) -> {
+                    Set<Contact> larger = first.size() >= second.size() ? first : second;
+                    larger.addAll(larger == first ? second : first);
+                    return larger;
+                });
+        Contact[] sorted = unique.toArray(new Contact[0]);
+        Arrays.sort(sorted, Contact.KEY_ORDER);
+        return Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(sorted)));
+    }
+
+    /**
+     * @return totals across the user's books, or null if the user does not exist
+     */
+    public ContactCounts getContactCounts(String userId) {
+        User user = findUser(userId);
+        if (user == null) return null;
 
-        for (AddressBook addressBook : user.getAllAddressBooks()) {
-            uniqueContacts.addAll(addressBook.getContacts());
+        List<AddressBook> books = List.copyOf(user.getAllAddressBooks());
+        Map<Contact, Integer> bookCounts = aggregationEngine.<Map<Contact, Integer>>aggregate(books, HashMap::new,
+                (counts, book) -> book.getContacts().forEach(contact -> counts.merge(contact, 1, Integer::sum)),
+                (first, second) -> {
+                    Map<Contact, Integer> larger = first.size() >= second.size() ? first : second;
+                    (larger == first ? second : first).forEach((contact, count) -> larger.merge(contact, count, Integer::sum));
+                    return larger;
+                });
+        long contacts = 0;
+        long duplicated = 0;
+        for (int count : bookCounts.values()) {
+            contacts += count;
+            if (count > 1) duplicated++;
         }
-        return uniqueContacts;
+        return new ContactCounts(books.size(), contacts, bookCounts.size(), duplicated);
+    }
+
+    /**
+     * @return contacts held by more than one of the user's books, in {@link Contact#KEY_ORDER}, or null if
+     *         the user does not exist
+     */
+    public List<DuplicateContact> findDuplicateContacts(String userId) {
+        User user = findUser(userId);
+        if (user == null) return null;
+
+        Map<Contact, List<String>> booksByContact = aggregationEngine.<Map<Contact, List<String>>>aggregate(
+                List.copyOf(user.getAllAddressBooks()), HashMap::new,
+                (found, book) -> book.getContacts().forEach(contact ->
+                        found.computeIfAbsent(contact, key -> new ArrayList<>(1)).add(book.getName())),
+                (first, second) -> {
+                    // Appending the later books keeps each contact's book names in order.
+                    second.forEach((contact, names) -> first.merge(contact, names, (earlier, later) -> {
+                        earlier.addAll(later);
+                        return earlier;
+                    }));
+                    return first;
+                });
+        List<DuplicateContact> duplicates = new ArrayList<>();
+        booksByContact.forEach((contact, names) -> {
+            if (names.size() > 1) duplicates.add(new DuplicateContact(contact, names));
+        });
+        duplicates.sort(Comparator.comparing(DuplicateContact::getContact, Contact.KEY_ORDER));
+        return duplicates;
+    }
+
+    public Page<Contact> getUniqueContactsPage(String userId, String cursor, int limit) {
+        PageCursors.checkLimit(limit);
+        Contact after = PageCursors.decodeContact(cursor);
+
+        User user = findUser(userId);
+        if (user == null) return new Page<>(List.of(), null);
+
+        return Page.of(user.getContactIndex().uniqueContactsAfter(after), limit, PageCursors::encodeContact);
+    }
+
+    /**
+     * Finds contacts by exact phone number or by case-insensitive name prefix (exactly one must be given)
+     * using the user's contact index, across all books or, when {@code bookName} is set, within one book.
+     *
+     * @return at most {@code limit} matches, in name order (phone search) or case-folded name order (prefix
+     * search); null if the named address book does not exist
+     */
+    public List<Contact> searchContacts(String userId, String bookName, String phone, String namePrefix, int limit) {
+        boolean byPhone = phone != null && !phone.isBlank();
+        boolean byName = namePrefix != null && !namePrefix.isBlank();
+        if (byPhone == byName) {
+            throw new IllegalArgumentException("Specify exactly one of phone or namePrefix");
+        }
+        PageCursors.checkLimit(limit);
+
+        User user = findUser(userId);
+        if (user == null) return bookName == null ? List.of() : null;
+
+        Predicate<Contact> inScope = contact -> true;
+        if (bookName != null) {
+            AddressBook book = user.getAddressBook(bookName);
+            if (book == null) return null;
+            inScope = book.getContacts()::contains;
+        }
+
+        ContactLookup index = user.getContactIndex();
+        if (byPhone) {
+            return index.findByPhone(phone).stream().filter(inScope).sorted(Contact.KEY_ORDER).limit(limit).toList();
+        }
+        return index.findByNamePrefix(namePrefix, inScope, limit);
     }
 
     public boolean removeAddressBookForUser(String userId, String bookName) {
-        User user = userStore.get(userId);
+        checkWritable();
+        return removeBook(userId, bookName);
+    }
+
+    private boolean removeBook(String userId, String bookName) {
+        User user = findUser(userId);
         if (user == null) return false;
 
-        AddressBook addressBook = user.removeAddressBook(bookName);
-        return addressBook == null ? false : true;
+        ReentrantLock lock = user.getLock();
+        lock.lock();
+        try {
+            AddressBook removed = user.removeAddressBook(bookName);
+            if (removed == null) return false;
+
+            addressBookCount.decrement();
+            contactCount.add(-removed.contactCount());
+            notifyListeners(listener -> listener.onAddressBookRemoved(userId, bookName));
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes every book of the user, notifying listeners of each, and then the user itself; used when
+     * the user moves to another node. A writer that looked the user up before this may still change the
+     * detached object.
+     */
+    public boolean removeUser(String userId) {
+        checkWritable();
+        User user = findUser(userId);
+        if (user == null) return false;
+
+        ReentrantLock lock = user.getLock();
+        lock.lock();
+        try {
+            for (String bookName : List.copyOf(user.getAddressBooks().keySet())) {
+                removeAddressBookForUser(userId, bookName);
+            }
+            return userStore.remove(userId, user);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public User getUser(String userId) {
+        return findUser(userId);
+    }
+
+    /**
+     * Live, weakly consistent view of every user in the store. With a store that loads users on first
+     * access, only those loaded since startup.
+     */
+    public Collection<User> getAllUsers() {
+        return Collections.unmodifiableCollection(userStore.values());
     }
 
     public Map<String, AddressBook>  getAllBooks(String userId) {
-        User user = userStore.get(userId);
+        User user = findUser(userId);
         if (user == null) return null;
         return user.getAddressBooks();
     }
 
+    /**
+     * @return the page of address books named after {@code cursor}, or null if the user does not exist
+     */
+    public Page<AddressBook> getAddressBooksPage(String userId, String cursor, int limit) {
+        PageCursors.checkLimit(limit);
+        String after = PageCursors.decodeName(cursor);
+
+        User user = findUser(userId);
+        if (user == null) return null;
+
+        return Page.of(user.addressBooksAfter(after).values(), limit,
+                addressBook -> PageCursors.encodeName(addressBook.getName()));
+    }
+
+    /**
+     * @return the version of the user's books as a whole (see {@link User#version()}), or -1 if the user does not exist
+     */
+    public long getUserVersion(String userId) {
+        User user = findUser(userId);
+        return user == null ? -1 : user.version();
+    }
+
+    /**
+     * @return the version of one address book (see {@link AddressBook#version()}), or -1 if the user or address
+     * book does not exist
+     */
+    public long getAddressBookVersion(String userId, String bookName) {
+        User user = findUser(userId);
+        AddressBook book = user == null ? null : user.getAddressBook(bookName);
+        return book == null ? -1 : book.version();
+    }
+
+    /**
+     * Changes to one address book since the version in {@code token}, or its full contents if the token is
+     * missing, from an earlier process or older than the book's change log reaches back.
+     *
+     * @return the changes, or null if the user or address book does not exist
+     */
+    public ChangeSet getChanges(String userId, String bookName, String token) {
+        long since = ChangeTokens.decode(token);
+        User user = findUser(userId);
+        AddressBook book = user == null ? null : user.getAddressBook(bookName);
+        if (book == null) return null;
+
+        long version = book.version();
+        List<ContactChange> changes = new ArrayList<>();
+        if (since != ChangeTokens.UNKNOWN && since <= version && book.changeLog().changesSince(since, version, changes)) {
+            return ChangeSet.delta(ChangeTokens.encode(version), changes);
+        }
+        return ChangeSet.snapshot(ChangeTokens.encode(version), Map.of(bookName, book.getContacts()));
+    }
+
+    /**
+     * Changes to all of a user's address books, including removed books, since the version in {@code token};
+     * every book in full if any of them cannot be answered from its change log.
+     *
+     * @return the changes in version order, or null if the user does not exist
+     */
+    public ChangeSet getChanges(String userId, String token) {
+        long since = ChangeTokens.decode(token);
+        User user = findUser(userId);
+        if (user == null) return null;
+
+        long version = user.version();
+        List<ContactChange> changes = new ArrayList<>();
+        boolean complete = since != ChangeTokens.UNKNOWN && since <= version
+                && user.removedBooksLog().changesSince(since, version, changes);
+        for (AddressBook book : user.getAllAddressBooks()) {
+            if (!complete) break;
+            if (book.version() > since) {
+                complete = book.changeLog().changesSince(since, version, changes);
+            }
+        }
+        if (complete) {
+            changes.sort(Comparator.comparingLong(ContactChange::getVersion));
+            return ChangeSet.delta(ChangeTokens.encode(version), changes);
+        }
+
+        Map<String, Collection<Contact>> books = new LinkedHashMap<>();
+        for (AddressBook book : user.getAllAddressBooks()) {
+            books.put(book.getName(), book.getContacts());
+        }
+        return ChangeSet.snapshot(ChangeTokens.encode(version), books);
+    }
+
+    public int getUserCount() {
+        return userStore.size();
+    }
+
+    public long getAddressBookCount() {
+        return addressBookCount.sum();
+    }
+
+    /**
+     * Total contacts across every address book, counting a contact once per book it appears in.
+     */
+    public long getContactCount() {
+        return contactCount.sum();
+    }
+
     public boolean updateContactForUser(String userId, String addressBookName, Contact oldContact, Contact newContact) {
+        return replaceContactForUser(userId, addressBookName, oldContact, newContact) == UpdateResult.UPDATED;
+    }
+
+    /**
+     * Replaces {@code oldContact} with {@code newContact} in place, as a single change.
+     *
+     * @return {@link UpdateResult#NOT_FOUND} if the user, book or old contact is missing, or
+     *         {@link UpdateResult#DUPLICATE} if the book already holds the new contact
+     * @throws IllegalArgumentException if either contact is missing or lacks a name or phone, before anything changes
+     */
+    public UpdateResult replaceContactForUser(String userId, String addressBookName, Contact oldContact,
+                                              Contact newContact) {
+        requireComplete(oldContact, "Old contact");
+        requireComplete(newContact, "New contact");
+        checkWritable();
+        checkStorable(userId, addressBookName, List.of(newContact));
+        return replaceContact(userId, addressBookName, oldContact, newContact);
+    }
+
+    private UpdateResult replaceContact(String userId, String addressBookName, Contact oldContact, Contact newContact) {
+        requireComplete(oldContact, "Old contact");
+        requireComplete(newContact, "New contact");
+        User user = findUser(userId);
+        if (user == null) return UpdateResult.NOT_FOUND;
+
+        ReentrantLock lock = user.getLock();
+        lock.lock();
+        try {
+            UpdateResult result = user.updateContact(addressBookName, oldContact, newContact);
+            if (result == UpdateResult.UPDATED) {
+                notifyListeners(listener -> listener.onContactUpdated(userId, addressBookName, oldContact, newContact));
+            }
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Applies {@code operations} in order under one acquisition of the user's lock, creating the user if a
+     * book is to be created. Without {@code atomic} a failed operation is reported and the rest still run.
+     * With it, the first failure undoes the operations applied before it, newest first, by applying their
+     * inverses, and the rest are skipped; an exception from a listener, such as a failed store write, is
+     * rethrown once the same undo has run. A user the batch created is dropped again if it is rolled back.
+     * Readers do not take the lock, so they may see a batch part way through or before it is undone.
+     *
+     * @throws IllegalArgumentException if a contact operation lacks its contact, or the store could not hold one of
+     *         the values, before anything is applied
+     */
+    public BatchResult applyBatch(String userId, List<BatchOperation> operations, boolean atomic) {
+        for (int i = 0; i < operations.size(); i++) {
+            BatchOperation operation = operations.get(i);
+            boolean needsContact = operation.getType() != BatchOperation.Type.CREATE_BOOK
+                    && operation.getType() != BatchOperation.Type.REMOVE_BOOK;
+            if (needsContact && operation.getContact() == null
+                    || operation.getType() == BatchOperation.Type.UPDATE_CONTACT && operation.getNewContact() == null) {
+                throw new IllegalArgumentException("Operation " + i + " (" + operation.getType() + ") is missing a contact");
+            }
+            switch (operation.getType()) {
+                case CREATE_BOOK -> checkStorable(userId, operation.getAddressBook(), List.of());
+                case ADD_CONTACT -> checkStorable(userId, operation.getAddressBook(), List.of(operation.getContact()));
+                case UPDATE_CONTACT -> checkStorable(userId, operation.getAddressBook(), List.of(operation.getNewContact()));
+                default -> {
+                }
+            }
+        }
+
+        checkWritable();
+        User user = findUser(userId);
+        boolean created = false;
+        if (user == null && operations.stream().anyMatch(op -> op.getType() == BatchOperation.Type.CREATE_BOOK)) {
+            User fresh = User.builder().userId(userId).contactStorage(contactStorage).build();
+            User existing = userStore.putIfAbsent(userId, fresh);
+            user = existing == null ? fresh : existing;
+            created = existing == null;
+        }
+
+        BatchResult result = new BatchResult();
+        Deque<Runnable> undo = new ArrayDeque<>();
+        ReentrantLock lock = user == null ? null : user.getLock();
+        if (lock != null) lock.lock();
+        try {
+            for (int i = 0; i < operations.size(); i++) {
+                BatchOperationResult.Status status;
+                try {
+                    status = user == null
+                            ? BatchOperationResult.Status.NOT_FOUND
+                            : apply(user, operations.get(i), atomic ? undo : null);
+                } catch (RuntimeException e) {
+                    if (atomic) rollBack(user, created, undo, e);
+                    throw e;
+                }
+                result.record(i, status);
+                if (atomic && status != BatchOperationResult.Status.APPLIED) {
+                    rollBack(user, created, undo, null);
+                    result.rollBack(i, operations.size());
+                    break;
+                }
+            }
+            return result;
+        } finally {
+            if (lock != null) lock.unlock();
+        }
+    }
+
+    // Runs the inverses newest first, each even if an earlier one throws, and drops a user this batch created.
+    // Failures are added to the exception that caused the rollback, if any, or thrown once all have run.
+    private void rollBack(User user, boolean created, Deque<Runnable> undo, RuntimeException cause) {
+        RuntimeException failure = cause;
+        for (Runnable inverse : undo) {
+            try {
+                inverse.run();
+            } catch (RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (created && user.getAddressBooks().isEmpty()) {
+            userStore.remove(user.getUserId(), user);
+        }
+        if (cause == null && failure != null) throw failure;
+    }
+
+    // The caller holds the user's lock, which the mutations below take again reentrantly. With undo, an
+    // operation's inverse is pushed before it runs and popped if it changed nothing, so an operation whose
+    // listener throws after the in-memory change is undone as well.
+    private BatchOperationResult.Status apply(User user, BatchOperation operation, Deque<Runnable> undo) {
+        String userId = user.getUserId();
+        String bookName = operation.getAddressBook();
+        Contact contact = operation.getContact();
+        Contact newContact = operation.getNewContact();
+        switch (operation.getType()) {
+            case CREATE_BOOK -> {
+                push(undo, () -> removeBook(userId, bookName));
+                if (!createBook(userId, bookName)) return pop(undo, BatchOperationResult.Status.DUPLICATE);
+            }
+            case REMOVE_BOOK -> {
+                AddressBook book = user.getAddressBook(bookName);
+                if (book == null) return BatchOperationResult.Status.NOT_FOUND;
+
+                List<Contact> contacts = undo == null ? null : List.copyOf(book.getContacts());
+                push(undo, () -> {
+                    createBook(userId, bookName);
+                    addContacts(userId, bookName, contacts);
+                });
+                removeBook(userId, bookName);
+            }
+            case ADD_CONTACT -> {
+                push(undo, () -> removeContact(userId, bookName, contact));
+                boolean[] added = addContacts(userId, bookName, List.of(contact));
+                if (added == null) return pop(undo, BatchOperationResult.Status.NOT_FOUND);
+                if (!added[0]) return pop(undo, BatchOperationResult.Status.DUPLICATE);
+            }
+            case REMOVE_CONTACT -> {
+                push(undo, () -> addContacts(userId, bookName, List.of(contact)));
+                if (!removeContact(userId, bookName, contact)) return pop(undo, BatchOperationResult.Status.NOT_FOUND);
+            }
+            case UPDATE_CONTACT -> {
+                push(undo, () -> replaceContact(userId, bookName, newContact, contact));
+                UpdateResult updated = replaceContact(userId, bookName, contact, newContact);
+                if (updated == UpdateResult.NOT_FOUND) return pop(undo, BatchOperationResult.Status.NOT_FOUND);
+                if (updated == UpdateResult.DUPLICATE) return pop(undo, BatchOperationResult.Status.DUPLICATE);
+            }
+        }
+        return BatchOperationResult.Status.APPLIED;
+    }
+
+    private static void push(Deque<Runnable> undo, Runnable inverse) {
+        if (undo != null) undo.push(inverse);
+    }
+
+    private static BatchOperationResult.Status pop(Deque<Runnable> undo, BatchOperationResult.Status status) {
+        if (undo != null) undo.pop();
+        return status;
+    }
+
+    // Users a lazily loading store has not handed over yet are paged in here, once, and added to the totals.
+    // The read happens under the user's load stripe rather than inside the map, so it blocks only other
+    // loads on that stripe; holding the stripe from the lookup to the insert means a user removed meanwhile
+    // cannot be brought back from a read made before its removal. Loaded users stay in memory until removed.
+    private User findUser(String userId) {
         User user = userStore.get(userId);
-        if (user == null) return false;
+        if (user != null || store == null || missingUsers.contains(userId)) return user;
 
-        AddressBook addressBook = user.getAddressBook(addressBookName);
-        if (addressBook != null && addressBook.getContacts().contains(oldContact)) {
-            addressBook.removeContact(oldContact);
-            addressBook.addContact(newContact);
-            return true;
+        int hash = userId.hashCode();
+        ReentrantLock lock = loadLocks[(hash ^ hash >>> 16) & (LOAD_STRIPES - 1)];
+        lock.lock();
+        try {
+            user = userStore.get(userId);
+            if (user != null || missingUsers.contains(userId)) return user;
+
+            User loaded = store.loadUser(userId, contactStorage);
+            if (loaded == null) {
+                if (missingUsers.size() >= MAX_CACHED_MISSES) missingUsers.clear();
+                missingUsers.add(userId);
+                return null;
+            }
+            User existing = userStore.putIfAbsent(userId, loaded);
+            if (existing != null) return existing;
+
+            for (AddressBook book : loaded.getAllAddressBooks()) {
+                addressBookCount.increment();
+                contactCount.add(book.contactCount());
+            }
+            return loaded;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Callers hold the user's lock, so each user's events reach listeners in the order they were applied.
+    private void notifyListeners(Consumer<AddressBookListener> event) {
+        if (restoring) return;
+
+        for (AddressBookListener listener : listeners) {
+            event.accept(listener);
+        }
+    }
+
+    // Refuses a change up front when the store could not record it, rather than applying it only in memory.
+    private void checkWritable() {
+        if (store != null && !restoring) {
+            store.checkWritable();
+        }
+    }
+
+    private void checkStorable(String userId, String bookName, List<Contact> contacts) {
+        if (store != null && !restoring) {
+            store.checkStorable(userId, bookName, contacts);
         }
-        return false;
     }
-}
 
+    // The book, the unique index and the listeners all key on name and phone, so a half-formed contact must
+    // be refused before any of them sees it.
+    private static void requireComplete(Contact contact, String what) {
+        if (contact == null || contact.getName() == null || contact.getPhone() == null) {
+            throw new IllegalArgumentException(what + " must have a name and phone");
+        }
+    }
+}
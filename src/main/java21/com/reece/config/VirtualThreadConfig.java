@@ -0,0 +1,37 @@
+package com.reece.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+import java.util.concurrent.Executors;
+
+/**
+ * Runs request handling on virtual threads when {@code addressbook.virtual-threads.enabled=true}.
+ * <p>
+ * Tomcat dispatches each request to a new virtual thread, and streamed responses
+ * ({@code StreamingResponseBody}) are written from the MVC async executor, which is replaced with a
+ * virtual-thread executor as well. {@code UserAddressBookService} and the storage engines only use
+ * {@link java.util.concurrent.locks.ReentrantLock}, so a handler blocked on a user's lock or on store
+ * I/O unmounts instead of pinning its carrier thread.
+ * <p>
+ * Only compiled by the {@code java21} Maven profile.
+ */
+@Configuration
+@ConditionalOnProperty(name = "addressbook.virtual-threads.enabled", havingValue = "true")
+public class VirtualThreadConfig {
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> protocolHandler.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    @Bean(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    public AsyncTaskExecutor applicationTaskExecutor() {
+        return new TaskExecutorAdapter(Executors.newVirtualThreadPerTaskExecutor());
+    }
+}
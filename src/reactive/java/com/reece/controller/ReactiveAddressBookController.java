@@ -0,0 +1,219 @@
+package com.reece.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.reece.model.AddressBook;
+import com.reece.model.ApiResponse;
+import com.reece.model.BulkImportResult;
+import com.reece.model.Contact;
+import com.reece.model.Page;
+import com.reece.model.UpdateContact;
+import com.reece.service.ReactiveAddressBookService;
+import com.reece.service.UserAddressBookService;
+
+import jakarta.validation.Valid;
+import jakarta.validation.Validator;
+import jakarta.validation.constraints.NotBlank;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebInputException;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * WebFlux variant of {@link AddressBookController} on the same routes, active when the application runs
+ * as a reactive web application (the {@code reactive} Spring profile).
+ * <p>
+ * Listings return {@code Flux}es straight from {@link ReactiveAddressBookService}: as a JSON array by
+ * default, or one element per line with {@code Accept: application/x-ndjson}, written as the client's
+ * demand allows. Paged listings and mutations keep the {@link ApiResponse} envelope.
+ */
+@RestController
+@RequestMapping("/api/v1/")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveAddressBookController {
+
+    // Presence of this query parameter selects keyset pagination; "cursor" continues from a previous page.
+    private static final String PAGE_LIMIT_PARAM = "limit";
+
+    private static final String DEFAULT_SEARCH_LIMIT = "100";
+
+    @Autowired
+    private ReactiveAddressBookService reactiveAddressBookService;
+
+    @Autowired
+    private UserAddressBookService userAddressBookService;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    //AC1
+    @PostMapping("users/{userId}/addressbooks/{addressbookName}/contacts")
+    public Mono<ResponseEntity<ApiResponse<Void>>> addContactToUser(@PathVariable String addressbookName,
+                                                                    @Valid @RequestBody Mono<Contact> contact,
+                                                                    @PathVariable @NotBlank String userId) {
+        return contact.flatMap(body -> reactiveAddressBookService.addContact(userId, addressbookName, body))
+                .map(added -> added
+                        ? ResponseEntity.ok(new ApiResponse<>(true,
+                                "Contact added successfully under addressbook: " + addressbookName, null))
+                        : ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ApiResponse<>(false,
+                                "Address book or contact not found: " + addressbookName, null)));
+    }
+
+    //AC1: bulk import from a JSON array or NDJSON body, decoded and imported as it arrives
+    @PostMapping(value = "/users/{userId}/addressbooks/{addressbookName}/contacts/bulk",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Mono<ResponseEntity<ApiResponse<BulkImportResult>>> importContactsToUser(@PathVariable @NotBlank String userId,
+                                                                                    @PathVariable String addressbookName,
+                                                                                    @RequestBody Flux<JsonNode> items) {
+        if (!userAddressBookService.hasAddressBook(userId, addressbookName)) {
+            return Mono.just(ResponseEntity.status(HttpStatus.NOT_FOUND).body(
+                    new ApiResponse<>(false, "Address book or contact not found: " + addressbookName, null)));
+        }
+
+        // publishOn hands items to the importer one at a time on a single worker, so its batch flushes
+        // (which take the user's lock) run off the event loop and request more only as batches complete.
+        // Items are decoded as trees and bound one by one, so an item that is not a contact is only rejected.
+        // Broken syntax ends the import; items decoded from the same chunk of the body are lost with it.
+        BulkContactImporter importer = new BulkContactImporter(userAddressBookService, validator, userId, addressbookName);
+        ObjectReader contactReader = objectMapper.readerFor(Contact.class);
+        return items.publishOn(Schedulers.boundedElastic(), BulkContactImporter.BATCH_SIZE)
+                .doOnNext(item -> importer.accept(contactReader, item))
+                .onErrorResume(ServerWebInputException.class, e -> Mono.fromRunnable(() -> importer.rejectRest(e.getReason())))
+                .then(Mono.fromCallable(importer::finish))
+                .map(result -> ResponseEntity.ok(new ApiResponse<>(true, result.getAdded() + " of "
+                        + result.getReceived() + " contacts imported into addressbook: " + addressbookName, result)));
+    }
+
+    //AC2
+    @DeleteMapping("/users/{userId}/addressbooks/{addressbookName}/contacts")
+    public Mono<ResponseEntity<ApiResponse<Void>>> removeContactForUser(@PathVariable @NotBlank String userId,
+                                                                        @PathVariable @NotBlank String addressbookName,
+                                                                        @Valid @RequestBody Mono<Contact> contact) {
+        return contact.flatMap(body -> reactiveAddressBookService.removeContact(userId, addressbookName, body))
+                .map(removed -> removed
+                        ? ResponseEntity.ok(new ApiResponse<>(true,
+                                "Contact removed successfully from addressbook : " + addressbookName, null))
+                        : ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ApiResponse<>(false,
+                                "Address book or contact not found: " + addressbookName, null)));
+    }
+
+    //AC3
+    @GetMapping(value = "/users/{userId}/addressbooks/{addressbookName}/contacts",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<Contact> getContactsForUser(@PathVariable @NotBlank String userId,
+                                            @PathVariable String addressbookName) {
+        return reactiveAddressBookService.contacts(userId, addressbookName);
+    }
+
+    //AC3: paged in phone, name order
+    @GetMapping(value = "/users/{userId}/addressbooks/{addressbookName}/contacts", params = PAGE_LIMIT_PARAM)
+    public Mono<ApiResponse<Page<Contact>>> getContactsPageForUser(@PathVariable @NotBlank String userId,
+                                                                   @PathVariable String addressbookName,
+                                                                   @RequestParam int limit,
+                                                                   @RequestParam(required = false) String cursor) {
+        return reactiveAddressBookService.contactsPage(userId, addressbookName, cursor, limit)
+                .map(page -> new ApiResponse<>(true, "All contacts retrieved under addressbook: "
+                        + addressbookName, page));
+    }
+
+    // AC4:  Users should be able to maintain multiple addressbooks
+    @GetMapping(value = "users/{userId}", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<AddressBook> getAllAddressBooks(@PathVariable @NotBlank String userId) {
+        return reactiveAddressBookService.addressBooks(userId);
+    }
+
+    // AC4: paged in addressbook name order
+    @GetMapping(value = "users/{userId}", params = PAGE_LIMIT_PARAM)
+    public Mono<ApiResponse<Page<AddressBook>>> getAddressBooksPage(@PathVariable @NotBlank String userId,
+                                                                    @RequestParam int limit,
+                                                                    @RequestParam(required = false) String cursor) {
+        return reactiveAddressBookService.addressBooksPage(userId, cursor, limit)
+                .map(page -> new ApiResponse<>(true, "All Addressbooks retrieved", page));
+    }
+
+    //  AC4:   Users should be able to maintain multiple addressbooks : updating the books
+    @PutMapping("/users/{userId}/addressbooks/{addressbookName}/contacts")
+    public Mono<ResponseEntity<ApiResponse<Void>>> updateContact(@PathVariable @NotBlank String userId,
+                                                                 @PathVariable String addressbookName,
+                                                                 @Valid @RequestBody Mono<UpdateContact> updateContact) {
+        return updateContact.flatMap(body -> reactiveAddressBookService.updateContact(userId, addressbookName,
+                        body.getOldContact(), body.getNewContact()))
+                .map(result -> switch (result) {
+                    case UPDATED -> ResponseEntity.ok(new ApiResponse<>(true,
+                            "Contact updated successfully in addressbook: " + addressbookName, null));
+                    case NOT_FOUND -> ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ApiResponse<>(false,
+                            "Old contact not found in the addressbook.", null));
+                    case DUPLICATE -> ResponseEntity.status(HttpStatus.CONFLICT).body(new ApiResponse<>(false,
+                            "New contact already exists in the addressbook.", null));
+                });
+    }
+
+    //  AC4:   Users should be able to maintain multiple addressbooks : delete addbook
+    @DeleteMapping("/users/{userId}/addressbooks/{addressbook}")
+    public Mono<ApiResponse<Void>> removeAddressbooks(@PathVariable @NotBlank String userId,
+                                                      @PathVariable String addressbook) {
+        return reactiveAddressBookService.removeAddressBook(userId, addressbook)
+                .thenReturn(new ApiResponse<>(true, "Addressbook " + addressbook + " removed successfully", null));
+    }
+
+    //AC4: create addbook
+    @PostMapping("users/{userId}/addressbooks/{addressbookName}")
+    public Mono<ResponseEntity<ApiResponse<Void>>> createAddressBookForUser(@PathVariable String addressbookName,
+                                                                            @PathVariable @NotBlank String userId) {
+        return reactiveAddressBookService.createAddressBook(userId, addressbookName)
+                .map(created -> created
+                        ? ResponseEntity.ok(new ApiResponse<>(true,
+                                "Addressbook created successfully: " + addressbookName, null))
+                        : ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ApiResponse<>(false,
+                                "user not found: " + userId, null)));
+    }
+
+    //AC5
+    @GetMapping(value = "/users/{userId}/addressbooks/contacts/unique",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<Contact> getUniqueContactsForUser(@PathVariable @NotBlank String userId) {
+        return reactiveAddressBookService.uniqueContacts(userId);
+    }
+
+    //AC5: paged in phone, name order
+    @GetMapping(value = "/users/{userId}/addressbooks/contacts/unique", params = PAGE_LIMIT_PARAM)
+    public Mono<ApiResponse<Page<Contact>>> getUniqueContactsPageForUser(@PathVariable @NotBlank String userId,
+                                                                         @RequestParam int limit,
+                                                                         @RequestParam(required = false) String cursor) {
+        return reactiveAddressBookService.uniqueContactsPage(userId, cursor, limit)
+                .map(page -> new ApiResponse<>(true, "Unique contacts retrieved from all addressbooks.", page));
+    }
+
+    //AC5: search across all addressbooks by exact phone or case-insensitive name prefix
+    @GetMapping(value = "/users/{userId}/addressbooks/contacts/search",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<Contact> searchContactsForUser(@PathVariable @NotBlank String userId,
+                                               @RequestParam(required = false) String phone,
+                                               @RequestParam(required = false) String namePrefix,
+                                               @RequestParam(defaultValue = DEFAULT_SEARCH_LIMIT) int limit) {
+        return reactiveAddressBookService.searchContacts(userId, null, phone, namePrefix, limit);
+    }
+
+    //AC3: search within one addressbook
+    @GetMapping(value = "/users/{userId}/addressbooks/{addressbookName}/contacts/search",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<Contact> searchContactsInAddressBook(@PathVariable @NotBlank String userId,
+                                                     @PathVariable String addressbookName,
+                                                     @RequestParam(required = false) String phone,
+                                                     @RequestParam(required = false) String namePrefix,
+                                                     @RequestParam(defaultValue = DEFAULT_SEARCH_LIMIT) int limit) {
+        return reactiveAddressBookService.searchContacts(userId, addressbookName, phone, namePrefix, limit);
+    }
+}
@@ -0,0 +1,118 @@
+package com.reece.service;
+
+import com.reece.exception.AddressBookAPIException;
+import com.reece.model.AddressBook;
+import com.reece.model.Contact;
+import com.reece.model.Page;
+import com.reece.model.UpdateResult;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking facade over {@link UserAddressBookService} for the WebFlux controller.
+ * <p>
+ * Reads are served from the in-memory collections without locking, so they run on the subscriber's thread
+ * and listings are emitted lazily from the live sets: a slow consumer's demand pulls contacts one at a time.
+ * Mutations take the user's lock and may write through to a storage engine, so they are moved to
+ * {@link Schedulers#boundedElastic()} and never block an event-loop thread.
+ * <p>
+ * A missing user or address book is signalled as {@link AddressBookAPIException} before anything is emitted.
+ */
+@Service
+public class ReactiveAddressBookService {
+
+    private static final Scheduler WRITE_SCHEDULER = Schedulers.boundedElastic();
+
+    @Autowired
+    private UserAddressBookService userAddressBookService;
+
+    public Mono<Boolean> createAddressBook(String userId, String bookName) {
+        return write(() -> userAddressBookService.createAddressBookForUser(userId, bookName));
+    }
+
+    public Mono<Boolean> addContact(String userId, String bookName, Contact contact) {
+        return write(() -> userAddressBookService.addContactToAddressBook(userId, bookName, contact));
+    }
+
+    public Mono<Boolean> removeContact(String userId, String bookName, Contact contact) {
+        return write(() -> userAddressBookService.removeContactForUser(userId, bookName, contact));
+    }
+
+    public Mono<UpdateResult> updateContact(String userId, String bookName, Contact oldContact, Contact newContact) {
+        return write(() -> userAddressBookService.replaceContactForUser(userId, bookName, oldContact, newContact));
+    }
+
+    public Mono<Boolean> removeAddressBook(String userId, String bookName) {
+        return write(() -> userAddressBookService.removeAddressBookForUser(userId, bookName));
+    }
+
+    public Flux<Contact> contacts(String userId, String bookName) {
+        return Flux.defer(() -> {
+            Collection<Contact> contacts = userAddressBookService.getContacts(userId, bookName);
+            if (contacts.isEmpty()) return Flux.error(bookNotFound(bookName));
+            return Flux.fromIterable(contacts);
+        });
+    }
+
+    public Mono<Page<Contact>> contactsPage(String userId, String bookName, String cursor, int limit) {
+        return read(() -> userAddressBookService.getContactsPage(userId, bookName, cursor, limit), () -> bookNotFound(bookName));
+    }
+
+    public Flux<AddressBook> addressBooks(String userId) {
+        return Flux.defer(() -> {
+            Map<String, AddressBook> addressBooks = userAddressBookService.getAllBooks(userId);
+            if (addressBooks == null) return Flux.error(userNotFound(userId));
+            return Flux.fromIterable(addressBooks.values());
+        });
+    }
+
+    public Mono<Page<AddressBook>> addressBooksPage(String userId, String cursor, int limit) {
+        return read(() -> userAddressBookService.getAddressBooksPage(userId, cursor, limit), () -> userNotFound(userId));
+    }
+
+    public Flux<Contact> uniqueContacts(String userId) {
+        return Flux.defer(() -> Flux.fromIterable(userAddressBookService.getUniqueContactsAcrossAllBooks(userId)));
+    }
+
+    public Mono<Page<Contact>> uniqueContactsPage(String userId, String cursor, int limit) {
+        return Mono.fromCallable(() -> userAddressBookService.getUniqueContactsPage(userId, cursor, limit));
+    }
+
+    /**
+     * @see UserAddressBookService#searchContacts
+     */
+    public Flux<Contact> searchContacts(String userId, String bookName, String phone, String namePrefix, int limit) {
+        return Flux.defer(() -> {
+            List<Contact> result = userAddressBookService.searchContacts(userId, bookName, phone, namePrefix, limit);
+            if (result == null) return Flux.error(bookNotFound(bookName));
+            return Flux.fromIterable(result);
+        });
+    }
+
+    private static <T> Mono<T> write(Supplier<T> mutation) {
+        return Mono.fromSupplier(mutation).subscribeOn(WRITE_SCHEDULER);
+    }
+
+    private static <T> Mono<T> read(Supplier<T> query, Supplier<AddressBookAPIException> notFound) {
+        return Mono.fromSupplier(query).switchIfEmpty(Mono.error(notFound));
+    }
+
+    private static AddressBookAPIException bookNotFound(String bookName) {
+        return new AddressBookAPIException("Address book or contact not found: " + bookName);
+    }
+
+    private static AddressBookAPIException userNotFound(String userId) {
+        return new AddressBookAPIException("user not found: " + userId);
+    }
+}
@@ -0,0 +1,199 @@
+package com.reece.controller;
+
+import com.reece.model.Contact;
+import com.reece.model.UpdateContact;
+import com.reece.model.UpdateResult;
+import com.reece.service.ReactiveAddressBookService;
+import com.reece.service.UserAddressBookService;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@WebFluxTest(ReactiveAddressBookController.class)
+@Import(ReactiveAddressBookService.class)
+class ReactiveAddressBookControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private UserAddressBookService addressBookService;
+
+    @Test
+    void shouldCreateAddressBook() {
+        when(addressBookService.createAddressBookForUser("user1", "Friends")).thenReturn(true);
+
+        webTestClient.post().uri("/api/v1/users/user1/addressbooks/Friends")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.success").isEqualTo(true)
+                .jsonPath("$.message").isEqualTo("Addressbook created successfully: Friends");
+    }
+
+    @Test
+    void shouldNotAddInValidPhoneNoContact() {
+        webTestClient.post().uri("/api/v1/users/user1/addressbooks/Friends/contacts")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new Contact("Saikiran", "12345"))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("Validation failed: phone: Phone number must be 10 digits");
+
+        verify(addressBookService, never()).addContactToAddressBook(any(), any(), any());
+    }
+
+    @Test
+    void shouldMapEachUpdateResultToItsStatus() {
+        Contact oldContact = new Contact("Saikiran", "0001112224");
+        Contact newContact = new Contact("Sai", "0001112226");
+        UpdateContact body = new UpdateContact(oldContact, newContact);
+
+        when(addressBookService.replaceContactForUser("user1", "Friends", oldContact, newContact))
+                .thenReturn(UpdateResult.UPDATED, UpdateResult.NOT_FOUND, UpdateResult.DUPLICATE);
+
+        webTestClient.put().uri("/api/v1/users/user1/addressbooks/Friends/contacts")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("Contact updated successfully in addressbook: Friends");
+        webTestClient.put().uri("/api/v1/users/user1/addressbooks/Friends/contacts")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody()
+                .jsonPath("$.success").isEqualTo(false)
+                .jsonPath("$.message").isEqualTo("Old contact not found in the addressbook.");
+        webTestClient.put().uri("/api/v1/users/user1/addressbooks/Friends/contacts")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isEqualTo(409)
+                .expectBody()
+                .jsonPath("$.success").isEqualTo(false)
+                .jsonPath("$.message").isEqualTo("New contact already exists in the addressbook.");
+    }
+
+    @Test
+    void shouldStreamContactsAsNdjsonOnDemand() {
+        Set<Contact> contacts = new TreeSet<>(Contact.KEY_ORDER);
+        contacts.add(new Contact("Saikiran", "0001112224"));
+        contacts.add(new Contact("Sai", "0001112226"));
+        contacts.add(new Contact("Kiran", "0001112228"));
+        when(addressBookService.getContacts("user1", "Friends")).thenReturn(contacts);
+
+        Flux<Contact> body = webTestClient.get().uri("/api/v1/users/user1/addressbooks/Friends/contacts")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(Contact.class)
+                .getResponseBody();
+
+        StepVerifier.create(body, 1)
+                .expectNext(new Contact("Saikiran", "0001112224"))
+                .thenRequest(2)
+                .expectNext(new Contact("Sai", "0001112226"), new Contact("Kiran", "0001112228"))
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldReturnNotFoundForMissingAddressBook() {
+        when(addressBookService.getContacts("user1", "Missing")).thenReturn(Set.of());
+
+        webTestClient.get().uri("/api/v1/users/user1/addressbooks/Missing/contacts")
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody()
+                .jsonPath("$.success").isEqualTo(false)
+                .jsonPath("$.message").isEqualTo("Address book or contact not found: Missing");
+    }
+
+    @Test
+    void shouldImportNdjsonBodyInBatches() {
+        when(addressBookService.hasAddressBook("user1", "Friends")).thenReturn(true);
+        when(addressBookService.addContactsToAddressBook(eq("user1"), eq("Friends"), anyList()))
+                .thenReturn(new boolean[]{true, false});
+
+        String body = """
+                {"name":"Saikiran","phone":"0001112224"}
+                {"name":"Bad","phone":"123"}
+                {"name":"Sai","phone":"0001112226"}
+                """;
+
+        webTestClient.post().uri("/api/v1/users/user1/addressbooks/Friends/contacts/bulk")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.data.received").isEqualTo(3)
+                .jsonPath("$.data.added").isEqualTo(1)
+                .jsonPath("$.data.duplicates").isEqualTo(1)
+                .jsonPath("$.data.rejected").isEqualTo(1)
+                .jsonPath("$.data.results[0].index").isEqualTo(1)
+                .jsonPath("$.data.results[1].index").isEqualTo(2);
+
+        verify(addressBookService, times(1)).addContactsToAddressBook(eq("user1"), eq("Friends"), anyList());
+    }
+
+    @Test
+    void shouldRejectItemsThatAreNotContactsWithoutFailingTheImport() {
+        when(addressBookService.hasAddressBook("user1", "Friends")).thenReturn(true);
+        when(addressBookService.addContactsToAddressBook(eq("user1"), eq("Friends"), anyList()))
+                .thenReturn(new boolean[]{true});
+
+        webTestClient.post().uri("/api/v1/users/user1/addressbooks/Friends/contacts/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("[42, {\"name\":[\"x\"],\"phone\":\"0001112223\"}, {\"name\":\"Saikiran\",\"phone\":\"0001112224\"}]")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.data.received").isEqualTo(3)
+                .jsonPath("$.data.added").isEqualTo(1)
+                .jsonPath("$.data.rejected").isEqualTo(2)
+                .jsonPath("$.data.results[0].index").isEqualTo(0)
+                .jsonPath("$.data.results[1].index").isEqualTo(1);
+
+        webTestClient.post().uri("/api/v1/users/user1/addressbooks/Friends/contacts/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("[{\"name\": }]")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.data.rejected").isEqualTo(1)
+                .jsonPath("$.data.results[0].status").isEqualTo("REJECTED");
+    }
+
+    @Test
+    void shouldRejectInvalidSearch() {
+        when(addressBookService.searchContacts("user1", null, null, null, 100))
+                .thenThrow(new IllegalArgumentException("Specify exactly one of phone or namePrefix"));
+
+        webTestClient.get().uri("/api/v1/users/user1/addressbooks/contacts/search")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("Specify exactly one of phone or namePrefix");
+    }
+}
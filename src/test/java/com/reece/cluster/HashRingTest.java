@@ -0,0 +1,54 @@
+package com.reece.cluster;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashRingTest {
+
+    private static final int USERS = 30_000;
+
+    private final HashRing three = new HashRing(List.of("http://a:8080", "http://b:8080", "http://c:8080"));
+
+    @Test
+    void testUsersSpreadEvenlyAcrossNodes() {
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < USERS; i++) {
+            counts.merge(three.nodeFor("user" + i), 1, Integer::sum);
+        }
+
+        assertEquals(3, counts.size());
+        for (int count : counts.values()) {
+            assertEquals(USERS / 3.0, count, USERS / 3.0 * 0.2);
+        }
+    }
+
+    @Test
+    void testAddingANodeOnlyMovesUsersToIt() {
+        HashRing four = new HashRing(List.of("http://a:8080", "http://b:8080", "http://c:8080", "http://d:8080"));
+
+        int moved = 0;
+        for (int i = 0; i < USERS; i++) {
+            String before = three.nodeFor("user" + i);
+            String after = four.nodeFor("user" + i);
+            if (!before.equals(after)) {
+                assertEquals("http://d:8080", after);
+                moved++;
+            }
+        }
+        assertEquals(USERS / 4.0, moved, USERS / 4.0 * 0.2);
+    }
+
+    @Test
+    void testOwnersDependOnlyOnTheNodeSet() {
+        HashRing reordered = new HashRing(List.of("http://c:8080", "http://a:8080", "http://b:8080"));
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(three.nodeFor("user" + i), reordered.nodeFor("user" + i));
+        }
+        assertThrows(IllegalArgumentException.class, () -> new HashRing(List.of()));
+    }
+}
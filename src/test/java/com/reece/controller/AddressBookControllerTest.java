@@ -2,10 +2,24 @@ package com.reece.controller;
 
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
 
+import com.reece.config.WireFormatConfig;
 import com.reece.model.AddressBook;
+import com.reece.model.ApiResponse;
+import com.reece.model.BatchOperation;
+import com.reece.model.BatchOperationResult;
+import com.reece.model.BatchRequest;
+import com.reece.model.BatchResult;
+import com.reece.model.ChangeSet;
 import com.reece.model.Contact;
+import com.reece.model.ContactChange;
+import com.reece.model.Page;
 import com.reece.model.UpdateContact;
+import com.reece.model.UpdateResult;
 
 import com.reece.service.UserAddressBookService;
 import org.junit.jupiter.api.Test;
@@ -14,23 +28,37 @@ import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.zip.GZIPInputStream;
 
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.containsString;
 
 
 @WebMvcTest(AddressBookController.class)
+@Import({ResponseCache.class, WireFormatConfig.class})
+// The service is mocked, so no change would ever invalidate cached responses between tests.
+@TestPropertySource(properties = "addressbook.cache.max-size=0")
 class AddressBookControllerTest {
 
     @Autowired
@@ -74,6 +102,85 @@ class AddressBookControllerTest {
                 .andExpect(status().is4xxClientError());
     }
 
+    @Test
+    void shouldReadAndWriteBinaryBodiesWhenNegotiated() throws Exception {
+        Contact contact = new Contact("Saikiran", "0001112224");
+        when(addressBookService.addContactToAddressBook("user1", "Friends", contact)).thenReturn(true);
+
+        MvcResult result = mockMvc.perform(post("/api/v1/users/user1/addressbooks/Friends/contacts")
+                        .contentType(MediaType.APPLICATION_CBOR)
+                        .accept(WireFormat.SMILE_VALUE)
+                        .content(new CBORMapper().writeValueAsBytes(contact)))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(WireFormat.SMILE_VALUE))
+                .andReturn();
+        JsonNode body = new SmileMapper().readTree(result.getResponse().getContentAsByteArray());
+        assertTrue(body.get("success").asBoolean());
+        assertEquals("Contact added successfully under addressbook: Friends", body.get("message").asText());
+
+        mockMvc.perform(post("/api/v1/users/user1/addressbooks/Friends/contacts/bulk")
+                        .contentType(WireFormat.SMILE_VALUE)
+                        .content(new SmileMapper().writeValueAsBytes(List.of(contact))))
+                .andExpect(status().isNotFound());
+        when(addressBookService.hasAddressBook("user1", "Friends")).thenReturn(true);
+        when(addressBookService.addContactsToAddressBook(eq("user1"), eq("Friends"), anyList()))
+                .thenReturn(new boolean[]{true});
+        mockMvc.perform(post("/api/v1/users/user1/addressbooks/Friends/contacts/bulk")
+                        .contentType(WireFormat.SMILE_VALUE)
+                        .content(new SmileMapper().writeValueAsBytes(List.of(contact))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.added").value(1));
+    }
+
+    @Test
+    void cachedReadsAreEncodedAndTaggedPerNegotiatedFormat() throws Exception {
+        when(addressBookService.getAddressBookVersion("user1", "Friends")).thenReturn(4L);
+        when(addressBookService.getAddressBook("user1", "Friends"))
+                .thenReturn(book("Friends", new Contact("Saikiran", "0001112224")));
+        when(addressBookService.getContacts("user1", "Friends"))
+                .thenReturn(Set.of(new Contact("Saikiran", "0001112224")));
+
+        MvcResult json = mockMvc.perform(get("/api/v1/users/user1/addressbooks/Friends/contacts")
+                        .accept(MediaType.ALL))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andReturn();
+        MvcResult cbor = mockMvc.perform(get("/api/v1/users/user1/addressbooks/Friends/contacts")
+                        .header("Accept", "application/json;q=0.5, application/cbor"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andExpect(header().string("Vary", "Accept, Accept-Encoding"))
+                .andReturn();
+
+        JsonNode body = new CBORMapper().readTree(cbor.getResponse().getContentAsByteArray());
+        assertEquals("Saikiran", body.get("data").get(0).get("name").asText());
+        String cborEtag = cbor.getResponse().getHeader("ETag");
+        assertNotEquals(json.getResponse().getHeader("ETag"), cborEtag);
+
+        mockMvc.perform(get("/api/v1/users/user1/addressbooks/Friends/contacts")
+                        .accept(MediaType.APPLICATION_CBOR).header("If-None-Match", cborEtag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/api/v1/users/user1/addressbooks/Friends/contacts").header("If-None-Match", cborEtag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].name").value("Saikiran"));
+    }
+
+    @Test
+    void updateContact_ShouldRejectIncompleteContactsBeforeReachingTheService() throws Exception {
+        String missingName = "{\"oldContact\":{\"name\":\"Kiran\",\"phone\":\"0001112224\"},"
+                + "\"newContact\":{\"phone\":\"0001112225\"}}";
+        mockMvc.perform(put("/api/v1/users/user1/addressbooks/Friends/contacts")
+                        .contentType(MediaType.APPLICATION_JSON).content(missingName))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.success").value(false));
+        mockMvc.perform(put("/api/v1/users/user1/addressbooks/Friends/contacts")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"newContact\":{\"name\":\"Kiran\",\"phone\":\"0001112225\"}}"))
+                .andExpect(status().isBadRequest());
+
+        verify(addressBookService, never()).replaceContactForUser(any(), any(), any(), any());
+    }
+
     @Test
     void removeContact_ShouldReturnSuccessResponse() throws Exception {
         String bookName = "Friends";
@@ -99,7 +206,7 @@ class AddressBookControllerTest {
         req.setOldContact(oldC);
         req.setNewContact(newC);
 
-        when(addressBookService.updateContactForUser("user1", "Friends", oldC, newC)).thenReturn(true);
+        when(addressBookService.replaceContactForUser("user1", "Friends", oldC, newC)).thenReturn(UpdateResult.UPDATED);
 
         mockMvc.perform(put("/api/v1/users/user1/addressbooks/Friends/contacts")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -109,6 +216,59 @@ class AddressBookControllerTest {
                 .andExpect(jsonPath("$.message").value("Contact updated successfully in addressbook: Friends"));
     }
 
+    @Test
+    void shouldReportMissingAndDuplicateContactsOnUpdate() throws Exception {
+        Contact oldC = new Contact("Old", "0001112224");
+        Contact newC = new Contact("New", "0001112225");
+
+        UpdateContact req = new UpdateContact();
+        req.setOldContact(oldC);
+        req.setNewContact(newC);
+        String body = objectMapper.writeValueAsString(req);
+
+        when(addressBookService.replaceContactForUser("user1", "Friends", oldC, newC)).thenReturn(UpdateResult.NOT_FOUND);
+        mockMvc.perform(put("/api/v1/users/user1/addressbooks/Friends/contacts")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.success").value(false));
+
+        when(addressBookService.replaceContactForUser("user1", "Friends", oldC, newC)).thenReturn(UpdateResult.DUPLICATE);
+        mockMvc.perform(put("/api/v1/users/user1/addressbooks/Friends/contacts")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.message").value("New contact already exists in the addressbook."));
+    }
+
+    @Test
+    void shouldApplyBatchAndReportRollback() throws Exception {
+        Contact contact = new Contact("New", "0001112225");
+        BatchRequest req = new BatchRequest(true, List.of(
+                new BatchOperation(BatchOperation.Type.CREATE_BOOK, "Friends", null, null),
+                new BatchOperation(BatchOperation.Type.ADD_CONTACT, "Friends", contact, null)));
+
+        BatchResult rolledBack = new BatchResult();
+        rolledBack.record(0, BatchOperationResult.Status.APPLIED);
+        rolledBack.record(1, BatchOperationResult.Status.DUPLICATE);
+        rolledBack.rollBack(1, 2);
+        when(addressBookService.applyBatch(eq("user1"), anyList(), eq(true))).thenReturn(rolledBack);
+
+        mockMvc.perform(post("/api/v1/users/user1/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(req)))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.data.rolledBack").value(true))
+                .andExpect(jsonPath("$.data.results[0].status").value("ROLLED_BACK"))
+                .andExpect(jsonPath("$.data.results[1].status").value("DUPLICATE"));
+
+        req.getOperations().get(1).setContact(new Contact("New", "12"));
+        mockMvc.perform(post("/api/v1/users/user1/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(req)))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void getAllAddressBooks_ShouldReturnAllBooks() throws Exception {
         AddressBook book1 = new AddressBook("Friends");
@@ -178,9 +338,8 @@ class AddressBookControllerTest {
         String userId = "user123";
         String addressBookName = "Family";
         Contact contact = new Contact("Alice", "123456");
-        Set<Contact> contacts = Set.of(contact);
 
-        when(addressBookService.getContacts(userId, addressBookName)).thenReturn(contacts);
+        when(addressBookService.getAddressBook(userId, addressBookName)).thenReturn(book(addressBookName, contact));
 
         // Act + Assert
         mockMvc.perform(get("/api/v1/users/{userId}/addressbooks/{addressbookName}/contacts", userId, addressBookName)
@@ -192,13 +351,170 @@ class AddressBookControllerTest {
                 .andExpect(jsonPath("$.data[0].phone").value("123456"));
     }
 
+    @Test
+    void testGetAllAddressBooksForUser_whenETagMatches_returnsNotModifiedWithoutReadingContacts() throws Exception {
+        when(addressBookService.getAddressBookVersion("user123", "Family")).thenReturn(7L);
+        when(addressBookService.getAddressBook("user123", "Family"))
+                .thenReturn(book("Family", new Contact("Alice", "123456")));
+
+        MvcResult first = mockMvc.perform(get("/api/v1/users/user123/addressbooks/Family/contacts"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andReturn();
+        String etag = first.getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/v1/users/user123/addressbooks/Family/contacts").header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", etag))
+                .andExpect(content().string(""));
+        verify(addressBookService, times(1)).getAddressBook("user123", "Family");
+
+        when(addressBookService.getAddressBookVersion("user123", "Family")).thenReturn(8L);
+        mockMvc.perform(get("/api/v1/users/user123/addressbooks/Family/contacts").header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].name").value("Alice"));
+    }
+
+    @Test
+    void testGetAllAddressBooksForUser_splicesEnvelopeAroundContactsEncodedOncePerChange() throws Exception {
+        AddressBook book = book("Family", new Contact("Alice", "0001112224"), new Contact("Bob", "0001112225"));
+        when(addressBookService.getAddressBook("user123", "Family")).thenReturn(book);
+
+        String body = mockMvc.perform(get("/api/v1/users/user123/addressbooks/Family/contacts"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse().getContentAsString();
+        ObjectNode spliced = (ObjectNode) objectMapper.readTree(body);
+        ObjectNode serialized = objectMapper.valueToTree(new ApiResponse<>(true,
+                "All contacts retrieved under addressbook: Family", book.getContacts()));
+        assertTrue(spliced.remove("timestamp").isTextual());
+        serialized.remove("timestamp");
+        assertEquals(serialized, spliced);
+
+        mockMvc.perform(get("/api/v1/users/user123/addressbooks/Family/contacts"))
+                .andExpect(jsonPath("$.data", hasSize(2)));
+        assertNotNull(book.encodedContacts(contacts -> fail("contacts encoded again without a change")).bytes());
+
+        book.addContact(new Contact("Carol", "0001112226"));
+        mockMvc.perform(get("/api/v1/users/user123/addressbooks/Family/contacts"))
+                .andExpect(jsonPath("$.data", hasSize(3)))
+                .andExpect(jsonPath("$.data[2].name").value("Carol"));
+    }
+
+    @Test
+    void testGetAllAddressBooksForUser_gzipsLargeListingsAroundContactsCompressedOncePerChange() throws Exception {
+        AddressBook book = book("Family");
+        for (int i = 0; i < 200; i++) {
+            book.addContact(new Contact("Contact " + i, String.format("%010d", i)));
+        }
+        when(addressBookService.getAddressBook("user123", "Family")).thenReturn(book);
+
+        MvcResult plain = mockMvc.perform(get("/api/v1/users/user123/addressbooks/Family/contacts"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andReturn();
+        MvcResult gzipped = mockMvc.perform(get("/api/v1/users/user123/addressbooks/Family/contacts")
+                        .header("Accept-Encoding", "br;q=1.0, gzip;q=0.8"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andReturn();
+
+        byte[] compressed = gzipped.getResponse().getContentAsByteArray();
+        assertEquals(compressed.length, gzipped.getResponse().getContentLength());
+        assertTrue(compressed.length < plain.getResponse().getContentAsByteArray().length / 4);
+        ObjectNode unzipped = (ObjectNode) objectMapper.readTree(new GZIPInputStream(new ByteArrayInputStream(compressed)));
+        ObjectNode expected = (ObjectNode) objectMapper.readTree(plain.getResponse().getContentAsByteArray());
+        unzipped.remove("timestamp");
+        expected.remove("timestamp");
+        assertEquals(expected, unzipped);
+        assertNotEquals(plain.getResponse().getHeader("ETag"), gzipped.getResponse().getHeader("ETag"));
+        assertNotNull(book.encodedContacts(contacts -> fail("contacts encoded again without a change"))
+                .compressed(bytes -> fail("contacts compressed again without a change")));
+
+        mockMvc.perform(get("/api/v1/users/user123/addressbooks/Family/contacts").header("Accept-Encoding", "gzip;q=0"))
+                .andExpect(header().doesNotExist("Content-Encoding"));
+        when(addressBookService.getAddressBook("user123", "Small")).thenReturn(book("Small", new Contact("Alice", "123456")));
+        mockMvc.perform(get("/api/v1/users/user123/addressbooks/Small/contacts").header("Accept-Encoding", "gzip"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andExpect(jsonPath("$.data[0].name").value("Alice"));
+    }
+
+    @Test
+    void testGetAllAddressBooks_gzipsLargeBodiesForClientsThatAcceptIt() throws Exception {
+        AddressBook book = book("Work");
+        for (int i = 0; i < 200; i++) {
+            book.addContact(new Contact("Contact " + i, String.format("%010d", i)));
+        }
+        when(addressBookService.getAllBooks("user1")).thenReturn(Map.of("Work", book));
+
+        byte[] compressed = mockMvc.perform(get("/api/v1/users/user1").header("Accept-Encoding", "deflate, *"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().string("Vary", containsString("Accept-Encoding")))
+                .andReturn().getResponse().getContentAsByteArray();
+        JsonNode body = objectMapper.readTree(new GZIPInputStream(new ByteArrayInputStream(compressed)));
+        assertEquals(200, body.get("data").get("Work").get("contacts").size());
+    }
+
+    @Test
+    void convertedBodiesBelowTheCompressionThresholdAreSentWithTheirLength() throws Exception {
+        when(addressBookService.createAddressBookForUser("user1", "Friends")).thenReturn(true);
+        List<Contact> contacts = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            contacts.add(new Contact("Contact " + i, String.format("%010d", i)));
+        }
+        when(addressBookService.getContactsPage("user1", "Friends", null, 200)).thenReturn(new Page<>(contacts, null));
+
+        MvcResult small = mockMvc.perform(post("/api/v1/users/user1/addressbooks/Friends"))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertEquals(small.getResponse().getContentAsByteArray().length, small.getResponse().getContentLength());
+
+        mockMvc.perform(get("/api/v1/users/user1/addressbooks/Friends/contacts").param("limit", "200"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Content-Length"))
+                .andExpect(jsonPath("$.data.items", hasSize(200)));
+    }
+
+    @Test
+    void testGetAllAddressBooks_whenETagMatches_returnsNotModified() throws Exception {
+        when(addressBookService.getUserVersion("user1")).thenReturn(3L);
+
+        String etag = mockMvc.perform(get("/api/v1/users/user1"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/v1/users/user1").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+        verify(addressBookService, times(1)).getAllBooks("user1");
+    }
+
+    @Test
+    void testGetAddressBookChanges_returnsDeltaOrNotFound() throws Exception {
+        Contact contact = new Contact("Alice", "0001112224");
+        when(addressBookService.getChanges("user1", "Friends", "t.1")).thenReturn(ChangeSet.delta("t.2",
+                List.of(new ContactChange(2, ContactChange.Type.ADDED, "Friends", contact, null))));
+
+        mockMvc.perform(get("/api/v1/users/user1/addressbooks/Friends/changes").param("since", "t.1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.token").value("t.2"))
+                .andExpect(jsonPath("$.data.snapshot").value(false))
+                .andExpect(jsonPath("$.data.changes[0].type").value("ADDED"))
+                .andExpect(jsonPath("$.data.changes[0].contact.name").value("Alice"));
+
+        mockMvc.perform(get("/api/v1/users/user1/addressbooks/Missing/changes"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.success").value(false));
+    }
+
     @Test
     void testGetAllAddressBooksForUser_whenContactsEmpty_returnsNotFound() throws Exception {
         // Arrange
         String userId = "user123";
         String addressBookName = "EmptyBook";
 
-        when(addressBookService.getContacts(userId, addressBookName)).thenReturn(Set.of());
+        when(addressBookService.getAddressBook(userId, addressBookName)).thenReturn(book(addressBookName));
 
         // Act + Assert
         mockMvc.perform(get("/api/v1/users/{userId}/addressbooks/{addressbookName}/contacts", userId, addressBookName)
@@ -228,5 +544,190 @@ class AddressBookControllerTest {
                 .andExpect(jsonPath("$.data").doesNotExist());
     }
 
-}
+    @Test
+    void streamContacts_ShouldWriteNdjsonWhenAccepted() throws Exception {
+        when(addressBookService.getContacts("user1", "Friends"))
+                .thenReturn(Set.of(new Contact("Saikiran", "0001112223")));
+
+        MvcResult result = mockMvc.perform(get("/api/v1/users/user1/addressbooks/Friends/contacts")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string("{\"name\":\"Saikiran\",\"phone\":\"0001112223\"}\n"));
+    }
+
+    @Test
+    void streamAllAddressBooks_ShouldWriteNdjsonForFormatParameter() throws Exception {
+        AddressBook book = new AddressBook("Work");
+        book.addContact(new Contact("Kiran", "0001112224"));
+        when(addressBookService.getAllBooks("user1")).thenReturn(Map.of("Work", book));
+
+        MvcResult result = mockMvc.perform(get("/api/v1/users/user1").param("format", "ndjson"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().string(
+                        "{\"addressBook\":\"Work\",\"name\":\"Kiran\",\"phone\":\"0001112224\"}\n"));
+    }
+
+    @Test
+    void streamContacts_ShouldReturnJsonNotFoundForMissingBook() throws Exception {
+        when(addressBookService.getContacts("user1", "Missing")).thenReturn(Set.of());
+
+        MvcResult result = mockMvc.perform(get("/api/v1/users/user1/addressbooks/Missing/contacts")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.success").value(false))
+                .andExpect(jsonPath("$.message").value("Address book or contact not found: Missing"));
+    }
+
+    @Test
+    void getContactsPage_ShouldReturnItemsAndNextCursor() throws Exception {
+        Page<Contact> page = new Page<>(List.of(new Contact("Saikiran", "0001112223")), "next-page");
+        when(addressBookService.getContactsPage("user1", "Friends", null, 1)).thenReturn(page);
+
+        mockMvc.perform(get("/api/v1/users/user1/addressbooks/Friends/contacts").param("limit", "1")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.items", hasSize(1)))
+                .andExpect(jsonPath("$.data.items[0].name").value("Saikiran"))
+                .andExpect(jsonPath("$.data.nextCursor").value("next-page"));
+    }
+
+    @Test
+    void getAddressBooksPage_ShouldReturnNotFoundForUnknownUser() throws Exception {
+        when(addressBookService.getAddressBooksPage("user1", "abc", 10)).thenReturn(null);
+
+        mockMvc.perform(get("/api/v1/users/user1").param("limit", "10").param("cursor", "abc")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.message").value("user not found: user1"));
+    }
+
+    @Test
+    void importContacts_ShouldReportRejectedAndDuplicateItems() throws Exception {
+        when(addressBookService.hasAddressBook("user1", "Friends")).thenReturn(true);
+        when(addressBookService.addContactsToAddressBook(eq("user1"), eq("Friends"), anyList()))
+                .thenReturn(new boolean[]{true, false});
+
+        String body = objectMapper.writeValueAsString(List.of(
+                new Contact("Saikiran", "0001112223"),
+                new Contact("Bad", "12345"),
+                new Contact("Saikiran", "0001112223")));
+
+        mockMvc.perform(post("/api/v1/users/user1/addressbooks/Friends/contacts/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.received").value(3))
+                .andExpect(jsonPath("$.data.added").value(1))
+                .andExpect(jsonPath("$.data.duplicates").value(1))
+                .andExpect(jsonPath("$.data.rejected").value(1))
+                .andExpect(jsonPath("$.data.results[0].index").value(1))
+                .andExpect(jsonPath("$.data.results[0].status").value("REJECTED"))
+                .andExpect(jsonPath("$.data.results[1].index").value(2))
+                .andExpect(jsonPath("$.data.results[1].status").value("DUPLICATE"));
+    }
+
+    @Test
+    void importContacts_ShouldRejectItemsThatAreNotContactsWithoutFailingTheImport() throws Exception {
+        when(addressBookService.hasAddressBook("user1", "Friends")).thenReturn(true);
+        when(addressBookService.addContactsToAddressBook("user1", "Friends",
+                List.of(new Contact("Saikiran", "0001112223"))))
+                .thenReturn(new boolean[]{true});
+
+        mockMvc.perform(post("/api/v1/users/user1/addressbooks/Friends/contacts/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[42, {\"name\":[\"x\"],\"phone\":\"0001112224\"}, "
+                                + "{\"name\":\"Saikiran\",\"phone\":\"0001112223\"}, {\"name\": }]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.received").value(4))
+                .andExpect(jsonPath("$.data.added").value(1))
+                .andExpect(jsonPath("$.data.rejected").value(3))
+                .andExpect(jsonPath("$.data.results[0].index").value(0))
+                .andExpect(jsonPath("$.data.results[1].index").value(1))
+                .andExpect(jsonPath("$.data.results[2].index").value(3))
+                .andExpect(jsonPath("$.data.results[2].status").value("REJECTED"));
+    }
+
+    @Test
+    void importContacts_ShouldRejectNullItems() throws Exception {
+        when(addressBookService.hasAddressBook("user1", "Friends")).thenReturn(true);
+        when(addressBookService.addContactsToAddressBook("user1", "Friends",
+                List.of(new Contact("Saikiran", "0001112223"))))
+                .thenReturn(new boolean[]{true});
+
+        mockMvc.perform(post("/api/v1/users/user1/addressbooks/Friends/contacts/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[null, {\"name\":\"Saikiran\",\"phone\":\"0001112223\"}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.received").value(2))
+                .andExpect(jsonPath("$.data.added").value(1))
+                .andExpect(jsonPath("$.data.rejected").value(1))
+                .andExpect(jsonPath("$.data.results[0].index").value(0))
+                .andExpect(jsonPath("$.data.results[0].message").value("Not a contact: null"));
+
+        mockMvc.perform(post("/api/v1/users/user1/addressbooks/Friends/contacts/bulk")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{\"name\":\"Saikiran\",\"phone\":\"0001112223\"}\nnull\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.received").value(2))
+                .andExpect(jsonPath("$.data.added").value(1))
+                .andExpect(jsonPath("$.data.rejected").value(1))
+                .andExpect(jsonPath("$.data.results[0].index").value(1))
+                .andExpect(jsonPath("$.data.results[0].status").value("REJECTED"));
+    }
+
+    @Test
+    void importContacts_ShouldReadCsvWithHeader() throws Exception {
+        when(addressBookService.hasAddressBook("user1", "Friends")).thenReturn(true);
+        when(addressBookService.addContactsToAddressBook("user1", "Friends",
+                List.of(new Contact("Smith, Jo", "0001112223"), new Contact("Kiran", "0001112224"))))
+                .thenReturn(new boolean[]{true, true});
+
+        mockMvc.perform(post("/api/v1/users/user1/addressbooks/Friends/contacts/bulk")
+                        .contentType("text/csv")
+                        .content("name,phone\n\"Smith, Jo\",0001112223\nKiran,0001112224\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("2 of 2 contacts imported into addressbook: Friends"))
+                .andExpect(jsonPath("$.data.results", hasSize(0)));
+    }
 
+    @Test
+    void importContacts_ShouldReturnNotFoundForMissingBook() throws Exception {
+        mockMvc.perform(post("/api/v1/users/user1/addressbooks/Friends/contacts/bulk")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{\"name\":\"Kiran\",\"phone\":\"0001112224\"}\n"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.success").value(false));
+    }
+
+    @Test
+    void searchContacts_ShouldReturnMatchesAcrossAddressBooks() throws Exception {
+        when(addressBookService.searchContacts("user1", null, null, "sai", 100))
+                .thenReturn(List.of(new Contact("Saikiran", "0001112223")));
+
+        mockMvc.perform(get("/api/v1/users/user1/addressbooks/contacts/search").param("namePrefix", "sai")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data", hasSize(1)))
+                .andExpect(jsonPath("$.data[0].phone").value("0001112223"));
+    }
+
+    private static AddressBook book(String name, Contact... contacts) {
+        AddressBook book = new AddressBook(name);
+        for (Contact contact : contacts) {
+            book.addContact(contact);
+        }
+        return book;
+    }
+}
@@ -0,0 +1,103 @@
+package com.reece.controller;
+
+import com.reece.model.Contact;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseCacheTest {
+
+    private final ResponseCache cache = new ResponseCache(DataSize.ofMegabytes(1), Duration.ZERO);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void testRepeatedReadsAreServedFromCache() {
+        assertEquals("v1", load(ResponseCache.allBooks("user1", WireFormat.JSON), "v1"));
+        assertEquals("v1", load(ResponseCache.allBooks("user1", WireFormat.JSON), "v2"));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void testChangeInvalidatesOnlyTheAffectedEntries() {
+        load(ResponseCache.bookContacts("user1", "Friends", WireFormat.JSON), "friends");
+        load(ResponseCache.bookContacts("user1", "Work", WireFormat.JSON), "work");
+        load(ResponseCache.allBooks("user1", WireFormat.JSON), "all");
+        load(ResponseCache.uniqueContacts("user1", WireFormat.JSON), "unique");
+        load(ResponseCache.allBooks("user2", WireFormat.JSON), "other user");
+        load(ResponseCache.allBooks("user1", WireFormat.CBOR), "all cbor");
+        load(ResponseCache.allBooks("user1", WireFormat.JSON).gzipped(), "all gzip");
+
+        cache.onContactsAdded("user1", "Friends", List.of(new Contact("Sai", "0001112226")));
+
+        assertEquals("friends v2", load(ResponseCache.bookContacts("user1", "Friends", WireFormat.JSON), "friends v2"));
+        assertEquals("all v2", load(ResponseCache.allBooks("user1", WireFormat.JSON), "all v2"));
+        assertEquals("unique v2", load(ResponseCache.uniqueContacts("user1", WireFormat.JSON), "unique v2"));
+        assertEquals("all cbor v2", load(ResponseCache.allBooks("user1", WireFormat.CBOR), "all cbor v2"));
+        assertEquals("all gzip v2", load(ResponseCache.allBooks("user1", WireFormat.JSON).gzipped(), "all gzip v2"));
+        assertEquals("work", load(ResponseCache.bookContacts("user1", "Work", WireFormat.JSON), "work v2"));
+        assertEquals("other user", load(ResponseCache.allBooks("user2", WireFormat.JSON), "other user v2"));
+    }
+
+    @Test
+    void testBodyIsServedOnlyForTheVersionItWasLoadedAt() {
+        ResponseCache.Key key = ResponseCache.allBooks("user1", WireFormat.JSON);
+        assertEquals("v1", load(key, 1, "v1"));
+
+        // A read at a newer version, before the change's invalidation has landed, reloads.
+        assertEquals("v2", load(key, 2, "v2"));
+        assertEquals("v2", load(key, 2, "v2 again"));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testNullBodiesAreNotCached() {
+        assertNull(cache.get(ResponseCache.bookContacts("user1", "Missing", WireFormat.JSON), 1, () -> null));
+        assertEquals("found", load(ResponseCache.bookContacts("user1", "Missing", WireFormat.JSON), "found"));
+    }
+
+    @Test
+    void testStatisticsArePublished() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        cache.bindTo(registry);
+
+        load(ResponseCache.allBooks("user1", WireFormat.JSON), "v1");
+        load(ResponseCache.allBooks("user1", WireFormat.JSON), "v1");
+
+        assertEquals(1.0, registry.get("cache.gets").tag("cache", "addressbook.responses").tag("result", "hit")
+                .functionCounter().count());
+        assertEquals(1.0, registry.get("cache.gets").tag("cache", "addressbook.responses").tag("result", "miss")
+                .functionCounter().count());
+    }
+
+    @Test
+    void testZeroSizeDisablesCaching() {
+        ResponseCache disabled = new ResponseCache(DataSize.ofBytes(0), Duration.ZERO);
+        disabled.get(ResponseCache.allBooks("user1", WireFormat.JSON), 1, () -> bytes("v" + loads.incrementAndGet()));
+
+        assertArrayEquals(bytes("v2"), disabled.get(ResponseCache.allBooks("user1", WireFormat.JSON), 1,
+                () -> bytes("v" + loads.incrementAndGet())));
+    }
+
+    private String load(ResponseCache.Key key, String body) {
+        return load(key, 1, body);
+    }
+
+    private String load(ResponseCache.Key key, long version, String body) {
+        byte[] cached = cache.get(key, version, () -> {
+            loads.incrementAndGet();
+            return bytes(body);
+        });
+        return new String(cached, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] bytes(String body) {
+        return body.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,43 @@
+package com.reece.integration;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+public class MetricsIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    public void testPrometheusEndpointExposesRequestAndStoreMetrics() throws Exception {
+        mockMvc.perform(post("/api/v1/users/metricsUser/addressbooks/Friends"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/v1/users/metricsUser/addressbooks/Missing/contacts"))
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString(
+                        "uri=\"/api/v1/users/{userId}/addressbooks/{addressbookName}\"")))
+                .andExpect(content().string(containsString("status=\"404\"")))
+                .andExpect(content().string(containsString("http_server_requests_seconds_bucket")))
+                .andExpect(content().string(containsString("quantile=\"0.999\"")))
+                .andExpect(content().string(containsString("addressbook_service_seconds_count")))
+                .andExpect(content().string(containsString("addressbook_users ")))
+                .andExpect(content().string(containsString("addressbook_contacts ")))
+                .andExpect(content().string(containsString("cache_gets_total{cache=\"addressbook.responses\"")));
+    }
+}
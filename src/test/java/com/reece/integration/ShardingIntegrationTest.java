@@ -0,0 +1,211 @@
+package com.reece.integration;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reece.AddressBookApplication;
+import com.reece.cluster.HashRing;
+import com.reece.service.UserAddressBookService;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Two real nodes on local ports: requests are routed to the owning node, and adding the second node
+ * moves its users over.
+ */
+public class ShardingIntegrationTest {
+
+    private static final int USERS = 20;
+    private static final String SECRET = "test-secret";
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<ConfigurableApplicationContext> nodes = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        nodes.forEach(ConfigurableApplicationContext::close);
+    }
+
+    @Test
+    void testUsersMoveToAnAddedNodeAndRequestsFollowThem() throws Exception {
+        int portA = freePort();
+        int portB = freePort();
+        String a = "http://localhost:" + portA;
+        String b = "http://localhost:" + portB;
+
+        ConfigurableApplicationContext nodeA = start(portA, a);
+        for (int i = 0; i < USERS; i++) {
+            assertEquals(200, send("POST", a + "/api/v1/users/user" + i + "/addressbooks/Friends", null).statusCode());
+            assertEquals(200, send("POST", a + "/api/v1/users/user" + i + "/addressbooks/Friends/contacts",
+                    "{\"name\":\"Contact " + i + "\",\"phone\":\"00011122" + String.format("%02d", i) + "\"}").statusCode());
+        }
+
+        ConfigurableApplicationContext nodeB = start(portB, a + "," + b);
+        assertEquals(403, send("PUT", a + "/api/v1/cluster/nodes", "[\"" + a + "\",\"" + b + "\"]").statusCode());
+        assertEquals(USERS, nodeA.getBean(UserAddressBookService.class).getUserCount());
+        HttpResponse<String> rebalanced = rebalance(a, "[\"" + a + "\",\"" + b + "\"]");
+        assertEquals(200, rebalanced.statusCode());
+
+        HashRing ring = new HashRing(List.of(a, b));
+        int movedToB = 0;
+        for (int i = 0; i < USERS; i++) {
+            if (ring.nodeFor("user" + i).equals(b)) movedToB++;
+        }
+        assertTrue(movedToB > 0 && movedToB < USERS, "both nodes should own some of the users");
+        assertEquals(movedToB, objectMapper.readTree(rebalanced.body()).get("data").asInt());
+        assertEquals(USERS - movedToB, nodeA.getBean(UserAddressBookService.class).getUserCount());
+        assertEquals(movedToB, nodeB.getBean(UserAddressBookService.class).getUserCount());
+
+        // Every user is readable through either node.
+        for (int i = 0; i < USERS; i++) {
+            for (String node : List.of(a, b)) {
+                HttpResponse<String> response = send("GET", node + "/api/v1/users/user" + i
+                        + "/addressbooks/Friends/contacts", null);
+                assertEquals(200, response.statusCode());
+                JsonNode contacts = objectMapper.readTree(response.body()).get("data");
+                assertEquals("Contact " + i, contacts.get(0).get("name").asText());
+            }
+        }
+
+        // A client claiming to be a node is still routed to the owner rather than served where it lands.
+        for (int i = 0; i < USERS; i++) {
+            String owner = ring.nodeFor("user" + i);
+            String other = owner.equals(a) ? b : a;
+            HttpRequest spoofed = HttpRequest.newBuilder(URI.create(other + "/api/v1/users/user" + i
+                            + "/addressbooks/Friends/contacts"))
+                    .header("X-AddressBook-Forwarded-By", other)
+                    .header("X-AddressBook-Cluster-Secret", "guess")
+                    .build();
+            assertEquals(200, client.send(spoofed, HttpResponse.BodyHandlers.ofString()).statusCode());
+        }
+
+        // A genuinely forwarded request that lands on a node not holding its user is refused, not served or sent on.
+        for (int i = 0; i < USERS; i++) {
+            String owner = ring.nodeFor("user" + i);
+            String other = owner.equals(a) ? b : a;
+            HttpRequest misdirected = HttpRequest.newBuilder(URI.create(other + "/api/v1/users/user" + i
+                            + "/addressbooks/Stray"))
+                    .header("X-AddressBook-Forwarded-By", owner)
+                    .header("X-AddressBook-Cluster-Secret", SECRET)
+                    .POST(HttpRequest.BodyPublishers.noBody())
+                    .build();
+            assertEquals(421, client.send(misdirected, HttpResponse.BodyHandlers.ofString()).statusCode());
+        }
+        assertEquals(USERS - movedToB, nodeA.getBean(UserAddressBookService.class).getUserCount());
+        assertEquals(movedToB, nodeB.getBean(UserAddressBookService.class).getUserCount());
+        for (int i = 0; i < USERS; i++) {
+            HttpResponse<String> books = send("GET", a + "/api/v1/users/user" + i, null);
+            assertFalse(books.body().contains("Stray"), "a misdirected request was applied for user" + i);
+        }
+    }
+
+    @Test
+    void testChangesMadeDuringARebalanceAreKept() throws Exception {
+        int portA = freePort();
+        int portB = freePort();
+        String a = "http://localhost:" + portA;
+        String b = "http://localhost:" + portB;
+
+        start(portA, a);
+        for (int i = 0; i < USERS; i++) {
+            send("POST", a + "/api/v1/users/user" + i + "/addressbooks/Friends", null);
+            send("POST", a + "/api/v1/users/user" + i + "/addressbooks/Friends/contacts",
+                    "{\"name\":\"Contact " + i + "\",\"phone\":\"0001112200\"}");
+        }
+        start(portB, a + "," + b);
+
+        // Every user loses its first contact and gains others while node A hands half of them to node B.
+        AtomicBoolean rebalanced = new AtomicBoolean();
+        List<String> added = new CopyOnWriteArrayList<>();
+        CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+            try {
+                for (int n = 0; n < USERS || !rebalanced.get(); n++) {
+                    int user = n % USERS;
+                    String contacts = a + "/api/v1/users/user" + user + "/addressbooks/Friends/contacts";
+                    if (n < USERS) {
+                        assertEquals(200, send("DELETE", contacts,
+                                "{\"name\":\"Contact " + user + "\",\"phone\":\"0001112200\"}").statusCode());
+                    }
+                    String phone = String.format("%010d", n + 1);
+                    if (send("POST", contacts, "{\"name\":\"Extra\",\"phone\":\"" + phone + "\"}").statusCode() == 200) {
+                        added.add(user + ":" + phone);
+                    }
+                }
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertEquals(200, rebalance(a, "[\"" + a + "\",\"" + b + "\"]").statusCode());
+        rebalanced.set(true);
+        writer.get(60, TimeUnit.SECONDS);
+
+        assertFalse(added.isEmpty());
+        for (int i = 0; i < USERS; i++) {
+            HttpResponse<String> response = send("GET", a + "/api/v1/users/user" + i + "/addressbooks/Friends/contacts", null);
+            List<String> phones = new ArrayList<>();
+            objectMapper.readTree(response.body()).get("data").forEach(contact -> phones.add(contact.get("phone").asText()));
+            assertFalse(phones.contains("0001112200"), "a contact deleted during the move came back for user" + i);
+            for (String entry : added) {
+                if (entry.startsWith(i + ":")) {
+                    assertTrue(phones.contains(entry.substring(entry.indexOf(':') + 1)), "lost " + entry);
+                }
+            }
+        }
+    }
+
+    private ConfigurableApplicationContext start(int port, String clusterNodes) {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(AddressBookApplication.class)
+                .properties("server.port=" + port,
+                        "addressbook.cluster.nodes=" + clusterNodes,
+                        "addressbook.cluster.self=http://localhost:" + port,
+                        "addressbook.cluster.secret=" + SECRET,
+                        "spring.datasource.url=jdbc:h2:mem:shard" + port)
+                .run();
+        nodes.add(context);
+        return context;
+    }
+
+    private HttpResponse<String> rebalance(String node, String nodes) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(node + "/api/v1/cluster/nodes"))
+                .header("Content-Type", "application/json")
+                .header("X-AddressBook-Cluster-Secret", SECRET)
+                .PUT(HttpRequest.BodyPublishers.ofString(nodes))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> send(String method, String uri, String json) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(uri));
+        if (json == null) {
+            request.method(method, HttpRequest.BodyPublishers.noBody());
+        } else {
+            request.header("Content-Type", "application/json").method(method, HttpRequest.BodyPublishers.ofString(json));
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.reece.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Random;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompactContactSetTest {
+
+    @Test
+    void testAddRemoveContains() {
+        CompactContactSet contacts = new CompactContactSet();
+        Contact jake = new Contact("Jake", "0412345678");
+
+        assertTrue(contacts.add(jake));
+        assertFalse(contacts.add(new Contact("Jake", "0412345678")));
+        assertTrue(contacts.add(new Contact("Jake", "0412345679")));
+        assertTrue(contacts.add(new Contact("Amy", "0412345678")));
+        assertEquals(3, contacts.size());
+
+        assertTrue(contacts.contains(new Contact("Jake", "0412345678")));
+        assertFalse(contacts.contains(new Contact("Jake", "0400000000")));
+        assertFalse(contacts.contains(new Contact("Rosa", "0412345678")));
+
+        assertTrue(contacts.remove(jake));
+        assertFalse(contacts.remove(jake));
+        assertFalse(contacts.contains(jake));
+        assertEquals(2, contacts.size());
+    }
+
+    @Test
+    void testIteratesInKeyOrderIncludingOverflowPhones() {
+        CompactContactSet contacts = new CompactContactSet();
+        List<Contact> added = List.of(
+                new Contact("Zed", "0000000002"),
+                new Contact("Amy", "0000000002"),
+                new Contact(null, "0000000002"),
+                new Contact("Émile", "9999999999"),
+                new Contact("Short", "123"),
+                new Contact("Plus", "+61400000000"),
+                new Contact("Bob", "0000000001"));
+        contacts.addAll(added);
+
+        NavigableSet<Contact> expected = new ConcurrentSkipListSet<>(Contact.KEY_ORDER);
+        expected.addAll(added);
+        assertEquals(new ArrayList<>(expected), new ArrayList<>(contacts));
+        assertEquals(new ArrayList<>(expected.tailSet(new Contact("Amy", "0000000002"), false)),
+                toList(contacts.contactsAfter(new Contact("Amy", "0000000002"))));
+        assertEquals(new ArrayList<>(expected.tailSet(new Contact("Short", "123"), false)),
+                toList(contacts.contactsAfter(new Contact("Short", "123"))));
+    }
+
+    @Test
+    void testMatchesSkipListUnderRandomChurn() {
+        Random random = new Random(42);
+        CompactContactSet contacts = new CompactContactSet();
+        NavigableSet<Contact> expected = new ConcurrentSkipListSet<>(Contact.KEY_ORDER);
+
+        for (int i = 0; i < 20_000; i++) {
+            Contact contact = new Contact("Name " + random.nextInt(3_000), String.format("%010d", random.nextInt(5_000)));
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(contact), contacts.remove(contact));
+            } else {
+                assertEquals(expected.add(contact), contacts.add(contact));
+            }
+        }
+
+        assertEquals(expected.size(), contacts.size());
+        assertEquals(new ArrayList<>(expected), new ArrayList<>(contacts));
+        Contact cursor = expected.first();
+        for (int i = 0; i < 50 && cursor != null; i++) {
+            assertEquals(new ArrayList<>(expected.tailSet(cursor, false)), toList(contacts.contactsAfter(cursor)));
+            cursor = expected.higher(cursor);
+        }
+    }
+
+    @Test
+    void testKeepsNamesAfterCompactingUnusedOnes() {
+        CompactContactSet contacts = new CompactContactSet();
+        for (int i = 0; i < 5_000; i++) {
+            contacts.add(new Contact("A rather long contact name " + i, String.format("%010d", i)));
+        }
+        for (int i = 0; i < 5_000; i += 10) {
+            contacts.add(new Contact("Shared", String.format("%010d", i)));
+        }
+        for (int i = 0; i < 5_000; i++) {
+            if (i % 100 != 0) {
+                contacts.remove(new Contact("A rather long contact name " + i, String.format("%010d", i)));
+            }
+        }
+
+        assertEquals(550, contacts.size());
+        assertTrue(contacts.contains(new Contact("A rather long contact name 4900", "0000004900")));
+        assertTrue(contacts.contains(new Contact("Shared", "0000004990")));
+        assertFalse(contacts.contains(new Contact("A rather long contact name 4901", "0000004901")));
+        assertTrue(contacts.add(new Contact("A rather long contact name 4901", "0000004901")));
+    }
+
+    @Test
+    void testFindByPhoneAndNamePrefix() {
+        CompactContactSet contacts = new CompactContactSet();
+        contacts.add(new Contact("Jake", "0412345678"));
+        contacts.add(new Contact("jacob", "0412345678"));
+        contacts.add(new Contact("Amy", "0499999999"));
+        contacts.add(new Contact("Jane", "123"));
+
+        assertEquals(2, contacts.findByPhone("0412345678").size());
+        assertEquals(List.of(new Contact("Jane", "123")), contacts.findByPhone("123"));
+        assertTrue(contacts.findByPhone("0400000000").isEmpty());
+
+        List<Contact> matches = new ArrayList<>(contacts.findByNamePrefix("ja"));
+        matches.sort(Contact.KEY_ORDER);
+        assertEquals(List.of(new Contact("Jake", "0412345678"), new Contact("jacob", "0412345678"),
+                new Contact("Jane", "123")), matches);
+    }
+
+    private static List<Contact> toList(Iterable<Contact> contacts) {
+        List<Contact> list = new ArrayList<>();
+        contacts.forEach(list::add);
+        return list;
+    }
+}
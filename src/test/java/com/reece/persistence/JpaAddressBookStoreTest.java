@@ -0,0 +1,88 @@
+package com.reece.persistence;
+
+import com.reece.model.Contact;
+import com.reece.service.UserAddressBookService;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "addressbook.storage=jpa")
+public class JpaAddressBookStoreTest {
+
+    @Autowired
+    private UserAddressBookService service;
+
+    @Autowired
+    private JpaAddressBookStore store;
+
+    @Autowired
+    private ContactEntityRepository contactRepository;
+
+    @Test
+    void testMutationsAreRestoredIntoAFreshService() {
+        Contact kept = new Contact("Saikiran", "0001112224");
+        Contact removed = new Contact("Sai", "0001112226");
+        Contact old = new Contact("Kiran", "0001112227");
+        Contact updated = new Contact("Kiran RM", "0001112227");
+
+        service.createAddressBookForUser("jpaUser", "Friends");
+        service.createAddressBookForUser("jpaUser", "Temp");
+        service.addContactsToAddressBook("jpaUser", "Friends", List.of(kept, removed, old));
+        service.addContactToAddressBook("jpaUser", "Temp", kept);
+        service.removeContactForUser("jpaUser", "Friends", removed);
+        service.updateContactForUser("jpaUser", "Friends", old, updated);
+        service.removeAddressBookForUser("jpaUser", "Temp");
+
+        UserAddressBookService restored = new UserAddressBookService();
+        restored.setStore(store);
+        restored.restore();
+
+        assertEquals(Set.of("Friends"), restored.getAllBooks("jpaUser").keySet());
+        assertEquals(Set.of(kept, updated), Set.copyOf(restored.getContacts("jpaUser", "Friends")));
+        assertEquals(2, restored.getUniqueContactsAcrossAllBooks("jpaUser").size());
+    }
+
+    @Test
+    void testDuplicateAddIsNotPersistedTwice() {
+        Contact contact = new Contact("Saikiran", "0001112224");
+        service.createAddressBookForUser("jpaUser2", "Friends");
+        service.addContactToAddressBook("jpaUser2", "Friends", contact);
+        service.addContactToAddressBook("jpaUser2", "Friends", contact);
+
+        assertTrue(contactRepository.existsByUserIdAndBookNameAndNameAndPhone("jpaUser2", "Friends",
+                contact.getName(), contact.getPhone()));
+        assertEquals(1, contactRepository.findAll().stream()
+                .filter(entity -> entity.getUserId().equals("jpaUser2"))
+                .count());
+    }
+
+    @Test
+    void testValuesLongerThanTheirColumnsAreRefusedBeforeAnythingChanges() {
+        String longName = "x".repeat(256);
+
+        assertThrows(IllegalArgumentException.class, () -> service.createAddressBookForUser(longName, "Friends"));
+        assertThrows(IllegalArgumentException.class, () -> service.createAddressBookForUser("jpaUser3", longName));
+        assertNull(service.getAllBooks(longName));
+        assertNull(service.getAllBooks("jpaUser3"));
+    }
+
+    @Test
+    @DirtiesContext
+    void testWritesAreRefusedAfterAWriteFails() {
+        Contact contact = new Contact("Saikiran", "0001112224");
+        service.createAddressBookForUser("jpaUser4", "Friends");
+        // A row the service does not know about makes the next insert break the unique constraint.
+        contactRepository.save(new ContactEntity("jpaUser4", "Friends", contact));
+
+        assertThrows(RuntimeException.class, () -> service.addContactToAddressBook("jpaUser4", "Friends", contact));
+        assertThrows(IllegalStateException.class, () -> service.createAddressBookForUser("jpaUser4", "Work"));
+        assertEquals(Set.of("Friends"), service.getAllBooks("jpaUser4").keySet());
+    }
+}
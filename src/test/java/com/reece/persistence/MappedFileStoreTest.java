@@ -0,0 +1,181 @@
+package com.reece.persistence;
+
+import com.reece.model.Contact;
+import com.reece.model.ContactStorage;
+import com.reece.service.UserAddressBookService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MappedFileStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private final List<MappedFileStore> stores = new ArrayList<>();
+
+    private final Contact kept = new Contact("Saikiran", "0001112224");
+    private final Contact removed = new Contact("Sai", "0001112226");
+    private final Contact old = new Contact("Kiran", "0001112227");
+    private final Contact updated = new Contact("Kiran RM", "0001112227");
+
+    @AfterEach
+    void tearDown() throws IOException {
+        for (MappedFileStore store : stores) {
+            store.close();
+        }
+    }
+
+    @Test
+    void testUsersAreLoadedOnFirstAccessAfterRestart() throws IOException {
+        UserAddressBookService service = start(ContactStorage.SKIP_LIST);
+        applyChanges(service);
+        service.createAddressBookForUser("user2", "Work");
+        restart();
+
+        UserAddressBookService restarted = start(ContactStorage.SKIP_LIST);
+        assertEquals(0, restarted.getUserCount());
+
+        assertRestored(restarted);
+        assertEquals(1, restarted.getUserCount());
+        assertEquals(1, restarted.getAddressBookCount());
+        assertEquals(2, restarted.getContactCount());
+        assertNull(restarted.getAllBooks("nobody"));
+    }
+
+    @Test
+    void testChangesAfterLazyLoadArePersisted() throws IOException {
+        UserAddressBookService service = start(ContactStorage.SKIP_LIST);
+        applyChanges(service);
+        restart();
+
+        service = start(ContactStorage.COMPACT);
+        service.createAddressBookForUser("user1", "Family");
+        service.addContactToAddressBook("user1", "Family", removed);
+        restart();
+
+        service = start(ContactStorage.SKIP_LIST);
+        assertEquals(Set.of("Friends", "Family"), service.getAllBooks("user1").keySet());
+        assertEquals(Set.of(removed), Set.copyOf(service.getContacts("user1", "Family")));
+        assertEquals(3, service.getUniqueContactsAcrossAllBooks("user1").size());
+    }
+
+    @Test
+    void testIndexesGrowAndFreedRecordsAreReused() throws IOException {
+        UserAddressBookService service = start(ContactStorage.SKIP_LIST);
+        List<Contact> contacts = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            contacts.add(new Contact("Contact " + i, String.format("%010d", i)));
+        }
+        for (int round = 0; round < 3; round++) {
+            service.createAddressBookForUser("user1", "Bulk");
+            service.addContactsToAddressBook("user1", "Bulk", contacts);
+            service.removeAddressBookForUser("user1", "Bulk");
+        }
+        service.createAddressBookForUser("user1", "Bulk");
+        service.addContactsToAddressBook("user1", "Bulk", contacts);
+        assertEquals(5000, stores.get(0).contactSlots());
+        restart();
+
+        UserAddressBookService restarted = start(ContactStorage.SKIP_LIST);
+        assertEquals(Set.copyOf(contacts), Set.copyOf(restarted.getContacts("user1", "Bulk")));
+    }
+
+    @Test
+    void testValuesTooLongForARecordAreRefusedBeforeAnythingChanges() throws IOException {
+        UserAddressBookService service = start(ContactStorage.SKIP_LIST);
+        service.createAddressBookForUser("user1", "Friends");
+
+        assertThrows(IllegalArgumentException.class, () -> service.createAddressBookForUser("u".repeat(300), "Friends"));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.addContactToAddressBook("user1", "Friends", new Contact("Long", "0".repeat(30))));
+        service.addContactToAddressBook("user1", "Friends", kept);
+        assertThrows(IllegalArgumentException.class,
+                () -> service.updateContactForUser("user1", "Friends", kept, new Contact("n".repeat(400), "0001112224")));
+
+        assertEquals(1, service.getUserCount());
+        assertEquals(Set.of(kept), Set.copyOf(service.getContacts("user1", "Friends")));
+        restart();
+
+        UserAddressBookService restarted = start(ContactStorage.SKIP_LIST);
+        assertEquals(Set.of(kept), Set.copyOf(restarted.getContacts("user1", "Friends")));
+        assertNull(restarted.getAllBooks("u".repeat(300)));
+    }
+
+    @Test
+    void testUsersAreWrittenConcurrently() throws Exception {
+        UserAddressBookService service = start(ContactStorage.SKIP_LIST);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> writers = new ArrayList<>();
+        for (int u = 0; u < 8; u++) {
+            String userId = "user" + u;
+            writers.add(executor.submit(() -> {
+                service.createAddressBookForUser(userId, "Friends");
+                for (int i = 0; i < 500; i++) {
+                    Contact contact = new Contact("Contact " + i, String.format("%010d", i));
+                    service.addContactToAddressBook(userId, "Friends", contact);
+                    if (i % 2 == 0) {
+                        service.updateContactForUser(userId, "Friends", contact, new Contact("Renamed " + i, contact.getPhone()));
+                    }
+                }
+            }));
+        }
+        for (Future<?> writer : writers) {
+            writer.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        restart();
+
+        UserAddressBookService restarted = start(ContactStorage.SKIP_LIST);
+        for (int u = 0; u < 8; u++) {
+            Set<Contact> contacts = Set.copyOf(restarted.getContacts("user" + u, "Friends"));
+            assertEquals(500, contacts.size());
+            assertTrue(contacts.contains(new Contact("Renamed 0", "0000000000")));
+            assertTrue(contacts.contains(new Contact("Contact 1", "0000000001")));
+        }
+    }
+
+    private UserAddressBookService start(ContactStorage contactStorage) {
+        MappedFileStore store = new MappedFileStore(directory, Duration.ZERO);
+        stores.add(store);
+        UserAddressBookService service = new UserAddressBookService();
+        service.setContactStorage(contactStorage);
+        service.setListeners(List.of(store));
+        service.setStore(store);
+        service.restore();
+        return service;
+    }
+
+    private void restart() throws IOException {
+        stores.remove(stores.size() - 1).close();
+    }
+
+    private void applyChanges(UserAddressBookService service) {
+        service.createAddressBookForUser("user1", "Friends");
+        service.createAddressBookForUser("user1", "Temp");
+        service.addContactsToAddressBook("user1", "Friends", List.of(kept, removed, old));
+        service.addContactToAddressBook("user1", "Temp", kept);
+        service.removeContactForUser("user1", "Friends", removed);
+        service.updateContactForUser("user1", "Friends", old, updated);
+        service.removeAddressBookForUser("user1", "Temp");
+    }
+
+    private void assertRestored(UserAddressBookService service) {
+        assertEquals(Set.of("Friends"), service.getAllBooks("user1").keySet());
+        assertEquals(Set.of(kept, updated), Set.copyOf(service.getContacts("user1", "Friends")));
+        assertEquals(2, service.getUniqueContactsAcrossAllBooks("user1").size());
+    }
+}
@@ -0,0 +1,167 @@
+package com.reece.persistence;
+
+import com.reece.model.Contact;
+import com.reece.service.UserAddressBookService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WriteAheadLogStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private final List<WriteAheadLogStore> stores = new ArrayList<>();
+
+    private final Contact kept = new Contact("Saikiran", "0001112224");
+    private final Contact removed = new Contact("Sai", "0001112226");
+    private final Contact old = new Contact("Kiran", "0001112227");
+    private final Contact updated = new Contact("Kiran RM", "0001112227");
+
+    @AfterEach
+    void tearDown() throws IOException {
+        for (WriteAheadLogStore store : stores) {
+            store.close();
+        }
+    }
+
+    @Test
+    void testLogIsReplayedAfterRestart() throws IOException {
+        UserAddressBookService service = start();
+        applyChanges(service);
+        restart();
+
+        assertRestored(start());
+    }
+
+    @Test
+    void testSnapshotPlusLogTailIsReplayedAfterRestart() throws IOException {
+        UserAddressBookService service = start();
+        service.createAddressBookForUser("user1", "Friends");
+        service.addContactToAddressBook("user1", "Friends", removed);
+        stores.get(0).snapshot();
+
+        service.addContactsToAddressBook("user1", "Friends", List.of(kept, old));
+        service.removeContactForUser("user1", "Friends", removed);
+        service.updateContactForUser("user1", "Friends", old, updated);
+        service.createAddressBookForUser("user1", "Temp");
+        service.removeAddressBookForUser("user1", "Temp");
+        restart();
+
+        assertRestored(start());
+    }
+
+    @Test
+    void testSnapshotDropsCoveredSegments() throws IOException {
+        UserAddressBookService service = start();
+        applyChanges(service);
+        stores.get(0).snapshot();
+        restart();
+
+        assertRestored(start());
+        assertEquals(1, countSegments()); // only the segment opened after the last restart
+    }
+
+    @Test
+    void testTornTailIsDiscarded() throws IOException {
+        UserAddressBookService service = start();
+        applyChanges(service);
+        service.addContactToAddressBook("user1", "Friends", new Contact("Torn", "0001112229"));
+        restart();
+
+        Path lastSegment;
+        try (Stream<Path> files = Files.list(directory)) {
+            lastSegment = files.filter(file -> file.getFileName().toString().startsWith("wal-")).sorted()
+                    .reduce((first, second) -> second).orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(lastSegment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        assertRestored(start());
+    }
+
+    @Test
+    void testCorruptionBeforeNewerSegmentsStopsStartup() throws IOException {
+        UserAddressBookService service = start();
+        applyChanges(service);
+        restart();
+        start().addContactToAddressBook("user1", "Friends", new Contact("Later", "0001112229"));
+        restart();
+
+        Path firstSegment;
+        try (Stream<Path> files = Files.list(directory)) {
+            firstSegment = files.filter(file -> file.getFileName().toString().startsWith("wal-")).sorted()
+                    .findFirst().orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(firstSegment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {0x7f}), channel.size() / 2);
+        }
+
+        assertThrows(UncheckedIOException.class, this::start);
+        assertEquals(2, countSegments());
+    }
+
+    @Test
+    void testWritesAreRefusedOnceTheLogCannotAppend() throws IOException {
+        UserAddressBookService service = start();
+        service.createAddressBookForUser("user1", "Friends");
+        stores.get(0).close();
+
+        assertThrows(IllegalStateException.class, () -> service.addContactToAddressBook("user1", "Friends", kept));
+        assertThrows(IllegalStateException.class, () -> service.createAddressBookForUser("user1", "Temp"));
+        assertTrue(service.getContacts("user1", "Friends").isEmpty());
+        assertEquals(Set.of("Friends"), service.getAllBooks("user1").keySet());
+    }
+
+    private UserAddressBookService start() {
+        WriteAheadLogStore store = new WriteAheadLogStore(directory, true, Duration.ZERO);
+        stores.add(store);
+        UserAddressBookService service = new UserAddressBookService();
+        service.setListeners(List.of(store));
+        service.setStore(store);
+        service.restore();
+        return service;
+    }
+
+    private void restart() throws IOException {
+        stores.remove(stores.size() - 1).close();
+    }
+
+    private void applyChanges(UserAddressBookService service) {
+        service.createAddressBookForUser("user1", "Friends");
+        service.createAddressBookForUser("user1", "Temp");
+        service.addContactsToAddressBook("user1", "Friends", List.of(kept, removed, old));
+        service.addContactToAddressBook("user1", "Temp", kept);
+        service.removeContactForUser("user1", "Friends", removed);
+        service.updateContactForUser("user1", "Friends", old, updated);
+        service.removeAddressBookForUser("user1", "Temp");
+    }
+
+    private void assertRestored(UserAddressBookService service) {
+        assertEquals(Set.of("Friends"), service.getAllBooks("user1").keySet());
+        assertEquals(Set.of(kept, updated), Set.copyOf(service.getContacts("user1", "Friends")));
+        assertEquals(2, service.getUniqueContactsAcrossAllBooks("user1").size());
+    }
+
+    private long countSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("wal-")).count();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.reece.report;
+
+import com.reece.model.Contact;
+import com.reece.model.Page;
+import com.reece.model.PhoneCollision;
+import com.reece.model.ReportStatus;
+import com.reece.service.UserAddressBookService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PhoneCollisionReportTest {
+
+    @TempDir
+    Path directory;
+
+    private final UserAddressBookService service = new UserAddressBookService();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private PhoneCollisionReport report;
+
+    @BeforeEach
+    void setUp() {
+        // A chunk of three occurrences spills many sorted runs, exercising the merge.
+        report = new PhoneCollisionReport(service, directory, 3, executor);
+
+        service.createAddressBookForUser("user1", "Friends");
+        service.createAddressBookForUser("user1", "Work");
+        service.createAddressBookForUser("user2", "Friends");
+        service.addContactsToAddressBook("user1", "Friends", List.of(
+                new Contact("Alice", "0000000001"), new Contact("Bob", "0000000002"), new Contact("Carol", "0000000003")));
+        // Same number, other name, same user.
+        service.addContactsToAddressBook("user1", "Work", List.of(
+                new Contact("Alice Smith", "0000000001"), new Contact("Bob", "0000000002")));
+        // Same number, other name, other user; and a number only user2 has.
+        service.addContactsToAddressBook("user2", "Friends", List.of(
+                new Contact("Caroline", "0000000003"), new Contact("Dave", "0000000004")));
+    }
+
+    @Test
+    void testReportsNumbersHeldUnderSeveralNames() throws Exception {
+        ReportStatus status = runToCompletion();
+        assertEquals(ReportStatus.State.COMPLETED, status.getState());
+        assertEquals(2, status.getUsersScanned());
+        assertEquals(7, status.getContactsScanned());
+        assertEquals(2, status.getResults());
+
+        List<PhoneCollision> collisions = report.results(null, 100, false).getItems();
+        assertEquals(List.of("0000000001", "0000000003"), collisions.stream().map(PhoneCollision::getPhone).toList());
+
+        PhoneCollision alice = collisions.get(0);
+        assertTrue(alice.isWithinUser());
+        assertFalse(alice.isAcrossUsers());
+        assertEquals(2, alice.getOccurrences());
+        assertEquals(List.of("user1/Friends/Alice", "user1/Work/Alice Smith"), describe(alice));
+
+        PhoneCollision carol = collisions.get(1);
+        assertFalse(carol.isWithinUser());
+        assertTrue(carol.isAcrossUsers());
+        assertEquals(List.of("user1/Friends/Carol", "user2/Friends/Caroline"), describe(carol));
+
+        assertEquals(List.of("0000000001"), report.results(null, 100, true).getItems().stream()
+                .map(PhoneCollision::getPhone).toList());
+        try (var files = Files.list(directory)) {
+            assertEquals(1, files.count(), "only the result file should remain");
+        }
+    }
+
+    @Test
+    void testResultsArePagedAndCursorsExpireWithTheirRun() throws Exception {
+        for (int i = 0; i < 25; i++) {
+            String phone = String.format("%010d", 100 + i);
+            service.addContactToAddressBook("user1", "Friends", new Contact("First " + i, phone));
+            service.addContactToAddressBook("user2", "Friends", new Contact("Second " + i, phone));
+        }
+        assertNull(report.results(null, 10, false));
+        runToCompletion();
+
+        List<String> phones = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            Page<PhoneCollision> page = report.results(cursor, 10, false);
+            page.getItems().forEach(collision -> phones.add(collision.getPhone()));
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+        assertEquals(27, phones.size());
+        assertEquals(3, pages);
+        assertEquals(phones.stream().sorted().toList(), phones);
+
+        String stale = report.results(null, 10, false).getNextCursor();
+        runToCompletion();
+        assertThrows(IllegalArgumentException.class, () -> report.results(stale, 10, false));
+    }
+
+    private ReportStatus runToCompletion() throws Exception {
+        ReportStatus status = report.start();
+        assertNotNull(status);
+        // The executor runs tasks in order, so once this no-op is done the report is too.
+        executor.submit(() -> { }).get(10, TimeUnit.SECONDS);
+        return status;
+    }
+
+    private static List<String> describe(PhoneCollision collision) {
+        return collision.getEntries().stream()
+                .map(entry -> entry.getUserId() + "/" + entry.getAddressBook() + "/" + entry.getName())
+                .toList();
+    }
+}
@@ -0,0 +1,151 @@
+package com.reece.service;
+
+import com.reece.model.Contact;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserAddressBookServiceConcurrencyTest {
+
+    private static final int THREADS = Math.max(4, Runtime.getRuntime().availableProcessors());
+    private static final int CONTACTS_PER_THREAD = 2_000;
+
+    private UserAddressBookService service;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        service = new UserAddressBookService();
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testConcurrentWritesToDistinctUsersAreNotLost() throws Exception {
+        runConcurrently(thread -> {
+            String userId = "user" + thread;
+            service.createAddressBookForUser(userId, "Friends");
+            for (int i = 0; i < CONTACTS_PER_THREAD; i++) {
+                service.addContactToAddressBook(userId, "Friends", contact(thread, i));
+            }
+            return null;
+        });
+
+        for (int thread = 0; thread < THREADS; thread++) {
+            assertEquals(CONTACTS_PER_THREAD, service.getContacts("user" + thread, "Friends").size());
+        }
+    }
+
+    @Test
+    void testConcurrentWritesToSameBookAreNotLost() throws Exception {
+        service.createAddressBookForUser("user1", "Shared");
+
+        runConcurrently(thread -> {
+            for (int i = 0; i < CONTACTS_PER_THREAD; i++) {
+                service.addContactToAddressBook("user1", "Shared", contact(thread, i));
+            }
+            // Remove every other contact again so adds and removes interleave across threads.
+            for (int i = 0; i < CONTACTS_PER_THREAD; i += 2) {
+                assertTrue(service.removeContactForUser("user1", "Shared", contact(thread, i)));
+            }
+            return null;
+        });
+
+        assertEquals(THREADS * CONTACTS_PER_THREAD / 2, service.getContacts("user1", "Shared").size());
+        assertEquals(THREADS * CONTACTS_PER_THREAD / 2, service.getUniqueContactsAcrossAllBooks("user1").size());
+    }
+
+    @Test
+    void testConcurrentCreateOfSameBookSucceedsExactlyOnce() throws Exception {
+        List<Boolean> results = runConcurrently(thread -> service.createAddressBookForUser("user1", "Family"));
+
+        assertEquals(1, results.stream().filter(Boolean::booleanValue).count());
+        assertEquals(1, service.getAllBooks("user1").size());
+    }
+
+    @Test
+    void testConcurrentUpdatesNeverDuplicateOrLoseContact() throws Exception {
+        service.createAddressBookForUser("user1", "Work");
+        Contact first = new Contact("Jake", "1234567890");
+        Contact second = new Contact("Jake", "1234567899");
+        service.addContactToAddressBook("user1", "Work", first);
+
+        List<Integer> updates = runConcurrently(thread -> {
+            int applied = 0;
+            for (int i = 0; i < CONTACTS_PER_THREAD; i++) {
+                // Another thread may flip the contact between the two calls; retry until this thread flips it.
+                while (!service.updateContactForUser("user1", "Work", first, second)
+                        && !service.updateContactForUser("user1", "Work", second, first)) {
+                    Thread.onSpinWait();
+                }
+                applied++;
+            }
+            return applied;
+        });
+
+        assertEquals(THREADS * CONTACTS_PER_THREAD, updates.stream().mapToInt(Integer::intValue).sum());
+        assertEquals(1, service.getContacts("user1", "Work").size());
+        assertEquals(1, service.getUniqueContactsAcrossAllBooks("user1").size());
+    }
+
+    @Test
+    void testWriterForOneUserDoesNotBlockAnotherUser() throws Exception {
+        service.createAddressBookForUser("user1", "Friends");
+        service.createAddressBookForUser("user2", "Friends");
+
+        ReentrantLock user1Lock = service.getUser("user1").getLock();
+        user1Lock.lock();
+        try {
+            Future<Boolean> added = executor.submit(() ->
+                    service.addContactToAddressBook("user2", "Friends", contact(0, 0)));
+            assertTrue(added.get(5, TimeUnit.SECONDS));
+        } finally {
+            user1Lock.unlock();
+        }
+    }
+
+    private <T> List<T> runConcurrently(ThreadTask<T> task) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<T>> futures = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            int threadNo = thread;
+            Callable<T> callable = () -> {
+                start.await();
+                return task.run(threadNo);
+            };
+            futures.add(executor.submit(callable));
+        }
+        start.countDown();
+
+        List<T> results = new ArrayList<>();
+        for (Future<T> future : futures) {
+            results.add(future.get(60, TimeUnit.SECONDS));
+        }
+        return results;
+    }
+
+    private static Contact contact(int thread, int i) {
+        return new Contact("Contact " + thread, String.format("%04d%06d", thread, i));
+    }
+
+    @FunctionalInterface
+    private interface ThreadTask<T> {
+        T run(int thread) throws Exception;
+    }
+}
@@ -1,13 +1,29 @@
 package com.reece.service;
 
 import com.reece.model.AddressBook;
+import com.reece.model.BatchOperation;
+import com.reece.model.BatchOperationResult;
+import com.reece.model.BatchResult;
+import com.reece.model.ChangeLog;
+import com.reece.model.ChangeSet;
 import com.reece.model.Contact;
+import com.reece.model.ContactChange;
+import com.reece.model.ContactCounts;
+import com.reece.model.ContactStorage;
+import com.reece.model.DuplicateContact;
+import com.reece.model.Page;
+import com.reece.model.UpdateResult;
 import com.reece.model.User;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -43,6 +59,20 @@ public class UserAddressBookServiceTest {
         assertFalse(added); // No address book created
     }
 
+    @Test
+    void testAddContactsToAddressBookFlagsDuplicates() {
+        service.createAddressBookForUser("user1", "Work");
+        Contact contact = new Contact("Sai", "1234567890");
+        service.addContactToAddressBook("user1", "Work", contact);
+
+        boolean[] added = service.addContactsToAddressBook("user1", "Work",
+                List.of(contact, new Contact("Ram", "1234567891")));
+
+        assertArrayEquals(new boolean[]{false, true}, added);
+        assertEquals(2, service.getUniqueContactsAcrossAllBooks("user1").size());
+        assertNull(service.addContactsToAddressBook("user1", "Missing", List.of(contact)));
+    }
+
     @Test
     void testGetContacts() {
         service.createAddressBookForUser("user1", "Family");
@@ -54,6 +84,37 @@ public class UserAddressBookServiceTest {
         assertTrue(contacts.contains(contact));
     }
 
+    @Test
+    void testGetContactsPageWalksBookInKeyOrder() {
+        service.createAddressBookForUser("user1", "Family");
+        for (int i = 9; i >= 0; i--) {
+            service.addContactToAddressBook("user1", "Family", new Contact("Member " + i, "123456789" + i));
+        }
+
+        List<Contact> seen = new ArrayList<>();
+        String cursor = null;
+        do {
+            Page<Contact> page = service.getContactsPage("user1", "Family", cursor, 3);
+            assertTrue(page.getItems().size() <= 3);
+            seen.addAll(page.getItems());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertEquals(10, seen.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals("123456789" + i, seen.get(i).getPhone());
+        }
+    }
+
+    @Test
+    void testGetContactsPageRejectsInvalidLimitAndCursor() {
+        service.createAddressBookForUser("user1", "Family");
+
+        assertThrows(IllegalArgumentException.class, () -> service.getContactsPage("user1", "Family", null, 0));
+        assertThrows(IllegalArgumentException.class, () -> service.getContactsPage("user1", "Family", "***", 10));
+        assertNull(service.getContactsPage("user1", "Missing", null, 10));
+    }
+
     @Test
     void testRemoveContactForUser() {
         service.createAddressBookForUser("user1", "Work");
@@ -89,6 +150,56 @@ public class UserAddressBookServiceTest {
         assertEquals(2, unique.size());
     }
 
+    @Test
+    void testUniqueContactsTrackRemovalsAndUpdates() {
+        service.createAddressBookForUser("user1", "Work");
+        service.createAddressBookForUser("user1", "Family");
+
+        Contact shared = new Contact("Anna", "1234567890");
+        Contact workOnly = new Contact("Ben", "1234567891");
+
+        service.addContactToAddressBook("user1", "Work", shared);
+        service.addContactToAddressBook("user1", "Work", workOnly);
+        service.addContactToAddressBook("user1", "Family", shared);
+
+        service.removeContactForUser("user1", "Family", shared);
+        assertTrue(service.getUniqueContactsAcrossAllBooks("user1").contains(shared)); // still in Work
+
+        Contact updated = new Contact("Ben", "1234567899");
+        service.updateContactForUser("user1", "Work", workOnly, updated);
+        assertEquals(Set.of(shared, updated), Set.copyOf(service.getUniqueContactsAcrossAllBooks("user1")));
+
+        service.removeAddressBookForUser("user1", "Work");
+        assertTrue(service.getUniqueContactsAcrossAllBooks("user1").isEmpty());
+    }
+
+    @Test
+    void testSearchContactsByPhoneAndNamePrefix() {
+        service.createAddressBookForUser("user1", "Work");
+        service.createAddressBookForUser("user1", "Family");
+
+        Contact anna = new Contact("Anna", "1234567890");
+        Contact annabel = new Contact("annabel", "1234567891");
+        Contact ben = new Contact("Ben", "1234567890");
+
+        service.addContactToAddressBook("user1", "Work", anna);
+        service.addContactToAddressBook("user1", "Family", annabel);
+        service.addContactToAddressBook("user1", "Family", ben);
+
+        assertEquals(List.of(anna, ben), service.searchContacts("user1", null, "1234567890", null, 10));
+        assertEquals(List.of(ben), service.searchContacts("user1", "Family", "1234567890", null, 10));
+        assertEquals(List.of(anna, annabel), service.searchContacts("user1", null, null, "ANN", 10));
+        assertEquals(List.of(anna), service.searchContacts("user1", null, null, "ann", 1));
+        assertEquals(List.of(annabel), service.searchContacts("user1", "Family", null, "ann", 10));
+
+        service.removeContactForUser("user1", "Work", anna);
+        assertEquals(List.of(ben), service.searchContacts("user1", null, "1234567890", null, 10));
+
+        assertNull(service.searchContacts("user1", "Missing", "1234567890", null, 10));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.searchContacts("user1", null, "1234567890", "Ann", 10));
+    }
+
     @Test
     void testRemoveAddressBook() {
         service.createAddressBookForUser("user1", "Friends");
@@ -138,4 +249,427 @@ public class UserAddressBookServiceTest {
         boolean updated = service.updateContactForUser("user1", "Work", oldContact, newContact);
         assertFalse(updated);
     }
+
+    @Test
+    void testUpdateRejectsDuplicatesAndKeepsBookInOrder() {
+        for (ContactStorage storage : ContactStorage.values()) {
+            UserAddressBookService service = new UserAddressBookService();
+            service.setContactStorage(storage);
+            service.createAddressBookForUser("user1", "Work");
+            Contact alice = new Contact("Alice", "0001112224");
+            Contact bob = new Contact("Bob", "0001112225");
+            Contact odd = new Contact("Odd", "+61 400");
+            service.addContactsToAddressBook("user1", "Work", List.of(alice, bob, odd));
+
+            assertEquals(UpdateResult.DUPLICATE, service.replaceContactForUser("user1", "Work", alice, bob));
+            assertEquals(UpdateResult.NOT_FOUND, service.replaceContactForUser("user1", "Work",
+                    new Contact("Ghost", "0001112229"), new Contact("Casper", "0001112229")));
+            assertEquals(UpdateResult.NOT_FOUND, service.replaceContactForUser("user1", "Missing", alice, bob));
+            assertEquals(UpdateResult.NOT_FOUND, service.replaceContactForUser("nobody", "Work", alice, bob));
+
+            Contact alicia = new Contact("Alicia", "0001112224");
+            Contact even = new Contact("Even", "0001112226");
+            Contact bobAbroad = new Contact("Bob", "+44 20");
+            assertEquals(UpdateResult.UPDATED, service.replaceContactForUser("user1", "Work", alice, alicia));
+            assertEquals(UpdateResult.UPDATED, service.replaceContactForUser("user1", "Work", odd, even));
+            assertEquals(UpdateResult.UPDATED, service.replaceContactForUser("user1", "Work", bob, bobAbroad));
+
+            assertEquals(List.of(bobAbroad, alicia, even), List.copyOf(service.getContacts("user1", "Work")), storage.name());
+            assertEquals(3, service.getContactCount());
+            assertEquals(Set.of(alicia, bobAbroad, even), service.getUniqueContactsAcrossAllBooks("user1"));
+        }
+    }
+
+    @Test
+    void testUpdateWithIncompleteContactChangesNothing() {
+        service.createAddressBookForUser("user1", "Work");
+        Contact alice = new Contact("Alice", "0001112224");
+        service.addContactToAddressBook("user1", "Work", alice);
+        long version = service.getAddressBookVersion("user1", "Work");
+
+        assertThrows(IllegalArgumentException.class, () -> service.replaceContactForUser("user1", "Work", alice,
+                new Contact(null, "0001112225")));
+        assertThrows(IllegalArgumentException.class, () -> service.replaceContactForUser("user1", "Work", null,
+                new Contact("Bob", "0001112225")));
+
+        assertEquals(Set.of(alice), Set.copyOf(service.getContacts("user1", "Work")));
+        assertEquals(Set.of(alice), service.getUniqueContactsAcrossAllBooks("user1"));
+        assertEquals(version, service.getAddressBookVersion("user1", "Work"));
+    }
+
+    @Test
+    void testBatchAppliesOperationsInOrderAndReportsFailures() {
+        Contact alice = new Contact("Alice", "0001112224");
+        Contact bob = new Contact("Bob", "0001112225");
+        Contact bobby = new Contact("Bobby", "0001112225");
+
+        BatchResult result = service.applyBatch("user1", List.of(
+                operation(BatchOperation.Type.CREATE_BOOK, "Friends", null, null),
+                operation(BatchOperation.Type.ADD_CONTACT, "Friends", alice, null),
+                operation(BatchOperation.Type.ADD_CONTACT, "Friends", bob, null),
+                operation(BatchOperation.Type.ADD_CONTACT, "Friends", alice, null),
+                operation(BatchOperation.Type.UPDATE_CONTACT, "Friends", bob, bobby),
+                operation(BatchOperation.Type.REMOVE_CONTACT, "Missing", alice, null)), false);
+
+        assertEquals(List.of(BatchOperationResult.Status.APPLIED, BatchOperationResult.Status.APPLIED,
+                BatchOperationResult.Status.APPLIED, BatchOperationResult.Status.DUPLICATE,
+                BatchOperationResult.Status.APPLIED, BatchOperationResult.Status.NOT_FOUND),
+                result.getResults().stream().map(BatchOperationResult::getStatus).toList());
+        assertEquals(4, result.getApplied());
+        assertEquals(2, result.getFailed());
+        assertEquals(Set.of(alice, bobby), service.getContacts("user1", "Friends"));
+    }
+
+    @Test
+    void testAtomicBatchUndoesEverythingOnFailure() {
+        Contact alice = new Contact("Alice", "0001112224");
+        Contact bob = new Contact("Bob", "0001112225");
+        Contact carol = new Contact("Carol", "0001112226");
+        service.createAddressBookForUser("user1", "Friends");
+        service.createAddressBookForUser("user1", "Work");
+        service.addContactsToAddressBook("user1", "Friends", List.of(alice, bob));
+        service.addContactToAddressBook("user1", "Work", carol);
+        long contacts = service.getContactCount();
+
+        BatchResult result = service.applyBatch("user1", List.of(
+                operation(BatchOperation.Type.CREATE_BOOK, "Family", null, null),
+                operation(BatchOperation.Type.ADD_CONTACT, "Family", carol, null),
+                operation(BatchOperation.Type.REMOVE_CONTACT, "Friends", alice, null),
+                operation(BatchOperation.Type.UPDATE_CONTACT, "Friends", bob, alice),
+                operation(BatchOperation.Type.REMOVE_BOOK, "Work", null, null),
+                operation(BatchOperation.Type.REMOVE_CONTACT, "Friends", carol, null),
+                operation(BatchOperation.Type.CREATE_BOOK, "Other", null, null)), true);
+
+        assertTrue(result.isRolledBack());
+        assertEquals(0, result.getApplied());
+        assertEquals(List.of(BatchOperationResult.Status.ROLLED_BACK, BatchOperationResult.Status.ROLLED_BACK,
+                BatchOperationResult.Status.ROLLED_BACK, BatchOperationResult.Status.ROLLED_BACK,
+                BatchOperationResult.Status.ROLLED_BACK, BatchOperationResult.Status.NOT_FOUND,
+                BatchOperationResult.Status.SKIPPED),
+                result.getResults().stream().map(BatchOperationResult::getStatus).toList());
+        assertEquals(Set.of("Friends", "Work"), service.getAllBooks("user1").keySet());
+        assertEquals(Set.of(alice, bob), service.getContacts("user1", "Friends"));
+        assertEquals(Set.of(carol), service.getContacts("user1", "Work"));
+        assertEquals(2, service.getAddressBookCount());
+        assertEquals(contacts, service.getContactCount());
+        assertEquals(Set.of(alice, bob, carol), service.getUniqueContactsAcrossAllBooks("user1"));
+    }
+
+    @Test
+    void testAtomicBatchUndoesEverythingWhenAListenerThrows() {
+        Contact alice = new Contact("Alice", "0001112224");
+        Contact bob = new Contact("Bob", "0001112225");
+        Contact carol = new Contact("Carol", "0001112226");
+        service.createAddressBookForUser("user1", "Friends");
+        service.addContactsToAddressBook("user1", "Friends", List.of(alice, bob));
+        service.setListeners(List.of(new AddressBookListener() {
+            @Override
+            public void onContactsAdded(String userId, String bookName, List<Contact> contacts) {
+                if (contacts.contains(carol)) throw new IllegalStateException("store write failed");
+            }
+        }));
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> service.applyBatch("user1", List.of(
+                operation(BatchOperation.Type.CREATE_BOOK, "Family", null, null),
+                operation(BatchOperation.Type.REMOVE_CONTACT, "Friends", alice, null),
+                operation(BatchOperation.Type.ADD_CONTACT, "Friends", carol, null)), true));
+
+        assertEquals("store write failed", e.getMessage());
+        assertEquals(Set.of("Friends"), service.getAllBooks("user1").keySet());
+        assertEquals(Set.of(alice, bob), service.getContacts("user1", "Friends"));
+        assertEquals(1, service.getAddressBookCount());
+        assertEquals(2, service.getContactCount());
+    }
+
+    @Test
+    void testRolledBackBatchDoesNotLeaveBehindTheUserItCreated() {
+        Contact alice = new Contact("Alice", "0001112224");
+        service.createAddressBookForUser("user1", "Friends");
+
+        BatchResult result = service.applyBatch("user2", List.of(
+                operation(BatchOperation.Type.CREATE_BOOK, "Family", null, null),
+                operation(BatchOperation.Type.REMOVE_CONTACT, "Family", alice, null)), true);
+
+        assertTrue(result.isRolledBack());
+        assertNull(service.getAllBooks("user2"));
+        assertEquals(1, service.getUserCount());
+
+        service.setListeners(List.of(new AddressBookListener() {
+            @Override
+            public void onContactsAdded(String userId, String bookName, List<Contact> contacts) {
+                throw new IllegalStateException("store write failed");
+            }
+        }));
+        assertThrows(IllegalStateException.class, () -> service.applyBatch("user2", List.of(
+                operation(BatchOperation.Type.CREATE_BOOK, "Family", null, null),
+                operation(BatchOperation.Type.ADD_CONTACT, "Family", alice, null)), true));
+
+        assertNull(service.getAllBooks("user2"));
+        assertEquals(1, service.getUserCount());
+        assertEquals(1, service.getAddressBookCount());
+        assertEquals(0, service.getContactCount());
+    }
+
+    @Test
+    void testBatchRejectsOperationsWithoutContactsBeforeApplyingAny() {
+        assertThrows(IllegalArgumentException.class, () -> service.applyBatch("user1", List.of(
+                operation(BatchOperation.Type.CREATE_BOOK, "Friends", null, null),
+                operation(BatchOperation.Type.ADD_CONTACT, "Friends", null, null)), false));
+        assertNull(service.getAllBooks("user1"));
+    }
+
+    @Test
+    void testAggregatesMatchWhetherRunInParallelOrNot() {
+        for (ContactStorage storage : ContactStorage.values()) {
+            UserAddressBookService sequential = new UserAddressBookService();
+            UserAddressBookService parallel = new UserAddressBookService();
+            sequential.setContactStorage(storage);
+            parallel.setContactStorage(storage);
+            sequential.setAggregationEngine(new AggregationEngine(1, 0));
+            parallel.setAggregationEngine(new AggregationEngine(4, 0));
+            for (UserAddressBookService target : List.of(sequential, parallel)) {
+                for (int book = 0; book < 40; book++) {
+                    target.createAddressBookForUser("user1", String.format("Book %02d", book));
+                    List<Contact> contacts = new ArrayList<>();
+                    for (int i = 0; i < 50; i++) {
+                        // Contacts 0-19 repeat in every book, the rest are unique to it.
+                        int id = i < 20 ? i : book * 100 + i;
+                        contacts.add(new Contact("Name " + id, String.format("%010d", id)));
+                    }
+                    target.addContactsToAddressBook("user1", String.format("Book %02d", book), contacts);
+                }
+            }
+
+            assertEquals(List.copyOf(sequential.getUniqueContactsAcrossAllBooks("user1")),
+                    List.copyOf(parallel.getUniqueContactsAcrossAllBooks("user1")));
+            assertEquals(20 + 40 * 30, parallel.getUniqueContactsAcrossAllBooks("user1").size());
+
+            ContactCounts counts = parallel.getContactCounts("user1");
+            assertEquals(40, counts.getAddressBooks());
+            assertEquals(40 * 50, counts.getContacts());
+            assertEquals(20 + 40 * 30, counts.getUniqueContacts());
+            assertEquals(20, counts.getDuplicatedContacts());
+
+            List<DuplicateContact> duplicates = parallel.findDuplicateContacts("user1");
+            assertEquals(20, duplicates.size());
+            assertEquals(new Contact("Name 0", "0000000000"), duplicates.get(0).getContact());
+            assertEquals(List.copyOf(parallel.getAllBooks("user1").keySet()), duplicates.get(0).getAddressBooks());
+            assertNull(parallel.getContactCounts("nobody"));
+            assertNull(parallel.findDuplicateContacts("nobody"));
+        }
+    }
+
+    @Test
+    void testLazyLoadsHappenOnceAndMissesAreRemembered() {
+        AtomicInteger loads = new AtomicInteger();
+        service.setStore(new AddressBookStore() {
+            @Override
+            public void restore(UserAddressBookService service) {
+            }
+
+            @Override
+            public User loadUser(String userId, ContactStorage contactStorage) {
+                loads.incrementAndGet();
+                if (!userId.equals("stored")) return null;
+
+                User user = User.builder().userId(userId).contactStorage(contactStorage).build();
+                user.createAddressBook("Friends");
+                user.addContact("Friends", new Contact("Alice", "0001112224"));
+                return user;
+            }
+        });
+
+        List<CompletableFuture<Map<String, AddressBook>>> readers = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            readers.add(CompletableFuture.supplyAsync(() -> service.getAllBooks("stored")));
+        }
+        readers.forEach(reader -> assertEquals(Set.of("Friends"), reader.join().keySet()));
+        assertEquals(1, loads.get());
+        assertEquals(1, service.getAddressBookCount());
+        assertEquals(1, service.getContactCount());
+
+        assertNull(service.getAllBooks("nobody"));
+        assertNull(service.getAllBooks("nobody"));
+        assertFalse(service.removeUser("nobody"));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testStoreSizeCounters() {
+        service.createAddressBookForUser("user1", "Friends");
+        service.createAddressBookForUser("user1", "Work");
+        service.createAddressBookForUser("user2", "Friends");
+        service.addContactToAddressBook("user1", "Friends", new Contact("Alice", "111"));
+        service.addContactToAddressBook("user1", "Friends", new Contact("Alice", "111"));
+        service.addContactsToAddressBook("user1", "Work",
+                List.of(new Contact("Bob", "222"), new Contact("Carol", "333")));
+        service.addContactToAddressBook("user2", "Friends", new Contact("Dave", "444"));
+
+        assertEquals(2, service.getUserCount());
+        assertEquals(3, service.getAddressBookCount());
+        assertEquals(4, service.getContactCount());
+
+        // Updating onto an existing contact is rejected and leaves the counts alone
+        assertEquals(UpdateResult.DUPLICATE, service.replaceContactForUser("user1", "Work",
+                new Contact("Bob", "222"), new Contact("Carol", "333")));
+        assertEquals(4, service.getContactCount());
+
+        service.removeContactForUser("user2", "Friends", new Contact("Dave", "444"));
+        service.removeAddressBookForUser("user1", "Work");
+        assertEquals(2, service.getAddressBookCount());
+        assertEquals(1, service.getContactCount());
+    }
+
+    @Test
+    void testVersionsGrowWithEveryChange() {
+        assertEquals(-1, service.getUserVersion("user1"));
+        service.createAddressBookForUser("user1", "Friends");
+        service.createAddressBookForUser("user1", "Work");
+        long friends = service.getAddressBookVersion("user1", "Friends");
+        long work = service.getAddressBookVersion("user1", "Work");
+
+        service.addContactToAddressBook("user1", "Friends", new Contact("Alice", "111"));
+        assertTrue(service.getAddressBookVersion("user1", "Friends") > friends);
+        assertEquals(work, service.getAddressBookVersion("user1", "Work"));
+
+        // A failed change bumps nothing.
+        long user = service.getUserVersion("user1");
+        service.addContactToAddressBook("user1", "Friends", new Contact("Alice", "111"));
+        service.removeContactForUser("user1", "Work", new Contact("Nobody", "000"));
+        assertEquals(user, service.getUserVersion("user1"));
+
+        // A book recreated under the same name never reuses an earlier version.
+        long removedAt = service.getAddressBookVersion("user1", "Work");
+        service.removeAddressBookForUser("user1", "Work");
+        assertTrue(service.getUserVersion("user1") > user);
+        assertEquals(-1, service.getAddressBookVersion("user1", "Work"));
+        service.createAddressBookForUser("user1", "Work");
+        assertTrue(service.getAddressBookVersion("user1", "Work") > removedAt);
+    }
+
+    @Test
+    void testUserCreatedAgainNeverRepeatsAVersion() {
+        service.createAddressBookForUser("user1", "Friends");
+        service.addContactToAddressBook("user1", "Friends", new Contact("Alice", "111"));
+        long bookVersion = service.getAddressBookVersion("user1", "Friends");
+        long userVersion = service.getUserVersion("user1");
+        String token = service.getChanges("user1", null).getToken();
+
+        service.removeUser("user1");
+        service.createAddressBookForUser("user1", "Friends");
+        service.addContactToAddressBook("user1", "Friends", new Contact("Bob", "222"));
+
+        assertTrue(service.getAddressBookVersion("user1", "Friends") > bookVersion);
+        assertTrue(service.getUserVersion("user1") > userVersion);
+        assertTrue(service.getChanges("user1", token).isSnapshot());
+    }
+
+    @Test
+    void testBookChangesSinceToken() {
+        Contact alice = new Contact("Alice", "111");
+        Contact bob = new Contact("Bob", "222");
+        Contact bobby = new Contact("Bobby", "222");
+        service.createAddressBookForUser("user1", "Friends");
+        service.addContactsToAddressBook("user1", "Friends", List.of(alice, bob));
+
+        ChangeSet initial = service.getChanges("user1", "Friends", null);
+        assertTrue(initial.isSnapshot());
+        assertEquals(Set.of(alice, bob), Set.copyOf(initial.getBooks().get("Friends")));
+
+        service.updateContactForUser("user1", "Friends", bob, bobby);
+        service.removeContactForUser("user1", "Friends", alice);
+        ChangeSet delta = service.getChanges("user1", "Friends", initial.getToken());
+        assertFalse(delta.isSnapshot());
+        assertEquals(List.of(ContactChange.Type.UPDATED, ContactChange.Type.REMOVED),
+                delta.getChanges().stream().map(ContactChange::getType).toList());
+        assertEquals(bob, delta.getChanges().get(0).getPreviousContact());
+        assertEquals(bobby, delta.getChanges().get(0).getContact());
+
+        assertTrue(service.getChanges("user1", "Friends", delta.getToken()).getChanges().isEmpty());
+        assertNull(service.getChanges("user1", "Missing", null));
+        assertThrows(IllegalArgumentException.class, () -> service.getChanges("user1", "Friends", "garbage"));
+    }
+
+    @Test
+    void testAgedOutTokenFallsBackToSnapshot() {
+        service.createAddressBookForUser("user1", "Friends");
+        String token = service.getChanges("user1", "Friends", null).getToken();
+        for (int i = 0; i <= ChangeLog.CAPACITY; i++) {
+            service.addContactToAddressBook("user1", "Friends", new Contact("Name " + i, String.format("%010d", i)));
+        }
+
+        ChangeSet changes = service.getChanges("user1", "Friends", token);
+        assertTrue(changes.isSnapshot());
+        assertEquals(ChangeLog.CAPACITY + 1, changes.getBooks().get("Friends").size());
+        assertTrue(service.getChanges("user1", token).isSnapshot());
+        assertTrue(service.getChanges("user1", "Friends", "0.0").isSnapshot()); // token from another process
+    }
+
+    @Test
+    void testUserChangesIncludeRemovedAndCreatedBooksInOrder() {
+        service.createAddressBookForUser("user1", "Friends");
+        service.createAddressBookForUser("user1", "Work");
+        String token = service.getChanges("user1", null).getToken();
+
+        service.addContactToAddressBook("user1", "Work", new Contact("Bob", "222"));
+        service.removeAddressBookForUser("user1", "Friends");
+        service.createAddressBookForUser("user1", "Friends");
+        service.addContactToAddressBook("user1", "Friends", new Contact("Alice", "111"));
+
+        ChangeSet changes = service.getChanges("user1", token);
+        assertFalse(changes.isSnapshot());
+        assertEquals(List.of("Work ADDED", "Friends BOOK_REMOVED", "Friends BOOK_CREATED", "Friends ADDED"),
+                changes.getChanges().stream().map(change -> change.getAddressBook() + " " + change.getType()).toList());
+        assertEquals(ChangeTokens.encode(service.getUserVersion("user1")), changes.getToken());
+    }
+
+    @Test
+    void testCompactStorageAnswersLikeSkipList() {
+        UserAddressBookService compact = new UserAddressBookService();
+        compact.setContactStorage(ContactStorage.COMPACT);
+        List<String> books = List.of("Family", "Friends", "Work");
+        for (String book : books) {
+            service.createAddressBookForUser("user1", book);
+            compact.createAddressBookForUser("user1", book);
+        }
+
+        Random random = new Random(7);
+        for (int i = 0; i < 3_000; i++) {
+            String book = books.get(random.nextInt(books.size()));
+            Contact contact = new Contact("Name " + random.nextInt(200), String.format("%010d", random.nextInt(300)));
+            if (random.nextInt(4) == 0) {
+                assertEquals(service.removeContactForUser("user1", book, contact),
+                        compact.removeContactForUser("user1", book, contact));
+            } else {
+                service.addContactToAddressBook("user1", book, contact);
+                compact.addContactToAddressBook("user1", book, contact);
+            }
+        }
+
+        for (String book : books) {
+            assertEquals(new ArrayList<>(service.getContacts("user1", book)), new ArrayList<>(compact.getContacts("user1", book)));
+        }
+        assertEquals(new ArrayList<>(service.getUniqueContactsAcrossAllBooks("user1")),
+                new ArrayList<>(compact.getUniqueContactsAcrossAllBooks("user1")));
+        assertEquals(service.getUniqueContactsAcrossAllBooks("user1").size(),
+                compact.getUniqueContactsAcrossAllBooks("user1").size());
+
+        String cursor = null;
+        do {
+            Page<Contact> expected = service.getUniqueContactsPage("user1", cursor, 37);
+            Page<Contact> actual = compact.getUniqueContactsPage("user1", cursor, 37);
+            assertEquals(expected.getItems(), actual.getItems());
+            assertEquals(expected.getNextCursor(), actual.getNextCursor());
+            cursor = expected.getNextCursor();
+        } while (cursor != null);
+
+        assertEquals(service.searchContacts("user1", null, "0000000042", null, 100),
+                compact.searchContacts("user1", null, "0000000042", null, 100));
+        assertEquals(service.searchContacts("user1", "Work", null, "name 1", 25),
+                compact.searchContacts("user1", "Work", null, "name 1", 25));
+    }
+
+    private static BatchOperation operation(BatchOperation.Type type, String book, Contact contact, Contact newContact) {
+        return new BatchOperation(type, book, contact, newContact);
+    }
 }